@@ -0,0 +1,185 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Axis-aligned bounding box of a finite geometry, used to skip intersection tests of rays
+ * that cannot hit the geometry.
+ */
+public final class BoundingBox {
+    /**
+     * Padding added around the bounds of a geometry, so that flat geometries get a non-empty box
+     * and intersections on the box boundary are not lost to rounding
+     */
+    private static final double PADDING = 1e-6;
+
+    /**
+     * Minimal coordinates of the box
+     */
+    final double minX, minY, minZ;
+    /**
+     * Maximal coordinates of the box
+     */
+    final double maxX, maxY, maxZ;
+
+    /**
+     * Constructs a box from its minimal and maximal coordinates.
+     *
+     * @param minX minimal x coordinate
+     * @param minY minimal y coordinate
+     * @param minZ minimal z coordinate
+     * @param maxX maximal x coordinate
+     * @param maxY maximal y coordinate
+     * @param maxZ maximal z coordinate
+     */
+    public BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Constructs the padded box bounding a set of points.
+     *
+     * @param points the points to bound
+     * @return the bounding box of the points
+     */
+    public static BoundingBox of(Point... points) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (Point p : points) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            minZ = Math.min(minZ, p.getZ());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+            maxZ = Math.max(maxZ, p.getZ());
+        }
+        return new BoundingBox(minX - PADDING, minY - PADDING, minZ - PADDING,
+                maxX + PADDING, maxY + PADDING, maxZ + PADDING);
+    }
+
+    /**
+     * Constructs the padded box bounding a sphere.
+     *
+     * @param center the center of the sphere
+     * @param radius the radius of the sphere
+     * @return the bounding box of the sphere
+     */
+    public static BoundingBox of(Point center, double radius) {
+        double r = radius + PADDING;
+        return new BoundingBox(center.getX() - r, center.getY() - r, center.getZ() - r,
+                center.getX() + r, center.getY() + r, center.getZ() + r);
+    }
+
+    /**
+     * Constructs the smallest box containing this box and another one.
+     *
+     * @param other the other box
+     * @return the union of the boxes
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * Returns the center of the box along an axis.
+     *
+     * @param axis the axis - 0 for x, 1 for y, 2 for z
+     * @return the center coordinate
+     */
+    public double center(int axis) {
+        return switch (axis) {
+            case 0 -> (minX + maxX) / 2;
+            case 1 -> (minY + maxY) / 2;
+            default -> (minZ + maxZ) / 2;
+        };
+    }
+
+    /**
+     * Returns the size of the box along an axis.
+     *
+     * @param axis the axis - 0 for x, 1 for y, 2 for z
+     * @return the extent of the box along the axis
+     */
+    public double size(int axis) {
+        return switch (axis) {
+            case 0 -> maxX - minX;
+            case 1 -> maxY - minY;
+            default -> maxZ - minZ;
+        };
+    }
+
+    /**
+     * Checks whether a ray may hit the box (slab test).
+     *
+     * @param ray the ray
+     * @return true if the ray hits the box in its positive direction
+     */
+    public boolean intersects(Ray ray) {
+        return intersects(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Checks whether a ray hits the box within a distance from its head (slab test).
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance along the ray
+     * @return true if the ray hits the box not farther than maxDistance
+     */
+    public boolean intersects(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        return intersects(p0.getX(), p0.getY(), p0.getZ(),
+                1 / dir.getX(), 1 / dir.getY(), 1 / dir.getZ(), maxDistance);
+    }
+
+    /**
+     * Slab test of a ray given by its head and the inverses of its direction components.
+     * A slab producing NaN (a ray parallel to the slab with the head on its boundary) does not reject the ray.
+     *
+     * @param ox          the x coordinate of the ray head
+     * @param oy          the y coordinate of the ray head
+     * @param oz          the z coordinate of the ray head
+     * @param invX        inverse of the x component of the ray direction
+     * @param invY        inverse of the y component of the ray direction
+     * @param invZ        inverse of the z component of the ray direction
+     * @param maxDistance the maximal distance along the ray
+     * @return true if the ray hits the box not farther than maxDistance
+     */
+    boolean intersects(double ox, double oy, double oz, double invX, double invY, double invZ, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+
+        double t1 = (minX - ox) * invX, t2 = (maxX - ox) * invX;
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+
+        t1 = (minY - oy) * invY;
+        t2 = (maxY - oy) * invY;
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        if (tNear > tFar) return false;
+
+        t1 = (minZ - oz) * invZ;
+        t2 = (maxZ - oz) * invZ;
+        if (t1 > t2) { double t = t1; t1 = t2; t2 = t; }
+        if (t1 > tNear) tNear = t1;
+        if (t2 < tFar) tFar = t2;
+        return tNear <= tFar;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox{(" + minX + "," + minY + "," + minZ + ")-(" + maxX + "," + maxY + "," + maxZ + ")}";
+    }
+}
@@ -25,6 +25,22 @@ public class Cylinder extends Tube {
         this.height = height;
     }
 
+    /**
+     * Returns the height of the cylinder.
+     *
+     * @return the height of the cylinder.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        Point bottom = getAxisRay().getP0();
+        Point top = getAxisRay().getPoint(height);
+        return BoundingBox.of(bottom, radius).union(BoundingBox.of(top, radius));
+    }
+
     @Override
     public Vector getNormal(Point point) {
         Point p0 = getAxisRay().getP0();
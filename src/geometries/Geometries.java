@@ -2,18 +2,50 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Represents a collection of geometric shapes.
  * This class implements the Composite design pattern.
+ * Rays are tested against the bounding box of each member before the member itself, so a hierarchy
+ * of nested collections (see {@link #buildBvh()}) serves as a bounding volume hierarchy.
  */
 public class Geometries extends Intersectable {
+    /**
+     * Maximal number of geometries in a leaf node of a bounding volume hierarchy
+     */
+    private static final int BVH_LEAF_SIZE = 2;
+    /**
+     * A packet narrowed to less than this fraction of its rays by a member's box
+     * is considered diverged, and the member is traced ray by ray
+     */
+    private static final double PACKET_DIVERGENCE = 0.25;
+    /**
+     * Marker of a bounding box not computed since geometries were last added to the collection
+     */
+    private static final BoundingBox UNKNOWN = new BoundingBox(0, 0, 0, 0, 0, 0);
+
     private final List<Intersectable> geometries = new LinkedList<>();
 
+    /**
+     * The cached bounding box of the collection, {@link #UNKNOWN} until it is computed
+     */
+    private volatile BoundingBox box = UNKNOWN;
+    /**
+     * The collections this collection was added to, whose cached boxes its additions invalidate, null if none.
+     * They are held weakly, so that a collection does not keep alive the hierarchies built around it
+     * (e.g. for the frames of an animation).
+     */
+    private Set<Geometries> parents = null;
+
     /**
      * Default constructor (empty)
      */
@@ -36,22 +68,136 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         Collections.addAll(this.geometries, geometries);
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries nested) {
+                if (nested.parents == null) nested.parents = Collections.newSetFromMap(new WeakHashMap<>());
+                nested.parents.add(this);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Drops the cached bounding box of the collection and of the collections containing it.
+     * A collection whose box is not computed has no computed box around it either, so the walk stops there.
+     */
+    private void invalidate() {
+        if (box == UNKNOWN) return;
+        box = UNKNOWN;
+        if (parents != null) {
+            for (Geometries parent : parents) parent.invalidate();
+        }
     }
 
     /**
      * Returns the list of geometries.
      *
-     * @return the list of geometries
+     * @return an unmodifiable view of the list of geometries - geometries are added by {@link #add(Intersectable...)}
      */
     public List<Intersectable> getGeometries() {
-        return geometries;
+        return Collections.unmodifiableList(geometries);
+    }
+
+    /**
+     * Returns the box bounding all the geometries of the collection.
+     * The box is cached until geometries are added to the collection or to a collection nested in it.
+     *
+     * @return the bounding box, or null if the collection is empty or contains an unbounded geometry
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        BoundingBox cached = box;
+        if (cached != UNKNOWN) return cached;
+        // The boxes of all the members are computed, so that the nested boxes are cached as well
+        BoundingBox union = null;
+        boolean bounded = true;
+        for (Intersectable geometry : geometries) {
+            BoundingBox b = geometry.getBoundingBox();
+            if (b == null) bounded = false;
+            else union = union == null ? b : union.union(b);
+        }
+        if (!bounded) union = null;
+        box = union;
+        return union;
+    }
+
+    /**
+     * Builds a bounding volume hierarchy of the geometries. Nested collections are flattened,
+     * the unbounded geometries are kept at the top level, and the bounded geometries are split
+     * recursively at the median of their box centers along the longest axis.
+     * The collection itself is not changed.
+     *
+     * @return a new collection holding the hierarchy
+     */
+    public Geometries buildBvh() {
+        List<Intersectable> bounded = new ArrayList<>();
+        Geometries bvh = new Geometries();
+        for (Intersectable geometry : flatten(new ArrayList<>())) {
+            if (geometry.getBoundingBox() == null) bvh.add(geometry);
+            else bounded.add(geometry);
+        }
+        if (bounded.size() <= BVH_LEAF_SIZE) bvh.add(bounded.toArray(new Intersectable[0]));
+        else bvh.add(buildNode(bounded));
+        // Compute the boxes of all the nodes now, rather than on the first rays of the render threads
+        bvh.getBoundingBox();
+        return bvh;
+    }
+
+    /**
+     * Collects the geometries of the collection, expanding nested collections.
+     *
+     * @param leaves the list receiving the geometries
+     * @return the list of the geometries
+     */
+    private List<Intersectable> flatten(List<Intersectable> leaves) {
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries nested) nested.flatten(leaves);
+            else leaves.add(geometry);
+        }
+        return leaves;
+    }
+
+    /**
+     * Builds a node of the bounding volume hierarchy.
+     *
+     * @param items bounded geometries
+     * @return the node holding the geometries
+     */
+    private static Geometries buildNode(List<Intersectable> items) {
+        if (items.size() <= BVH_LEAF_SIZE) return new Geometries(items.toArray(new Intersectable[0]));
+
+        BoundingBox centers = null;
+        for (Intersectable item : items) {
+            BoundingBox b = item.getBoundingBox();
+            BoundingBox center = new BoundingBox(b.center(0), b.center(1), b.center(2),
+                    b.center(0), b.center(1), b.center(2));
+            centers = centers == null ? center : centers.union(center);
+        }
+        int axis = 0;
+        for (int a = 1; a < 3; ++a) {
+            if (centers.size(a) > centers.size(axis)) axis = a;
+        }
+        final int splitAxis = axis;
+        items.sort(Comparator.comparingDouble(item -> item.getBoundingBox().center(splitAxis)));
+
+        int middle = items.size() / 2;
+        return new Geometries(buildNode(new ArrayList<>(items.subList(0, middle))),
+                buildNode(new ArrayList<>(items.subList(middle, items.size()))));
     }
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
         List<GeoPoint> intersections = null;
 
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double invX = 1 / dir.getX(), invY = 1 / dir.getY(), invZ = 1 / dir.getZ();
+
         for (Intersectable geometry : geometries) {
+            BoundingBox b = geometry.getBoundingBox();
+            if (b != null && !b.intersects(ox, oy, oz, invX, invY, invZ, Double.POSITIVE_INFINITY)) continue;
+
             List<GeoPoint> geoIntersections = geometry.findGeoIntersectionsHelper(ray);
             if (geoIntersections != null) {
                 if (intersections == null) {
@@ -63,4 +209,58 @@ public class Geometries extends Intersectable {
 
         return intersections; // If no intersections were found, this will return null
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        Point p0 = ray.getP0();
+        Vector dir = ray.getDir();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double invX = 1 / dir.getX(), invY = 1 / dir.getY(), invZ = 1 / dir.getZ();
+
+        for (Intersectable geometry : geometries) {
+            BoundingBox b = geometry.getBoundingBox();
+            if (b != null && !b.intersects(ox, oy, oz, invX, invY, invZ, maxDistance)) continue;
+            if (geometry.hasIntersection(ray, maxDistance)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean attenuate(ShadowRay ray) {
+        for (Intersectable geometry : geometries) {
+            BoundingBox b = geometry.getBoundingBox();
+            if (b != null && !b.intersects(ray.ox, ray.oy, ray.oz, ray.invX, ray.invY, ray.invZ, ray.reach)) continue;
+            if (geometry.attenuate(ray)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected void findClosestGeoPointsHelper(RayPacket packet, int[] active, int count) {
+        int[] hitting = null;
+        for (Intersectable geometry : geometries) {
+            BoundingBox b = geometry.getBoundingBox();
+            if (b == null) {
+                geometry.findClosestGeoPointsHelper(packet, active, count);
+                continue;
+            }
+            // One test for the whole packet first, then narrow the packet to the rays hitting the box
+            if (!packet.mayHit(b)) continue;
+            if (hitting == null) hitting = new int[count];
+            int n = 0;
+            for (int k = 0; k < count; ++k) {
+                if (packet.mayHit(b, active[k])) hitting[n++] = active[k];
+            }
+            if (n == 0) continue;
+
+            if (n < count * PACKET_DIVERGENCE) {
+                // The packet diverged - trace the remaining rays one by one
+                for (int k = 0; k < n; ++k) {
+                    packet.offer(hitting[k], geometry.findGeoIntersectionsHelper(packet.getRay(hitting[k])));
+                }
+            } else {
+                geometry.findClosestGeoPointsHelper(packet, hitting, n);
+            }
+        }
+    }
+}
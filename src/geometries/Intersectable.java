@@ -24,12 +24,17 @@ public abstract class Intersectable {
 
     /**
      * Finds the intersection points between the given ray and the geometry, including the geometry information.
+     * The intersections are stamped with the time of the ray, for the rays spawned from them.
      *
      * @param ray the ray for which to find the intersection points.
      * @return a list of GeoPoint objects representing the intersection points between the ray and the geometry.
      */
     public List<GeoPoint> findGeoIntersections(Ray ray) {
-        return findGeoIntersectionsHelper(ray);
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+        if (intersections != null && ray.getTime() != 0) {
+            for (GeoPoint intersection : intersections) intersection.time = ray.getTime();
+        }
+        return intersections;
     }
 
     /**
@@ -41,6 +46,79 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray);
 
+    /**
+     * Checks whether a ray intersects the geometry within a distance from its head (an any-hit query).
+     * Unlike {@link #findGeoIntersections(Ray)}, a collection of geometries skips the members whose
+     * boxes are out of reach and stops at the first intersection found.
+     *
+     * @param ray         the ray
+     * @param maxDistance the maximal distance of an intersection from the head of the ray
+     * @return true if there is an intersection not farther than maxDistance
+     */
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+        if (intersections == null) return false;
+        Point p0 = ray.getP0();
+        double maxDistanceSquared = maxDistance * maxDistance;
+        for (GeoPoint intersection : intersections) {
+            if (intersection.point.distanceSquared(p0) <= maxDistanceSquared) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Attenuates a shadow ray by the transparency of the geometry where it crosses the ray before the light
+     * (an any-hit query). A collection of geometries skips the members whose boxes are out of the ray's reach
+     * and stops once the ray is blocked. The default implementation intersects the immutable form of the ray,
+     * for the geometries without an allocation-free test of their own.
+     *
+     * @param ray the shadow ray
+     * @return true if the ray is blocked
+     */
+    public boolean attenuate(ShadowRay ray) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray.toRay());
+        if (intersections == null) return false;
+        for (GeoPoint intersection : intersections) {
+            if (ray.attenuate(intersection.geometry, intersection.point)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the axis-aligned box bounding the geometry.
+     *
+     * @return the bounding box, or null if the geometry is unbounded
+     */
+    public BoundingBox getBoundingBox() {
+        return null;
+    }
+
+    /**
+     * Finds the closest intersection of each ray of a packet with the geometry.
+     * The closest intersections are kept in the packet, together with those found earlier.
+     *
+     * @param packet the packet of rays
+     */
+    public void findClosestGeoPoints(RayPacket packet) {
+        int[] active = new int[packet.size()];
+        for (int i = 0; i < active.length; ++i) active[i] = i;
+        findClosestGeoPointsHelper(packet, active, active.length);
+    }
+
+    /**
+     * Helper method finding the closest intersections of some of the rays of a packet.
+     * The default implementation traces each of the rays by itself.
+     *
+     * @param packet the packet of rays
+     * @param active indices of the rays in the packet to trace
+     * @param count  number of the rays to trace (a prefix of active)
+     */
+    protected void findClosestGeoPointsHelper(RayPacket packet, int[] active, int count) {
+        for (int k = 0; k < count; ++k) {
+            packet.offer(active[k], findGeoIntersectionsHelper(packet.getRay(active[k])));
+        }
+    }
+
 
     /**
      * The GeoPoint class is a passive data structure (PDS) that represents a point of intersection
@@ -49,6 +127,10 @@ public abstract class Intersectable {
     public static class GeoPoint {
         public Geometry geometry;
         public Point point;
+        /**
+         * The time of the ray that found the intersection within the shutter interval
+         */
+        public double time = 0;
 
         /**
          * Constructs a GeoPoint with the specified geometry and point.
@@ -0,0 +1,172 @@
+package geometries;
+
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A geometry (or a collection of geometries) moving during the shutter interval of the frame,
+ * for motion blur. The geometry as constructed is its position when the shutter opens (time 0),
+ * and it is translated linearly to its position when the shutter closes (time 1).
+ * A ray is intersected with the geometry at the ray's time, by moving the ray back by the
+ * translation of that time, and the bounding box of the geometry covers its whole motion,
+ * so the moving geometry takes its place in a bounding volume hierarchy as any bounded geometry.
+ */
+public class MovingGeometry extends Intersectable {
+    /**
+     * The moving geometry
+     */
+    private final Intersectable geometry;
+    /**
+     * The translation of the geometry when the shutter closes
+     */
+    private final double dx, dy, dz;
+    /**
+     * The box bounding the geometry along its whole motion, null if the geometry is unbounded
+     */
+    private final BoundingBox box;
+
+    /**
+     * The intersected geometry as placed at the time of an intersection. Its normals are those of
+     * the geometry at its place, and intersecting it again (as a cached occluder) intersects
+     * the moving geometry at the time of the new ray.
+     */
+    private final class Placed extends Geometry {
+        /**
+         * The intersected geometry
+         */
+        private final Geometry placed;
+        /**
+         * The translation of the geometry at the time of the intersection
+         */
+        private final double ox, oy, oz;
+
+        /**
+         * Places a geometry.
+         *
+         * @param placed the intersected geometry
+         * @param ox     x component of the translation
+         * @param oy     y component of the translation
+         * @param oz     z component of the translation
+         */
+        Placed(Geometry placed, double ox, double oy, double oz) {
+            this.placed = placed;
+            this.ox = ox;
+            this.oy = oy;
+            this.oz = oz;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return placed.getNormal(new Point(point.getX() - ox, point.getY() - oy, point.getZ() - oz));
+        }
+
+        @Override
+        public Material getMaterial() {
+            return placed.getMaterial();
+        }
+
+        @Override
+        public Color getEmission() {
+            return placed.getEmission();
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+            return MovingGeometry.this.findGeoIntersectionsHelper(ray);
+        }
+
+        @Override
+        public boolean hasIntersection(Ray ray, double maxDistance) {
+            return MovingGeometry.this.hasIntersection(ray, maxDistance);
+        }
+    }
+
+    /**
+     * Constructs a moving geometry. The geometry is bounded as it is at construction, so it should not change afterwards.
+     *
+     * @param geometry    the geometry at its position when the shutter opens
+     * @param translation the translation of the geometry when the shutter closes
+     * @throws IllegalArgumentException if the geometry or the translation is null
+     */
+    public MovingGeometry(Intersectable geometry, Vector translation) {
+        if (geometry == null || translation == null)
+            throw new IllegalArgumentException("Moving geometry and translation cannot be null");
+        this.geometry = geometry;
+        dx = translation.getX();
+        dy = translation.getY();
+        dz = translation.getZ();
+        BoundingBox b = geometry.getBoundingBox();
+        box = b == null ? null
+                : b.union(new BoundingBox(b.minX + dx, b.minY + dy, b.minZ + dz, b.maxX + dx, b.maxY + dy,
+                b.maxZ + dz));
+    }
+
+    /**
+     * Returns the moving geometry.
+     *
+     * @return the geometry at its position when the shutter opens
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the translation of the geometry when the shutter closes.
+     *
+     * @return the translation
+     */
+    public Vector getTranslation() {
+        return new Vector(dx, dy, dz);
+    }
+
+    /**
+     * Returns the box bounding the geometry along its whole motion - the union of its boxes
+     * when the shutter opens and closes.
+     *
+     * @return the bounding box, or null if the geometry is unbounded
+     */
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    /**
+     * Moves a ray back by the translation of the geometry at the ray's time.
+     *
+     * @param ray the ray
+     * @param t   the time of the ray
+     * @return the ray relative to the geometry at its position when the shutter opens
+     */
+    private Ray relative(Ray ray, double t) {
+        Point p0 = ray.getP0();
+        return new Ray(new Point(p0.getX() - dx * t, p0.getY() - dy * t, p0.getZ() - dz * t), ray.getDir(), t);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        double t = ray.getTime();
+        List<GeoPoint> intersections = geometry.findGeoIntersectionsHelper(t == 0 ? ray : relative(ray, t));
+        if (intersections == null) return null;
+
+        double ox = dx * t, oy = dy * t, oz = dz * t;
+        List<GeoPoint> moved = new ArrayList<>(intersections.size());
+        for (GeoPoint intersection : intersections) {
+            Point p = intersection.point;
+            moved.add(new GeoPoint(new Placed(intersection.geometry, ox, oy, oz),
+                    new Point(p.getX() + ox, p.getY() + oy, p.getZ() + oz)));
+        }
+        return moved;
+    }
+
+    @Override
+    public boolean hasIntersection(Ray ray, double maxDistance) {
+        double t = ray.getTime();
+        return geometry.hasIntersection(t == 0 ? ray : relative(ray, t), maxDistance);
+    }
+}
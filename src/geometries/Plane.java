@@ -78,31 +78,62 @@ public class Plane extends Geometry {
         return normal;
     }
 
+    /**
+     * Returns the point on the plane given at construction.
+     *
+     * @return a point on the plane.
+     */
+    public Point getPoint() {
+        return point;
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
         Point p0 = ray.getP0();
         Vector v = ray.getDir();
-        Vector n = this.getNormal(); // normal to the plane
-        Point q0 = this.point; // a point on the plane
+        double t = intersect(p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ(),
+                point.getX(), point.getY(), point.getZ(), normal.getX(), normal.getY(), normal.getZ());
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        // if Ray's head is on the plane's reference point
-        if (q0.equals(p0))
-            return null;
+    @Override
+    public boolean attenuate(ShadowRay ray) {
+        double t = intersect(ray.ox, ray.oy, ray.oz, ray.dx, ray.dy, ray.dz,
+                point.getX(), point.getY(), point.getZ(), normal.getX(), normal.getY(), normal.getZ());
+        return !Double.isNaN(t) && ray.attenuate(this, t);
+    }
 
-        double numerator = n.dotProduct(q0.subtract(p0));
-        double denominator = n.dotProduct(v);
+    /**
+     * Computes the distance along a ray to its intersection with a plane, without allocating.
+     *
+     * @param px x coordinate of the head of the ray
+     * @param py y coordinate of the head of the ray
+     * @param pz z coordinate of the head of the ray
+     * @param vx x component of the normalized direction of the ray
+     * @param vy y component of the direction of the ray
+     * @param vz z component of the direction of the ray
+     * @param qx x coordinate of the reference point of the plane
+     * @param qy y coordinate of the reference point of the plane
+     * @param qz z coordinate of the reference point of the plane
+     * @param nx x component of the unit normal of the plane
+     * @param ny y component of the normal of the plane
+     * @param nz z component of the normal of the plane
+     * @return the distance of the intersection from the head of the ray, NaN if the ray does not intersect
+     *         the plane in its positive direction
+     */
+    static double intersect(double px, double py, double pz, double vx, double vy, double vz,
+                            double qx, double qy, double qz, double nx, double ny, double nz) {
+        double ux = qx - px, uy = qy - py, uz = qz - pz;
+        // if Ray's head is on the plane's reference point
+        if (Util.isZero(ux) && Util.isZero(uy) && Util.isZero(uz)) return Double.NaN;
 
+        double numerator = nx * ux + ny * uy + nz * uz;
+        double denominator = nx * vx + ny * vy + nz * vz;
         // if the denominator is 0, the ray is parallel to the plane and there is no intersection
-        if (Util.isZero(denominator)) {
-            return null;
-        }
+        if (Util.isZero(denominator)) return Double.NaN;
 
         double t = numerator / denominator;
-
         // if t is negative or zero, there is no intersection in the ray's positive direction
-        if (t <= 0) {
-            return null;
-        }
-        return List.of(new GeoPoint(this, ray.getPoint(t)));
+        return t <= 0 ? Double.NaN : t;
     }
 }
\ No newline at end of file
@@ -28,6 +28,10 @@ public class Polygon extends Geometry {
      * The size of the polygon - the amount of the vertices in the polygon
      */
     private final int size;
+    /**
+     * The bounding box of the polygon
+     */
+    private final BoundingBox box;
 
     /**
      * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -56,6 +60,7 @@ public class Polygon extends Geometry {
             throw new IllegalArgumentException("A polygon can't have less than 3 vertices");
         this.vertices = List.of(vertices);
         size = vertices.length;
+        box = BoundingBox.of(vertices);
 
         // Generate the plane according to the first three vertices and associate the
         // polygon with this plane.
@@ -94,6 +99,20 @@ public class Polygon extends Geometry {
         return plane.getNormal();
     }
 
+    /**
+     * Returns the vertices of the polygon.
+     *
+     * @return the unmodifiable list of the vertices, in their order by edge path
+     */
+    public List<Point> getVertices() {
+        return vertices;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
         return null;
@@ -23,5 +23,14 @@ public abstract class RadialGeometry extends Geometry {
         }
         this.radius = radius;
     }
+
+    /**
+     * Returns the radius of the radial geometry.
+     *
+     * @return the radius.
+     */
+    public double getRadius() {
+        return radius;
+    }
 }
 
@@ -0,0 +1,228 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A packet of coherent rays (e.g. primary rays of neighbouring pixels) traced together through
+ * the geometries. The packet keeps, for each ray, the closest intersection found so far, and
+ * supports a conservative bounding box test shared by all the rays of the packet: interval
+ * arithmetic over the bounds of the heads and of the inverse directions of the rays rejects a box
+ * that no ray of the packet can hit with a single test, whatever the size of the packet.
+ */
+public class RayPacket {
+    /**
+     * The rays of the packet
+     */
+    private final Ray[] rays;
+    /**
+     * Index of the first ray of the packet in the rays array
+     */
+    private final int offset;
+    /**
+     * Number of rays in the packet
+     */
+    private final int size;
+    /**
+     * Heads of the rays
+     */
+    final double[] ox, oy, oz;
+    /**
+     * Inverses of the direction components of the rays
+     */
+    final double[] invX, invY, invZ;
+    /**
+     * Closest intersection of each ray found so far
+     */
+    private final GeoPoint[] closest;
+    /**
+     * Distance of the closest intersection of each ray found so far
+     */
+    final double[] distances;
+    /**
+     * Bounds of the ray heads over the packet
+     */
+    private final double[] headMin = new double[3], headMax = new double[3];
+    /**
+     * Bounds of the inverse direction components over the packet
+     */
+    private final double[] invMin = new double[3], invMax = new double[3];
+    /**
+     * Whether the direction components along an axis have the same (non-zero) sign in the whole packet
+     */
+    private final boolean[] coherent = new boolean[3];
+
+    /**
+     * Constructs a packet of consecutive rays of an array.
+     *
+     * @param rays   the array of rays
+     * @param offset the index of the first ray of the packet
+     * @param size   the number of rays in the packet
+     */
+    public RayPacket(Ray[] rays, int offset, int size) {
+        this.rays = rays;
+        this.offset = offset;
+        this.size = size;
+        ox = new double[size];
+        oy = new double[size];
+        oz = new double[size];
+        invX = new double[size];
+        invY = new double[size];
+        invZ = new double[size];
+        closest = new GeoPoint[size];
+        distances = new double[size];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+        for (int axis = 0; axis < 3; ++axis) {
+            headMin[axis] = invMin[axis] = Double.POSITIVE_INFINITY;
+            headMax[axis] = invMax[axis] = Double.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < size; ++i) {
+            Point p0 = rays[offset + i].getP0();
+            Vector dir = rays[offset + i].getDir();
+            ox[i] = p0.getX();
+            oy[i] = p0.getY();
+            oz[i] = p0.getZ();
+            invX[i] = 1 / dir.getX();
+            invY[i] = 1 / dir.getY();
+            invZ[i] = 1 / dir.getZ();
+            include(0, ox[i], invX[i]);
+            include(1, oy[i], invY[i]);
+            include(2, oz[i], invZ[i]);
+        }
+        for (int axis = 0; axis < 3; ++axis) {
+            coherent[axis] = Double.isFinite(invMin[axis]) && Double.isFinite(invMax[axis])
+                    && (invMin[axis] > 0 || invMax[axis] < 0);
+        }
+    }
+
+    /**
+     * Extends the head and inverse direction bounds of an axis by a ray.
+     *
+     * @param axis the axis
+     * @param head the head coordinate of the ray
+     * @param inv  the inverse direction component of the ray
+     */
+    private void include(int axis, double head, double inv) {
+        headMin[axis] = Math.min(headMin[axis], head);
+        headMax[axis] = Math.max(headMax[axis], head);
+        invMin[axis] = Math.min(invMin[axis], inv);
+        invMax[axis] = Math.max(invMax[axis], inv);
+    }
+
+    /**
+     * Returns the number of rays in the packet.
+     *
+     * @return the size of the packet
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a ray of the packet.
+     *
+     * @param i the index of the ray in the packet
+     * @return the ray
+     */
+    public Ray getRay(int i) {
+        return rays[offset + i];
+    }
+
+    /**
+     * Returns the closest intersection found for a ray of the packet.
+     *
+     * @param i the index of the ray in the packet
+     * @return the closest intersection, or null if the ray hits nothing
+     */
+    public GeoPoint getClosest(int i) {
+        return closest[i];
+    }
+
+    /**
+     * Offers intersections of a ray, keeping the one closest to the ray head.
+     *
+     * @param i      the index of the ray in the packet
+     * @param points the intersections of the ray with a geometry, may be null
+     */
+    void offer(int i, List<GeoPoint> points) {
+        if (points == null) return;
+        Point p0 = getRay(i).getP0();
+        for (GeoPoint gp : points) {
+            double distance = p0.distance(gp.point);
+            if (distance < distances[i]) {
+                distances[i] = distance;
+                closest[i] = gp;
+                gp.time = getRay(i).getTime();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a single ray of the packet may hit a box before its closest intersection found so far.
+     *
+     * @param box the box
+     * @param i   the index of the ray in the packet
+     * @return true if the ray may hit the box
+     */
+    boolean mayHit(BoundingBox box, int i) {
+        return box.intersects(ox[i], oy[i], oz[i], invX[i], invY[i], invZ[i], distances[i]);
+    }
+
+    /**
+     * Shared box test of the whole packet. It never rejects a box hit by a ray of the packet,
+     * but may accept a box missed by all the rays (e.g. when the directions of the packet
+     * diverge in sign along an axis).
+     *
+     * @param box the box
+     * @return false if no ray of the packet can hit the box
+     */
+    boolean mayHit(BoundingBox box) {
+        double entry = Double.NEGATIVE_INFINITY;
+        double exit = Double.POSITIVE_INFINITY;
+        double[] mins = {box.minX, box.minY, box.minZ};
+        double[] maxs = {box.maxX, box.maxY, box.maxZ};
+        for (int axis = 0; axis < 3; ++axis) {
+            if (!coherent[axis]) continue;
+            // t = (bound - head) * inv, with head and inv varying over intervals
+            double lo1 = productMin(mins[axis] - headMax[axis], mins[axis] - headMin[axis], invMin[axis], invMax[axis]);
+            double lo2 = productMin(maxs[axis] - headMax[axis], maxs[axis] - headMin[axis], invMin[axis], invMax[axis]);
+            double hi1 = productMax(mins[axis] - headMax[axis], mins[axis] - headMin[axis], invMin[axis], invMax[axis]);
+            double hi2 = productMax(maxs[axis] - headMax[axis], maxs[axis] - headMin[axis], invMin[axis], invMax[axis]);
+            entry = Math.max(entry, Math.min(lo1, lo2));
+            exit = Math.min(exit, Math.max(hi1, hi2));
+        }
+        return exit >= 0 && entry <= exit;
+    }
+
+    /**
+     * Lower bound of the product of two intervals.
+     *
+     * @param a lower bound of the first interval
+     * @param b upper bound of the first interval
+     * @param c lower bound of the second interval
+     * @param d upper bound of the second interval
+     * @return the minimum of the products
+     */
+    private static double productMin(double a, double b, double c, double d) {
+        return Math.min(Math.min(a * c, a * d), Math.min(b * c, b * d));
+    }
+
+    /**
+     * Upper bound of the product of two intervals.
+     *
+     * @param a lower bound of the first interval
+     * @param b upper bound of the first interval
+     * @param c lower bound of the second interval
+     * @param d upper bound of the second interval
+     * @return the maximum of the products
+     */
+    private static double productMax(double a, double b, double c, double d) {
+        return Math.max(Math.max(a * c, a * d), Math.max(b * c, b * d));
+    }
+}
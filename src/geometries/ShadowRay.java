@@ -0,0 +1,191 @@
+package geometries;
+
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * A mutable shadow ray from a shaded point towards a light, for the any-hit shadow queries of the ray tracer
+ * ({@link Intersectable#attenuate(ShadowRay)}). The ray keeps its head, direction and reach in primitive
+ * fields, and accumulates the transmission of the geometries crossing it before the light, so a shadow query
+ * allocates neither a {@link Ray} nor the list of its intersections. The head and the direction are those of
+ * the {@link Ray} spawned at the point with {@link Ray#Ray(Point, Vector, Vector, double)}, and an intersection
+ * attenuates the ray if it is not farther from the shaded point than the light.
+ * A shadow ray is meant to be reused by a single thread; it is not thread-safe.
+ */
+public final class ShadowRay {
+    /**
+     * Head of the ray - the shaded point moved off the surface
+     */
+    double ox, oy, oz;
+    /**
+     * Normalized direction of the ray
+     */
+    double dx, dy, dz;
+    /**
+     * Inverses of the direction components
+     */
+    double invX, invY, invZ;
+    /**
+     * Largest distance along the ray of a point that may attenuate it, for skipping the boxes out of reach
+     */
+    double reach;
+    /**
+     * The shaded point
+     */
+    private double px, py, pz;
+    /**
+     * Distance from the shaded point to the light
+     */
+    private double lightDistance;
+    /**
+     * Time of the ray within the shutter interval of the frame
+     */
+    private double time;
+    /**
+     * Transmission below which (in all the components) the ray is blocked
+     */
+    private double minK;
+    /**
+     * Transmission of the geometries crossed so far
+     */
+    private double kr, kg, kb;
+    /**
+     * The geometry whose intersection blocked the ray, null while the ray is not blocked
+     */
+    private Geometry blocker;
+
+    /**
+     * Sets the ray from a shaded point towards a light, with a full transmission.
+     *
+     * @param point         the shaded point
+     * @param normal        the normal at the point, along which the head is moved off the surface
+     * @param x             x component of the (not necessarily normalized) direction towards the light
+     * @param y             y component of the direction towards the light
+     * @param z             z component of the direction towards the light
+     * @param lightDistance the distance from the point to the light
+     * @param time          the time of the ray within the shutter interval of the frame
+     * @param minK          the transmission below which (in all the components) the ray is blocked
+     * @return the shadow ray itself for chaining
+     */
+    public ShadowRay set(Point point, Vector normal, double x, double y, double z, double lightDistance,
+                         double time, double minK) {
+        px = point.getX();
+        py = point.getY();
+        pz = point.getZ();
+        double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+        double vn = nx * x + ny * y + nz * z;
+        if (isZero(vn)) {
+            ox = px;
+            oy = py;
+            oz = pz;
+        } else {
+            double delta = vn < 0 ? -Ray.DELTA : Ray.DELTA;
+            ox = px + nx * delta;
+            oy = py + ny * delta;
+            oz = pz + nz * delta;
+        }
+        double lengthSquared = x * x + y * y + z * z;
+        if (isZero(lengthSquared - 1)) {
+            dx = x;
+            dy = y;
+            dz = z;
+        } else {
+            double scale = 1 / Math.sqrt(lengthSquared);
+            dx = x * scale;
+            dy = y * scale;
+            dz = z * scale;
+        }
+        invX = 1 / dx;
+        invY = 1 / dy;
+        invZ = 1 / dz;
+        this.lightDistance = lightDistance;
+        // The head is within DELTA of the shaded point, so the points up to the light are within this reach
+        reach = lightDistance + 2 * Ray.DELTA;
+        this.time = time;
+        this.minK = minK;
+        kr = kg = kb = 1;
+        blocker = null;
+        return this;
+    }
+
+    /**
+     * Attenuates the ray by an intersection at a distance along it, if the intersection is not farther
+     * from the shaded point than the light.
+     *
+     * @param geometry the intersected geometry
+     * @param t        the distance of the intersection from the head of the ray
+     * @return true if the ray is blocked
+     */
+    boolean attenuate(Geometry geometry, double t) {
+        if (isZero(t)) return attenuate(geometry, ox, oy, oz);
+        return attenuate(geometry, ox + dx * t, oy + dy * t, oz + dz * t);
+    }
+
+    /**
+     * Attenuates the ray by an intersection, if it is not farther from the shaded point than the light.
+     *
+     * @param geometry the intersected geometry
+     * @param point    the intersection point
+     * @return true if the ray is blocked
+     */
+    boolean attenuate(Geometry geometry, Point point) {
+        return attenuate(geometry, point.getX(), point.getY(), point.getZ());
+    }
+
+    /**
+     * Attenuates the ray by an intersection, if it is not farther from the shaded point than the light.
+     *
+     * @param geometry the intersected geometry
+     * @param x        x coordinate of the intersection point
+     * @param y        y coordinate of the intersection point
+     * @param z        z coordinate of the intersection point
+     * @return true if the ray is blocked
+     */
+    boolean attenuate(Geometry geometry, double x, double y, double z) {
+        double distance = Math.sqrt((x - px) * (x - px) + (y - py) * (y - py) + (z - pz) * (z - pz));
+        if (alignZero(distance - lightDistance) > 0) return false;
+        Double3 kT = geometry.getMaterial().kT;
+        kr *= kT.get1();
+        kg *= kT.get2();
+        kb *= kT.get3();
+        if (kr < minK && kg < minK && kb < minK) {
+            blocker = geometry;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the immutable ray of the shadow ray, for the geometries without a shadow query of their own.
+     *
+     * @return the ray
+     */
+    Ray toRay() {
+        return new Ray(new Point(ox, oy, oz), new Vector(dx, dy, dz), time);
+    }
+
+    /**
+     * Returns the transmission of the geometries crossed by the ray.
+     *
+     * @return the transmission coefficient, {@link Double3#ONE} if nothing crossed the ray
+     *         and {@link Double3#ZERO} if the ray is blocked
+     */
+    public Double3 getTransmission() {
+        if (blocker != null) return Double3.ZERO;
+        return kr == 1 && kg == 1 && kb == 1 ? Double3.ONE : new Double3(kr, kg, kb);
+    }
+
+    /**
+     * Returns the geometry whose intersection blocked the ray.
+     *
+     * @return the blocking geometry, null if the ray is not blocked
+     */
+    public Geometry getBlocker() {
+        return blocker;
+    }
+}
@@ -16,6 +16,11 @@ public class Sphere extends RadialGeometry {
      */
     final private Point center;
 
+    /**
+     * The bounding box of the sphere.
+     */
+    final private BoundingBox box;
+
     /**
      * Constructor to initialize the sphere with a radius and a center point.
      *
@@ -25,6 +30,16 @@ public class Sphere extends RadialGeometry {
     public Sphere(double radius, Point center) {
         super(radius);
         this.center = center;
+        this.box = BoundingBox.of(center, radius);
+    }
+
+    /**
+     * Returns the center point of the sphere.
+     *
+     * @return the center point of the sphere.
+     */
+    public Point getCenter() {
+        return center;
     }
 
     /**
@@ -40,6 +55,30 @@ public class Sphere extends RadialGeometry {
         return point.subtract(center).normalize();
     }
 
+    @Override
+    public BoundingBox getBoundingBox() {
+        return box;
+    }
+
+    @Override
+    public boolean attenuate(ShadowRay ray) {
+        double ux = center.getX() - ray.ox, uy = center.getY() - ray.oy, uz = center.getZ() - ray.oz;
+        if (Util.isZero(ux) && Util.isZero(uy) && Util.isZero(uz))
+            return ray.attenuate(this, center.getX() + ray.dx * radius, center.getY() + ray.dy * radius,
+                    center.getZ() + ray.dz * radius);
+
+        double tm = ray.dx * ux + ray.dy * uy + ray.dz * uz;
+        double dSquared = (ux * ux + uy * uy + uz * uz) - tm * tm;
+        double rSquared = radius * radius;
+        if (Util.alignZero(dSquared - rSquared) >= 0) return false;
+
+        double th = Math.sqrt(rSquared - dSquared);
+        double t1 = tm - th;
+        double t2 = tm + th;
+        if (Util.alignZero(t1) > 0 && ray.attenuate(this, t1)) return true;
+        return Util.alignZero(t2) > 0 && ray.attenuate(this, t2);
+    }
+
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
         Point p0 = ray.getP0();
@@ -27,40 +27,109 @@ public class Triangle extends Polygon {
 
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        // Step 1: Find intersection with the plane of the triangle
-        List<GeoPoint> planeGeoIntersections = plane.findGeoIntersectionsHelper(ray);
-        if (planeGeoIntersections == null) {
-            return null; // The ray does not intersect the plane
-        }
-
-        Point p = planeGeoIntersections.getFirst().point;
-
-        // Step 2: Check if the intersection point is inside the triangle
         Point p0 = ray.getP0();
         Vector v = ray.getDir();
+        double t = intersect(p0.getX(), p0.getY(), p0.getZ(), v.getX(), v.getY(), v.getZ());
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        Vector v1 = vertices.get(0).subtract(p0);
-        Vector v2 = vertices.get(1).subtract(p0);
-        Vector v3 = vertices.get(2).subtract(p0);
+    @Override
+    public boolean attenuate(ShadowRay ray) {
+        double t = intersect(ray.ox, ray.oy, ray.oz, ray.dx, ray.dy, ray.dz);
+        return !Double.isNaN(t) && ray.attenuate(this, t);
+    }
 
-        Vector n1 = null, n2 = null, n3 = null;
-        try {
-            n1 = v1.crossProduct(v2).normalize();
-            n2 = v2.crossProduct(v3).normalize();
-            n3 = v3.crossProduct(v1).normalize();
-        } catch (IllegalArgumentException e) {
-            return null; // One or more cross products resulted in a zero vector
-        }
+    /**
+     * Computes the distance along a ray to its intersection with the triangle, without allocating.
+     *
+     * @param px x coordinate of the head of the ray
+     * @param py y coordinate of the head of the ray
+     * @param pz z coordinate of the head of the ray
+     * @param vx x component of the normalized direction of the ray
+     * @param vy y component of the direction of the ray
+     * @param vz z component of the direction of the ray
+     * @return the distance of the intersection from the head of the ray, NaN if there is none
+     */
+    private double intersect(double px, double py, double pz, double vx, double vy, double vz) {
+        Point a = vertices.get(0), b = vertices.get(1), c = vertices.get(2);
+        Vector n = plane.getNormal();
+        return intersect(px, py, pz, vx, vy, vz, a.getX(), a.getY(), a.getZ(), b.getX(), b.getY(), b.getZ(),
+                c.getX(), c.getY(), c.getZ(), n.getX(), n.getY(), n.getZ());
+    }
 
-        double sign1 = alignZero(v.dotProduct(n1));
-        double sign2 = alignZero(v.dotProduct(n2));
-        double sign3 = alignZero(v.dotProduct(n3));
+    /**
+     * Computes the distance along a ray to its intersection with a triangle, without allocating.
+     * The intersection with the plane of the triangle is found first, and it is inside the triangle
+     * if the ray direction is on the same side of the three planes through the ray head and each edge.
+     *
+     * @param px x coordinate of the head of the ray
+     * @param py y coordinate of the head of the ray
+     * @param pz z coordinate of the head of the ray
+     * @param vx x component of the normalized direction of the ray
+     * @param vy y component of the direction of the ray
+     * @param vz z component of the direction of the ray
+     * @param ax x coordinate of the first vertex, the reference point of the plane of the triangle
+     * @param ay y coordinate of the first vertex
+     * @param az z coordinate of the first vertex
+     * @param bx x coordinate of the second vertex
+     * @param by y coordinate of the second vertex
+     * @param bz z coordinate of the second vertex
+     * @param cx x coordinate of the third vertex
+     * @param cy y coordinate of the third vertex
+     * @param cz z coordinate of the third vertex
+     * @param nx x component of the unit normal of the plane of the triangle
+     * @param ny y component of the normal
+     * @param nz z component of the normal
+     * @return the distance of the intersection from the head of the ray, NaN if there is none
+     */
+    static double intersect(double px, double py, double pz, double vx, double vy, double vz,
+                            double ax, double ay, double az, double bx, double by, double bz,
+                            double cx, double cy, double cz, double nx, double ny, double nz) {
+        // Step 1: Find intersection with the plane of the triangle
+        double t = Plane.intersect(px, py, pz, vx, vy, vz, ax, ay, az, nx, ny, nz);
+        if (Double.isNaN(t)) return t;
+
+        // Step 2: Check if the intersection point is inside the triangle
+        double x1 = ax - px, y1 = ay - py, z1 = az - pz;
+        double x2 = bx - px, y2 = by - py, z2 = bz - pz;
+        double x3 = cx - px, y3 = cy - py, z3 = cz - pz;
+        double sign1 = sideSign(x1, y1, z1, x2, y2, z2, vx, vy, vz);
+        double sign2 = sideSign(x2, y2, z2, x3, y3, z3, vx, vy, vz);
+        double sign3 = sideSign(x3, y3, z3, x1, y1, z1, vx, vy, vz);
 
         // If all have the same sign, the point is inside the triangle
-        if (compareSign(sign1, sign2) && compareSign(sign1, sign3)) {
-            return List.of(new GeoPoint(this, p));
-        }
+        return compareSign(sign1, sign2) && compareSign(sign1, sign3) ? t : Double.NaN;
+    }
 
-        return null; // The intersection point is outside the triangle
+    /**
+     * Computes the sign of a ray direction against the plane through the ray head and an edge:
+     * the dot product of the direction with the normalized cross product of the vectors from the head
+     * to the ends of the edge.
+     *
+     * @param x1 x component of the vector to the first end of the edge
+     * @param y1 y component of the vector to the first end
+     * @param z1 z component of the vector to the first end
+     * @param x2 x component of the vector to the second end of the edge
+     * @param y2 y component of the vector to the second end
+     * @param z2 z component of the vector to the second end
+     * @param vx x component of the ray direction
+     * @param vy y component of the ray direction
+     * @param vz z component of the ray direction
+     * @return the sign, NaN if the cross product vanishes
+     */
+    private static double sideSign(double x1, double y1, double z1, double x2, double y2, double z2,
+                                   double vx, double vy, double vz) {
+        double crossX = y1 * z2 - z1 * y2;
+        double crossY = z1 * x2 - x1 * z2;
+        double crossZ = x1 * y2 - y1 * x2;
+        if (isZero(crossX) && isZero(crossY) && isZero(crossZ)) return Double.NaN;
+        double lengthSquared = crossX * crossX + crossY * crossY + crossZ * crossZ;
+        if (!isZero(lengthSquared - 1)) {
+            double scale = 1 / Math.sqrt(lengthSquared);
+            crossX *= scale;
+            crossY *= scale;
+            crossZ *= scale;
+        }
+        return alignZero(vx * crossX + vy * crossY + vz * crossZ);
     }
 }
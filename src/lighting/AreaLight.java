@@ -0,0 +1,92 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+
+/**
+ * Abstract class representing a light source with an area, casting soft shadows.
+ * The light is emitted and attenuated as from a point light at the center of the area,
+ * while the visibility of the light at a point is estimated by shadow rays to sample points
+ * of the area: the ray tracer first samples the corners of the area's parameter square and
+ * its center, and uses the full sample budget only if these disagree (in the penumbra).
+ */
+public abstract class AreaLight extends PointLight {
+    /**
+     * Parameters of the first samples of the area - the corners of the parameter square and its center
+     */
+    private static final double[][] BOUNDARY_SAMPLES = {{0, 0}, {1, 0}, {0, 1}, {1, 1}, {0.5, 0.5}};
+
+    /**
+     * Number of stratified samples along a side of the parameter square in the penumbra
+     */
+    private int sampleGrid = 8;
+
+    /**
+     * Constructor for AreaLight.
+     *
+     * @param intensity the intensity of the light
+     * @param center    the center of the area
+     */
+    protected AreaLight(Color intensity, Point center) {
+        super(intensity, center);
+    }
+
+    /**
+     * Sets the budget of shadow samples in the penumbra, rounded up to a square grid.
+     *
+     * @param samples the number of samples
+     * @return the light itself for chaining
+     * @throws IllegalArgumentException if the number of samples is not positive
+     */
+    public AreaLight setSamples(int samples) {
+        if (samples <= 0) throw new IllegalArgumentException("Number of samples must be positive");
+        sampleGrid = (int) Math.ceil(Math.sqrt(samples));
+        return this;
+    }
+
+    /**
+     * Returns the number of stratified samples along a side of the parameter square.
+     *
+     * @return the side of the sample grid
+     */
+    public int getSampleGrid() {
+        return sampleGrid;
+    }
+
+    /**
+     * Returns the parameters of the first samples, taken before deciding whether a point is in the penumbra.
+     *
+     * @return pairs of (u, v) parameters in the unit square
+     */
+    public double[][] getBoundarySamples() {
+        return BOUNDARY_SAMPLES;
+    }
+
+    /**
+     * Maps parameters in the unit square to a point of the area. The boundary of the square
+     * is mapped to the boundary of the area and its center to the center of the area.
+     *
+     * @param u the first parameter, in [0, 1]
+     * @param v the second parameter, in [0, 1]
+     * @return the point of the area
+     */
+    public abstract Point getSample(double u, double v);
+
+    @Override
+    public AreaLight setKC(double kC) {
+        super.setKC(kC);
+        return this;
+    }
+
+    @Override
+    public AreaLight setKL(double kL) {
+        super.setKL(kL);
+        return this;
+    }
+
+    @Override
+    public AreaLight setKQ(double kQ) {
+        super.setKQ(kQ);
+        return this;
+    }
+}
@@ -21,6 +21,15 @@ public class DirectionalLight extends Light implements LightSource {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Gets the direction of the light.
+     *
+     * @return the normalized direction of the light
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     @Override
     public Color getIntensity(Point p) {
         return intensity;
@@ -31,6 +40,14 @@ public class DirectionalLight extends Light implements LightSource {
         return direction;
     }
 
+    @Override
+    public double illuminate(Point p, double[] l) {
+        l[0] = direction.getX();
+        l[1] = direction.getY();
+        l[2] = direction.getZ();
+        return 1;
+    }
+
     @Override
     public double getDistance(Point point) {
         return Double.POSITIVE_INFINITY;
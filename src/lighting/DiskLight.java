@@ -0,0 +1,105 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Class representing a light source shaped as a disk.
+ */
+public class DiskLight extends AreaLight {
+    private final double radius;
+    /**
+     * Orthonormal axes of the disk's plane
+     */
+    private final Vector u, v;
+
+    /**
+     * Constructor for DiskLight.
+     *
+     * @param intensity the intensity of the light
+     * @param center    the center of the disk
+     * @param normal    the normal of the disk's plane
+     * @param radius    the radius of the disk
+     * @throws IllegalArgumentException if the radius is not positive
+     */
+    public DiskLight(Color intensity, Point center, Vector normal, double radius) {
+        super(intensity, center);
+        if (radius <= 0) throw new IllegalArgumentException("Radius must be positive");
+        this.radius = radius;
+        Vector n = normal.normalize();
+        u = n.crossProduct(Math.abs(n.getX()) < 0.9 ? new Vector(1, 0, 0) : new Vector(0, 1, 0)).normalize();
+        v = n.crossProduct(u);
+    }
+
+    /**
+     * Gets the normal of the disk's plane.
+     *
+     * @return the normalized normal
+     */
+    public Vector getNormal() {
+        return u.crossProduct(v);
+    }
+
+    /**
+     * Gets the radius of the disk.
+     *
+     * @return the radius
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    @Override
+    public DiskLight setSamples(int samples) {
+        super.setSamples(samples);
+        return this;
+    }
+
+    @Override
+    public DiskLight setKC(double kC) {
+        super.setKC(kC);
+        return this;
+    }
+
+    @Override
+    public DiskLight setKL(double kL) {
+        super.setKL(kL);
+        return this;
+    }
+
+    @Override
+    public DiskLight setKQ(double kQ) {
+        super.setKQ(kQ);
+        return this;
+    }
+
+    /**
+     * Maps the unit square to the disk with the concentric mapping, which keeps the strata
+     * of a stratified sampling compact and maps the boundary of the square to the rim of the disk.
+     *
+     * @param s the first parameter, in [0, 1]
+     * @param t the second parameter, in [0, 1]
+     * @return the point of the disk
+     */
+    @Override
+    public Point getSample(double s, double t) {
+        double a = 2 * s - 1;
+        double b = 2 * t - 1;
+        if (a == 0 && b == 0) return position;
+        double r, phi;
+        if (Math.abs(a) > Math.abs(b)) {
+            r = a;
+            phi = Math.PI / 4 * (b / a);
+        } else {
+            r = b;
+            phi = Math.PI / 2 - Math.PI / 4 * (a / b);
+        }
+        double x = radius * r * Math.cos(phi);
+        double y = radius * r * Math.sin(phi);
+        Point sample = position;
+        if (x != 0) sample = sample.add(u.scale(x));
+        if (y != 0) sample = sample.add(v.scale(y));
+        return sample;
+    }
+}
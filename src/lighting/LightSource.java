@@ -17,6 +17,27 @@ public interface LightSource {
      */
     public Color getIntensity(Point p);
 
+    /**
+     * Gets the intensity of the light source, before its attenuation with the distance and the direction.
+     *
+     * @return the intensity of the light source
+     */
+    public Color getIntensity();
+
+    /**
+     * Computes the direction from the light source to a point, and the fraction of the intensity of the light
+     * reaching the point, without allocating - the form of {@link #getL(Point)} and {@link #getIntensity(Point)}
+     * for the shading loop of the ray tracer. The intensity at the point is {@link #getIntensity()} scaled
+     * by the returned fraction.
+     *
+     * @param p the point to which the direction is calculated
+     * @param l array receiving the components of the normalized direction from the light source to the point
+     * @return the fraction of the intensity of the light reaching the point
+     * @throws IllegalArgumentException if the point is at the position of the light, where the direction
+     *                                  is not defined
+     */
+    public double illuminate(Point p, double[] l);
+
     /**
      * Gets the direction vector from the light source to the given point.
      *
@@ -32,6 +53,15 @@ public interface LightSource {
      * @return The distance from the light source to the point.
      */
     public double getDistance(Point p);
-}
-
 
+    /**
+     * Gets the distance from the light source beyond which its intensity is below a threshold
+     * in all the color components.
+     *
+     * @param minIntensity the threshold intensity
+     * @return the radius of influence of the light, infinite if its intensity does not fall off with distance
+     */
+    public default double getRadius(double minIntensity) {
+        return Double.POSITIVE_INFINITY;
+    }
+}
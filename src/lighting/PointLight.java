@@ -4,11 +4,13 @@ import primitives.Color;
 import primitives.Point;
 import primitives.Vector;
 
+import static primitives.Util.isZero;
+
 /**
  * Class representing a point light source.
  */
 public class PointLight extends Light implements LightSource {
-    private final Point position;
+    protected final Point position;
     private double kC = 1;
     private double kL = 0;
     private double kQ = 0;
@@ -39,6 +41,42 @@ public class PointLight extends Light implements LightSource {
         return this;
     }
 
+    /**
+     * Gets the position of the light.
+     *
+     * @return the position of the light
+     */
+    public Point getPosition() {
+        return position;
+    }
+
+    /**
+     * Gets the constant attenuation factor of the light.
+     *
+     * @return the constant attenuation factor
+     */
+    public double getKC() {
+        return kC;
+    }
+
+    /**
+     * Gets the linear attenuation factor of the light.
+     *
+     * @return the linear attenuation factor
+     */
+    public double getKL() {
+        return kL;
+    }
+
+    /**
+     * Gets the quadratic attenuation factor of the light.
+     *
+     * @return the quadratic attenuation factor
+     */
+    public double getKQ() {
+        return kQ;
+    }
+
     @Override
     public Color getIntensity(Point p) {
         double distance = position.distance(p);
@@ -50,8 +88,35 @@ public class PointLight extends Light implements LightSource {
         return p.subtract(position).normalize();
     }
 
+    @Override
+    public double illuminate(Point p, double[] l) {
+        double x = p.getX() - position.getX(), y = p.getY() - position.getY(), z = p.getZ() - position.getZ();
+        double lengthSquared = x * x + y * y + z * z;
+        if (isZero(lengthSquared)) throw new IllegalArgumentException("Point at the position of the light");
+        double distance = Math.sqrt(lengthSquared);
+        double scale = 1 / distance;
+        l[0] = x * scale;
+        l[1] = y * scale;
+        l[2] = z * scale;
+        return 1 / (kC + kL * distance + kQ * distance * distance);
+    }
+
     @Override
     public double getDistance(Point point) {
         return position.distance(point);
     }
+
+    /**
+     * {@inheritDoc}
+     * The radius solves {@code kC + kL*d + kQ*d^2 = I/minIntensity} for the strongest color component I.
+     */
+    @Override
+    public double getRadius(double minIntensity) {
+        double attenuation = Math.max(intensity.getRed(), Math.max(intensity.getGreen(), intensity.getBlue()))
+                / minIntensity;
+        if (kC >= attenuation) return 0;
+        if (kQ > 0) return (-kL + Math.sqrt(kL * kL + 4 * kQ * (attenuation - kC))) / (2 * kQ);
+        if (kL > 0) return (attenuation - kC) / kL;
+        return Double.POSITIVE_INFINITY;
+    }
 }
@@ -0,0 +1,79 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Class representing a light source shaped as a rectangle (or any parallelogram).
+ */
+public class RectangleLight extends AreaLight {
+    private final Vector edge1;
+    private final Vector edge2;
+
+    /**
+     * Constructor for RectangleLight.
+     *
+     * @param intensity the intensity of the light
+     * @param center    the center of the rectangle
+     * @param edge1     the vector along the first pair of edges, of the edges' length
+     * @param edge2     the vector along the second pair of edges, of the edges' length
+     * @throws IllegalArgumentException if the edges are parallel
+     */
+    public RectangleLight(Color intensity, Point center, Vector edge1, Vector edge2) {
+        super(intensity, center);
+        edge1.crossProduct(edge2); // throws for parallel edges
+        this.edge1 = edge1;
+        this.edge2 = edge2;
+    }
+
+    /**
+     * Gets the vector along the first pair of edges.
+     *
+     * @return the first edge vector
+     */
+    public Vector getEdge1() {
+        return edge1;
+    }
+
+    /**
+     * Gets the vector along the second pair of edges.
+     *
+     * @return the second edge vector
+     */
+    public Vector getEdge2() {
+        return edge2;
+    }
+
+    @Override
+    public RectangleLight setSamples(int samples) {
+        super.setSamples(samples);
+        return this;
+    }
+
+    @Override
+    public RectangleLight setKC(double kC) {
+        super.setKC(kC);
+        return this;
+    }
+
+    @Override
+    public RectangleLight setKL(double kL) {
+        super.setKL(kL);
+        return this;
+    }
+
+    @Override
+    public RectangleLight setKQ(double kQ) {
+        super.setKQ(kQ);
+        return this;
+    }
+
+    @Override
+    public Point getSample(double u, double v) {
+        Point sample = position;
+        if (u != 0.5) sample = sample.add(edge1.scale(u - 0.5));
+        if (v != 0.5) sample = sample.add(edge2.scale(v - 0.5));
+        return sample;
+    }
+}
@@ -22,6 +22,15 @@ public class SpotLight extends PointLight {
         this.direction = direction.normalize();
     }
 
+    /**
+     * Gets the direction of the light's beam.
+     *
+     * @return the normalized direction of the beam
+     */
+    public Vector getDirection() {
+        return direction;
+    }
+
     @Override
     public SpotLight setKC(double kC) {
         super.setKC(kC);
@@ -46,4 +55,10 @@ public class SpotLight extends PointLight {
         // Return the modified intensity for the SpotLight
         return super.getIntensity(p).scale(Math.max(0, direction.dotProduct(getL(p))));
     }
+
+    @Override
+    public double illuminate(Point p, double[] l) {
+        double fraction = super.illuminate(p, l);
+        return fraction * Math.max(0, direction.getX() * l[0] + direction.getY() * l[1] + direction.getZ() * l[2]);
+    }
 }
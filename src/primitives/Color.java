@@ -76,6 +76,33 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Red component getter
+     *
+     * @return the red component of the color (not clamped)
+     */
+    public double getRed() {
+        return rgb.d1;
+    }
+
+    /**
+     * Green component getter
+     *
+     * @return the green component of the color (not clamped)
+     */
+    public double getGreen() {
+        return rgb.d2;
+    }
+
+    /**
+     * Blue component getter
+     *
+     * @return the blue component of the color (not clamped)
+     */
+    public double getBlue() {
+        return rgb.d3;
+    }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      *
@@ -0,0 +1,65 @@
+package primitives;
+
+/**
+ * Mutable color accumulator for the hot path of the ray tracer.
+ * Unlike {@link Color}, whose operations create a new object each, the accumulator sums color
+ * contributions in place, so a shading calculation allocates a single {@link Color} for its result.
+ * An accumulator is meant to be reused by a single thread; it is not thread-safe.
+ */
+public final class ColorAccumulator {
+    /**
+     * The accumulated RGB components
+     */
+    private double r, g, b;
+
+    /**
+     * Sets the accumulated color.
+     *
+     * @param color the initial color
+     * @return the accumulator itself for chaining
+     */
+    public ColorAccumulator set(Color color) {
+        r = color.getRed();
+        g = color.getGreen();
+        b = color.getBlue();
+        return this;
+    }
+
+    /**
+     * Adds a color.
+     *
+     * @param color the color to add
+     * @return the accumulator itself for chaining
+     */
+    public ColorAccumulator add(Color color) {
+        r += color.getRed();
+        g += color.getGreen();
+        b += color.getBlue();
+        return this;
+    }
+
+    /**
+     * Adds a color scaled by two triads and a scalar: color * k1 * k2 * s (by component).
+     *
+     * @param color the color
+     * @param k1    first scale factor per rgb
+     * @param k2    second scale factor per rgb
+     * @param s     scalar scale factor
+     * @return the accumulator itself for chaining
+     */
+    public ColorAccumulator addScaled(Color color, Double3 k1, Double3 k2, double s) {
+        r += color.getRed() * k1.d1 * k2.d1 * s;
+        g += color.getGreen() * k1.d2 * k2.d2 * s;
+        b += color.getBlue() * k1.d3 * k2.d3 * s;
+        return this;
+    }
+
+    /**
+     * Creates an immutable color of the accumulated value.
+     *
+     * @return the accumulated color
+     */
+    public Color toColor() {
+        return new Color(r, g, b);
+    }
+}
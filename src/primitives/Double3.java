@@ -73,6 +73,24 @@ public class Double3 {
     @Override
     public String toString() { return "(" + d1 + "," + d2 + "," + d3 + ")"; }
 
+    /**
+     * Returns the first number of the triad
+     * @return the first number
+     */
+    public double get1() { return d1; }
+
+    /**
+     * Returns the second number of the triad
+     * @return the second number
+     */
+    public double get2() { return d2; }
+
+    /**
+     * Returns the third number of the triad
+     * @return the third number
+     */
+    public double get3() { return d3; }
+
     /**
      * Sum two floating point triads into a new triad where each couple of numbers
      * is summarized
@@ -114,6 +132,17 @@ public class Double3 {
      */
     public Double3 product(Double3 rhs) { return new Double3(d1 * rhs.d1, d2 * rhs.d2, d3 * rhs.d3); }
 
+    /**
+     * Checks whether all the numbers of the product of two triads are lower than a test number,
+     * without creating the product triad
+     * @param  rhs right hand side operand for product
+     * @param  k   the test number
+     * @return     true if all the numbers of the product are less than k, false otherwise
+     */
+    public boolean productLowerThan(Double3 rhs, double k) {
+        return d1 * rhs.d1 < k && d2 * rhs.d2 < k && d3 * rhs.d3 < k;
+    }
+
     /**
      * Checks whether all the numbers are lower than a test number
      * @param  k the test number
@@ -130,4 +159,10 @@ public class Double3 {
      *               triad, false otherwise
      */
     public boolean lowerThan(Double3 other) { return d1 < other.d1 && d2 < other.d2 && d3 < other.d3; }
+
+    /**
+     * Returns the largest of the three numbers
+     * @return the maximal number of the triad
+     */
+    public double max() { return Math.max(d1, Math.max(d2, d3)); }
 }
@@ -2,7 +2,8 @@ package primitives;
 
 /**
  * Class representing the material properties of a geometric object.
- * The properties include diffuse, specular, and shininess coefficients, as well as the transparency and reflection factors.
+ * The properties include diffuse, specular, and shininess coefficients, as well as the transparency and reflection factors,
+ * and the spread of the reflected (glossy) and transmitted (diffuse transparency) rays.
  */
 public class Material {
     public Double3 kD = Double3.ZERO; // Diffuse coefficient
@@ -10,6 +11,8 @@ public class Material {
     public Double3 kT = Double3.ZERO; // Transparency attenuation coefficient
     public Double3 kR = Double3.ZERO; // Reflection attenuation coefficient
     public int Shininess = 0; // Shininess coefficient
+    public double glossiness = 0; // Half-angle of the cone of reflected rays, in radians (0 for a sharp mirror)
+    public double diffuseness = 0; // Half-angle of the cone of transmitted rays, in radians (0 for clear glass)
 
     /**
      * Sets the diffuse coefficient.
@@ -109,4 +112,33 @@ public class Material {
         this.Shininess = Shininess;
         return this;
     }
+
+    /**
+     * Sets the glossiness - the spread of the reflected rays around the mirror direction, blurring the reflection.
+     *
+     * @param glossiness the half-angle of the cone of reflected rays, in radians
+     * @return the Material object itself for chaining
+     * @throws IllegalArgumentException if the angle is not in [0, pi/2)
+     */
+    public Material setGlossiness(double glossiness) {
+        if (glossiness < 0 || glossiness >= Math.PI / 2)
+            throw new IllegalArgumentException("Glossiness must be an angle in [0, pi/2)");
+        this.glossiness = glossiness;
+        return this;
+    }
+
+    /**
+     * Sets the diffuseness - the spread of the transmitted rays around the view direction,
+     * blurring what is seen through the material (frosted glass).
+     *
+     * @param diffuseness the half-angle of the cone of transmitted rays, in radians
+     * @return the Material object itself for chaining
+     * @throws IllegalArgumentException if the angle is not in [0, pi/2)
+     */
+    public Material setDiffuseness(double diffuseness) {
+        if (diffuseness < 0 || diffuseness >= Math.PI / 2)
+            throw new IllegalArgumentException("Diffuseness must be an angle in [0, pi/2)");
+        this.diffuseness = diffuseness;
+        return this;
+    }
 }
@@ -43,6 +43,33 @@ public class Point {
         this._xyz = new Double3(other._xyz);
     }
 
+    /**
+     * Returns the x-axis coordinate of the point.
+     *
+     * @return the x-axis coordinate.
+     */
+    public double getX() {
+        return _xyz.d1;
+    }
+
+    /**
+     * Returns the y-axis coordinate of the point.
+     *
+     * @return the y-axis coordinate.
+     */
+    public double getY() {
+        return _xyz.d2;
+    }
+
+    /**
+     * Returns the z-axis coordinate of the point.
+     *
+     * @return the z-axis coordinate.
+     */
+    public double getZ() {
+        return _xyz.d3;
+    }
+
     /**
      * Compares two points for equality.
      *
@@ -22,7 +22,15 @@ public class Ray {
      */
     private final Vector dir;
 
-    private static final double DELTA = 0.1;
+    /**
+     * The time of the ray within the shutter interval of the frame, from 0 (open) to 1 (close).
+     */
+    private final double time;
+
+    /**
+     * The distance the head of a ray spawned at a surface is moved off the surface, along its normal.
+     */
+    public static final double DELTA = 0.1;
 
     /**
      * Constructs a new ray with the given starting point and direction vector.
@@ -32,8 +40,21 @@ public class Ray {
      * @param dir the direction vector of the ray.
      */
     public Ray(Point p0, Vector dir) {
+        this(p0, dir, 0d);
+    }
+
+    /**
+     * Constructs a new ray at a time within the shutter interval.
+     * The direction vector is normalized.
+     *
+     * @param p0   the starting point of the ray.
+     * @param dir  the direction vector of the ray.
+     * @param time the time of the ray, from 0 (shutter open) to 1 (shutter close).
+     */
+    public Ray(Point p0, Vector dir, double time) {
         this.p0 = p0;
         this.dir = dir.normalize();
+        this.time = time;
     }
 
     /**
@@ -44,6 +65,19 @@ public class Ray {
      * @param normal    The normal vector for direction adjustment.
      */
     public Ray(Point point, Vector direction, Vector normal) {
+        this(point, direction, normal, 0);
+    }
+
+    /**
+     * Constructs a new ray at a time within the shutter interval, with the starting point
+     * adjusted along the given normal.
+     *
+     * @param point     The original starting point of the ray.
+     * @param direction The direction vector of the ray.
+     * @param normal    The normal vector for direction adjustment.
+     * @param time      The time of the ray, from 0 (shutter open) to 1 (shutter close).
+     */
+    public Ray(Point point, Vector direction, Vector normal, double time) {
         double vn = normal.dotProduct(direction);
         if (!isZero(vn)) {
             // Adjust the point along the normal using the DELTA constant
@@ -52,6 +86,7 @@ public class Ray {
 
         this.p0 = point;
         this.dir = direction.normalize();
+        this.time = time;
     }
 
 
@@ -73,6 +108,15 @@ public class Ray {
         return dir;
     }
 
+    /**
+     * Returns the time of the ray within the shutter interval.
+     *
+     * @return the time of the ray, from 0 (shutter open) to 1 (shutter close).
+     */
+    public double getTime() {
+        return time;
+    }
+
     /**
      * Computes a point on the ray at a given distance t from the starting point.
      *
@@ -125,7 +169,7 @@ public class Ray {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        return (o instanceof Ray ray) && ray.p0.equals(p0) && ray.dir.equals(dir);
+        return (o instanceof Ray ray) && ray.p0.equals(p0) && ray.dir.equals(dir) && ray.time == time;
     }
 
     /**
@@ -125,9 +125,11 @@ public class Vector extends Point {
 
     /**
      * Normalizes the vector.
-     * @return a new vector that is the normalized form of this vector.
+     * A vector which is already of unit length is returned as is.
+     * @return a vector that is the normalized form of this vector.
      */
     public Vector normalize() {
-        return scale(1 / length());
+        double lengthSquared = lengthSquared();
+        return isZero(lengthSquared - 1) ? this : scale(1 / Math.sqrt(lengthSquared));
     }
 }
@@ -1,11 +1,19 @@
 package renderer;
 
 import primitives.Color;
+import primitives.ColorAccumulator;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
 
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
@@ -14,6 +22,55 @@ import static primitives.Util.isZero;
  * Represents a camera in a 3D space.
  */
 public class Camera implements Cloneable {
+    /**
+     * Shape of the camera's aperture - the shape of the out-of-focus highlights (bokeh)
+     */
+    public enum ApertureShape {
+        /**
+         * A round aperture, sampled with the concentric mapping of the square to the disk
+         */
+        CIRCLE {
+            @Override
+            void sample(double u, double v, double[] offset) {
+                double a = 2 * u - 1, b = 2 * v - 1;
+                if (a == 0 && b == 0) {
+                    offset[0] = offset[1] = 0;
+                    return;
+                }
+                double r, phi;
+                if (Math.abs(a) > Math.abs(b)) {
+                    r = a;
+                    phi = Math.PI / 4 * (b / a);
+                } else {
+                    r = b;
+                    phi = Math.PI / 2 - Math.PI / 4 * (a / b);
+                }
+                offset[0] = r * Math.cos(phi);
+                offset[1] = r * Math.sin(phi);
+            }
+        },
+        /**
+         * A square aperture, aligned with the camera's right and up directions
+         */
+        SQUARE {
+            @Override
+            void sample(double u, double v, double[] offset) {
+                offset[0] = 2 * u - 1;
+                offset[1] = 2 * v - 1;
+            }
+        };
+
+        /**
+         * Maps parameters in the unit square to a point of the aperture of radius 1,
+         * so that stratified parameters give stratified points.
+         *
+         * @param u      the first parameter, in [0, 1]
+         * @param v      the second parameter, in [0, 1]
+         * @param offset the array receiving the offsets of the point along the right and up directions
+         */
+        abstract void sample(double u, double v, double[] offset);
+    }
+
     private Point p0;
     private Point VPCenter;
     private Vector vUp;
@@ -26,6 +83,19 @@ public class Camera implements Cloneable {
     private ImageWriter imageWriter;
     private RayTracerBase rayTracer;
 
+    private int threadsCount = 1;
+    private int tileSize = 32;
+
+    private Path checkpointFile = null;
+    private long sceneHash = 0;
+    private long checkpointInterval = 0;
+
+    private double apertureRadius = 0;
+    private ApertureShape apertureShape = ApertureShape.CIRCLE;
+    private double focalDistance = 0;
+    private int apertureSamples = 16;
+    private int motionSamples = 0;
+
     // Getters
     public Vector getvUp() {
         return vUp;
@@ -93,28 +163,378 @@ public class Camera implements Cloneable {
      * @return the Camera object itself for chaining
      */
     public Camera renderImage() {
+        renderAsync(0).await();
+        return this;
+    }
+
+    /**
+     * Starts rendering the image in the background. The frame is split into tiles which are
+     * taken by the render threads one at a time; the threads stop taking tiles once the render
+     * is cancelled through the returned handle or its time budget runs out.
+     *
+     * @param timeBudgetMillis the wall-clock budget of the render in milliseconds, 0 for no limit
+     * @return the handle of the running render
+     * @throws IllegalArgumentException if the time budget is negative
+     */
+    public RenderHandle renderAsync(long timeBudgetMillis) {
+        return renderAsync(timeBudgetMillis, true);
+    }
+
+    /**
+     * Starts rendering the image in the background, as {@link #renderAsync(long)} does.
+     *
+     * @param timeBudgetMillis the wall-clock budget of the render in milliseconds, 0 for no limit
+     * @param prepare          whether to prepare the ray tracer for the scene first, false if it was
+     *                         already prepared (e.g. for a frame of an animation)
+     * @return the handle of the running render
+     * @throws IllegalArgumentException if the time budget is negative
+     */
+    RenderHandle renderAsync(long timeBudgetMillis, boolean prepare) {
         int nx = imageWriter.getNx();
         int ny = imageWriter.getNy();
-
-        for (int i = 0; i < ny; i++) {
-            for (int j = 0; j < nx; j++) {
-                castRay(nx, ny, j, i);
+        List<Tile> tiles = tiles();
+        RenderHandle handle = new RenderHandle(imageWriter, tiles, timeBudgetMillis);
+        AtomicIntegerArray bands = bands();
+
+        RenderCheckpoint checkpoint = checkpointFile == null ? null
+                : new RenderCheckpoint(checkpointFile, checkpointHash(), nx, ny, tileSize, checkpointInterval);
+        if (checkpoint != null) {
+            for (Map.Entry<Tile, float[]> stored : checkpoint.load(tiles).entrySet()) {
+                writeTile(stored.getKey(), stored.getValue());
+                handle.markCompleted(stored.getKey());
+                tileFinished(stored.getKey(), bands);
             }
         }
-        return this;
+
+        if (prepare) rayTracer.prepare();
+        PrimaryRayGenerator generator = generator(nx, ny);
+        handle.start(threadsCount, () -> {
+            PrimaryRayGenerator.Buffer buffer = new PrimaryRayGenerator.Buffer();
+            return tile -> {
+                renderTile(tile, generator, buffer, checkpoint);
+                tileFinished(tile, bands);
+            };
+        }, () -> {
+            if (checkpoint != null) checkpoint.flush();
+        });
+        return handle;
+    }
+
+    /**
+     * Renders all the pixels of a single tile.
+     *
+     * @param tile       the tile to render
+     * @param generator  the primary ray generator of the frame
+     * @param buffer     the ray buffer of the rendering thread
+     * @param checkpoint the checkpoint recording the finished tiles, or null
+     */
+    private void renderTile(Tile tile, PrimaryRayGenerator generator, PrimaryRayGenerator.Buffer buffer,
+                            RenderCheckpoint checkpoint) {
+        Color[] colors = traceTile(tile, generator, buffer);
+        imageWriter.writePixels(tile.x(), tile.y(), tile.width(), tile.height(), colors);
+        if (checkpoint != null) checkpoint.record(tile, toRgb(colors));
+    }
+
+    /**
+     * Splits the frame of the image writer into the tiles of the render.
+     *
+     * @return the tiles of the frame in row-major order
+     */
+    List<Tile> tiles() {
+        return Tile.split(imageWriter.getNx(), imageWriter.getNy(), tileSize);
     }
 
     /**
-     * Casts a ray through the center of the specified pixel, computes the color of the ray,
-     * and writes the color to the pixel.
+     * Creates the counters of the unfinished tiles in each band of tile rows,
+     * used to report completed rows to the image writer.
+     *
+     * @return the counters, one per band, initialized to the number of tiles in a band
+     */
+    private AtomicIntegerArray bands() {
+        int tilesPerBand = (imageWriter.getNx() + tileSize - 1) / tileSize;
+        AtomicIntegerArray bands = new AtomicIntegerArray((imageWriter.getNy() + tileSize - 1) / tileSize);
+        for (int band = 0; band < bands.length(); ++band) bands.set(band, tilesPerBand);
+        return bands;
+    }
+
+    /**
+     * Creates the primary ray generator of a frame.
+     *
+     * @param nx number of pixels in the x direction
+     * @param ny number of pixels in the y direction
+     * @return the primary ray generator
+     */
+    PrimaryRayGenerator generator(int nx, int ny) {
+        return new PrimaryRayGenerator(p0, VPCenter, vRight, vUp, width, height, nx, ny);
+    }
+
+    /**
+     * Returns the image writer of the camera.
+     *
+     * @return the image writer
+     */
+    ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
+    /**
+     * Returns the ray tracer of the camera.
+     *
+     * @return the ray tracer
+     */
+    RayTracerBase getRayTracer() {
+        return rayTracer;
+    }
+
+    /**
+     * The geometry and the sampling settings of a camera, to build an equivalent camera elsewhere
+     * (e.g. on a render worker, which has no image writer)
+     *
+     * @param location        the camera location, as x, y, z
+     * @param to              the forward direction, as x, y, z
+     * @param up              the up direction, as x, y, z
+     * @param width           the width of the view plane
+     * @param height          the height of the view plane
+     * @param distance        the distance of the view plane
+     * @param apertureRadius  the radius of the aperture
+     * @param apertureShape   the name of the shape of the aperture
+     * @param focalDistance   the focal distance
+     * @param apertureSamples the budget of aperture samples of a pixel
+     * @param motionSamples   the budget of motion blur samples of a pixel
+     */
+    record Settings(double[] location, double[] to, double[] up, double width, double height, double distance,
+                    double apertureRadius, String apertureShape, double focalDistance, int apertureSamples,
+                    int motionSamples) implements Serializable {
+        /**
+         * Builds a camera with these settings, without an image writer.
+         *
+         * @param rayTracer the ray tracer of the camera
+         * @return the camera
+         * @throws IllegalArgumentException if a setting is invalid
+         */
+        Camera camera(RayTracerBase rayTracer) {
+            if (location.length != 3 || to.length != 3 || up.length != 3)
+                throw new IllegalArgumentException("Camera vectors must have 3 components");
+            Camera camera = new Camera();
+            camera.p0 = new Point(location[0], location[1], location[2]);
+            camera.vTo = new Vector(to[0], to[1], to[2]);
+            camera.vUp = new Vector(up[0], up[1], up[2]);
+            camera.vRight = camera.vTo.crossProduct(camera.vUp).normalize();
+            camera.width = width;
+            camera.height = height;
+            camera.distance = distance;
+            camera.VPCenter = camera.p0.add(camera.vTo.scale(distance));
+            camera.apertureRadius = apertureRadius;
+            camera.apertureShape = ApertureShape.valueOf(apertureShape);
+            camera.focalDistance = focalDistance;
+            camera.apertureSamples = apertureSamples;
+            camera.motionSamples = motionSamples;
+            camera.rayTracer = rayTracer;
+            return camera;
+        }
+    }
+
+    /**
+     * Returns the settings of the camera.
+     *
+     * @return the settings
+     */
+    Settings settings() {
+        return new Settings(new double[]{p0.getX(), p0.getY(), p0.getZ()},
+                new double[]{vTo.getX(), vTo.getY(), vTo.getZ()}, new double[]{vUp.getX(), vUp.getY(), vUp.getZ()},
+                width, height, distance, apertureRadius, apertureShape.name(), focalDistance, apertureSamples,
+                motionSamples);
+    }
+
+    /**
+     * Prepares the ray tracer for tracing the tiles of a frame by {@link #traceTile}
+     * (e.g. on a render worker, which has no image writer).
      *
      * @param nx number of pixels in the x direction
      * @param ny number of pixels in the y direction
-     * @param j  the x coordinate of the pixel
-     * @param i  the y coordinate of the pixel
+     * @return the primary ray generator of the frame
+     */
+    PrimaryRayGenerator prepare(int nx, int ny) {
+        rayTracer.prepare();
+        return generator(nx, ny);
+    }
+
+    /**
+     * Traces the pixels of a single tile, through the aperture and over the shutter interval if needed.
+     * The ray tracer must be prepared.
+     *
+     * @param tile      the tile to trace
+     * @param generator the primary ray generator of the frame
+     * @param buffer    the ray buffer of the calling thread
+     * @return the colors of the tile's pixels, row by row
+     */
+    Color[] traceTile(Tile tile, PrimaryRayGenerator generator, PrimaryRayGenerator.Buffer buffer) {
+        Color[] colors = new Color[tile.size()];
+        if (apertureRadius == 0 && motionSamples == 0)
+            rayTracer.traceRays(generator.generateTile(tile, buffer), tile.size(), colors);
+        else traceSamples(tile, generator, buffer, colors);
+        return colors;
+    }
+
+    /**
+     * Starts receiving the tiles of the image from elsewhere (e.g. from render workers):
+     * the returned action writes a tile into the image and reports the completed rows to the image writer.
+     *
+     * @return the action receiving a tile with the linear RGB values of its pixels, row by row
+     */
+    BiConsumer<Tile, float[]> tileReceiver() {
+        AtomicIntegerArray bands = bands();
+        return (tile, rgb) -> {
+            writeTile(tile, rgb);
+            tileFinished(tile, bands);
+        };
+    }
+
+    /**
+     * Converts the colors of pixels to linear RGB values in single precision.
+     *
+     * @param colors the colors of the pixels
+     * @return the RGB values of the pixels
+     */
+    static float[] toRgb(Color[] colors) {
+        float[] rgb = new float[colors.length * 3];
+        for (int k = 0; k < colors.length; k++) {
+            rgb[3 * k] = (float) colors[k].getRed();
+            rgb[3 * k + 1] = (float) colors[k].getGreen();
+            rgb[3 * k + 2] = (float) colors[k].getBlue();
+        }
+        return rgb;
+    }
+
+    /**
+     * Traces the pixels of a tile with several sample rays each, through the aperture of the camera
+     * and over the shutter interval. The rays of a pixel start at points of the aperture and converge
+     * at the pixel's point on the focal plane, so only the points at the focal distance are sharp,
+     * and with motion blur each ray carries its own time. Four rays, one in each quadrant of the
+     * aperture (or of the shutter interval for a pinhole), are traced first for all the pixels of
+     * the tile; a pixel whose four colors agree (in focus and still, or blurred over a uniform region)
+     * is their average, and only the other pixels are traced again with a jittered grid of rays
+     * covering the whole aperture and shutter interval.
+     *
+     * @param tile      the tile
+     * @param generator the primary ray generator of the frame
+     * @param buffer    the ray buffer of the calling thread
+     * @param colors    the array receiving the colors of the tile's pixels, row by row
+     */
+    private void traceSamples(Tile tile, PrimaryRayGenerator generator, PrimaryRayGenerator.Buffer buffer,
+                              Color[] colors) {
+        int size = tile.size();
+        // The points of the pixels on the focal plane
+        double[] focus = new double[size * 3];
+        double[] dirs = buffer.directions(tile.width());
+        for (int r = 0, k = 0; r < tile.height(); ++r) {
+            generator.directions(tile.y() + r, tile.x(), tile.width(), dirs);
+            for (int d = 0; d < tile.width() * 3; d += 3, k += 3) {
+                double t = focalDistance
+                        / (dirs[d] * vTo.getX() + dirs[d + 1] * vTo.getY() + dirs[d + 2] * vTo.getZ());
+                focus[k] = p0.getX() + dirs[d] * t;
+                focus[k + 1] = p0.getY() + dirs[d + 1] * t;
+                focus[k + 2] = p0.getZ() + dirs[d + 2] * t;
+            }
+        }
+
+        double[] offset = new double[2];
+        Ray[] rays = new Ray[4 * size];
+        for (int k = 0; k < size; ++k)
+            for (int cell = 0; cell < 4; ++cell) rays[4 * k + cell] = sampleRay(focus, k, cell, 2, offset);
+        Color[] first = new Color[4 * size];
+        rayTracer.traceRays(rays, rays.length, first);
+
+        int side = (int) Math.ceil(Math.sqrt(apertureRadius > 0 ? apertureSamples : motionSamples));
+        int[] blurred = new int[size];
+        int count = 0;
+        for (int k = 0; k < size; ++k) {
+            ColorAccumulator sum = new ColorAccumulator();
+            for (int cell = 0; cell < 4; ++cell) sum.add(first[4 * k + cell]);
+            colors[k] = sum.toColor().reduce(4);
+            if (side > 2 && !Sampling.agree(first, 4 * k, 4)) blurred[count++] = k;
+        }
+        if (count == 0) return;
+
+        int cells = side * side;
+        rays = new Ray[count * cells];
+        for (int b = 0; b < count; ++b)
+            for (int cell = 0; cell < cells; ++cell)
+                rays[b * cells + cell] = sampleRay(focus, blurred[b], cell, side, offset);
+        Color[] grid = new Color[rays.length];
+        rayTracer.traceRays(rays, rays.length, grid);
+        for (int b = 0; b < count; ++b) {
+            int k = blurred[b];
+            ColorAccumulator sum = new ColorAccumulator().set(colors[k].scale(4));
+            for (int cell = 0; cell < cells; ++cell) sum.add(grid[b * cells + cell]);
+            colors[k] = sum.toColor().reduce(4 + cells);
+        }
+    }
+
+    /**
+     * Constructs a sample ray of a pixel, starting at a point of the aperture jittered in a cell of a grid
+     * over the aperture's parameters and passing through the pixel's point on the focal plane.
+     * With motion blur, the time of the ray is jittered in the cell's part of the shutter interval
+     * for a pinhole, and is uniform over the interval with an aperture (so it does not follow the lens point).
+     *
+     * @param focus  the points of the pixels on the focal plane, as x, y, z triads
+     * @param k      the index of the pixel
+     * @param cell   the index of the cell in the grid
+     * @param side   the number of cells along a side of the grid
+     * @param offset a scratch array for the offsets of the aperture point
+     * @return the ray
+     */
+    private Ray sampleRay(double[] focus, int k, int cell, int side, double[] offset) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double time = motionSamples == 0 ? 0
+                : apertureRadius > 0 ? random.nextDouble() : (cell + random.nextDouble()) / (side * side);
+        apertureShape.sample((cell / side + random.nextDouble()) / side,
+                (cell % side + random.nextDouble()) / side, offset);
+        double a = offset[0] * apertureRadius, b = offset[1] * apertureRadius;
+        double x = p0.getX() + vRight.getX() * a + vUp.getX() * b;
+        double y = p0.getY() + vRight.getY() * a + vUp.getY() * b;
+        double z = p0.getZ() + vRight.getZ() * a + vUp.getZ() * b;
+        return new Ray(new Point(x, y, z),
+                new Vector(focus[3 * k] - x, focus[3 * k + 1] - y, focus[3 * k + 2] - z), time);
+    }
+
+    /**
+     * Counts a finished tile in its band of tile rows, and reports the rows of the band
+     * to the image writer once all the tiles of the band are finished.
+     *
+     * @param tile  the finished tile
+     * @param bands the numbers of unfinished tiles in the bands
      */
-    private void castRay(int nx, int ny, int j, int i) {
-        imageWriter.writePixel(j, i, rayTracer.traceRay(constructRay(nx, ny, j, i)));
+    private void tileFinished(Tile tile, AtomicIntegerArray bands) {
+        if (bands.decrementAndGet(tile.y() / tileSize) == 0)
+            imageWriter.rowsCompleted(tile.y(), tile.y() + tile.height());
+    }
+
+    /**
+     * Writes stored linear RGB values of a tile into the image.
+     *
+     * @param tile the tile
+     * @param rgb  the RGB values of the tile's pixels, row by row
+     */
+    private void writeTile(Tile tile, float[] rgb) {
+        Color[] colors = new Color[tile.size()];
+        for (int k = 0; k < colors.length; k++) {
+            colors[k] = new Color(rgb[3 * k], rgb[3 * k + 1], rgb[3 * k + 2]);
+        }
+        imageWriter.writePixels(tile.x(), tile.y(), tile.width(), tile.height(), colors);
+    }
+
+    /**
+     * Combines the scene hash given for checkpointing with the camera's position, view plane, lens and shutter,
+     * so that a checkpoint of another view of the same scene is not resumed.
+     *
+     * @return the hash identifying the checkpointed render
+     */
+    private long checkpointHash() {
+        String view = p0 + "|" + vTo + "|" + vUp + "|" + width + "|" + height + "|" + distance
+                + "|" + apertureRadius + "|" + apertureShape + "|" + focalDistance + "|" + apertureSamples
+                + "|" + motionSamples;
+        return sceneHash * 31 + view.hashCode();
     }
 
     /**
@@ -277,6 +697,138 @@ public class Camera implements Cloneable {
         }
 
 
+        /**
+         * Sets the number of threads rendering the image.
+         *
+         * @param threadsCount the number of render threads
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the number of threads is not positive
+         */
+        public Builder setMultithreading(int threadsCount) {
+            if (threadsCount <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+            camera.threadsCount = threadsCount;
+            return this;
+        }
+
+        /**
+         * Sets the side of the square tiles the image is split into for rendering.
+         *
+         * @param tileSize the side of a tile in pixels
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the tile size is not positive
+         */
+        public Builder setTileSize(int tileSize) {
+            if (tileSize <= 0) {
+                throw new IllegalArgumentException("Tile size must be positive");
+            }
+            camera.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Enables checkpointing of the render: finished tiles are periodically appended to a checkpoint file,
+         * and a later render of the same scene from the same view resumes from the file, skipping the
+         * tiles stored in it.
+         *
+         * @param file           the checkpoint file
+         * @param sceneHash      hash identifying the rendered scene
+         * @param intervalMillis minimal time between two writes of the file in milliseconds
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the file is null or the interval is negative
+         */
+        public Builder setCheckpoint(Path file, long sceneHash, long intervalMillis) {
+            if (file == null) {
+                throw new IllegalArgumentException("Checkpoint file cannot be null");
+            }
+            if (intervalMillis < 0) {
+                throw new IllegalArgumentException("Checkpoint interval cannot be negative");
+            }
+            camera.checkpointFile = file;
+            camera.sceneHash = sceneHash;
+            camera.checkpointInterval = intervalMillis;
+            return this;
+        }
+
+
+        /**
+         * Sets the aperture of the camera's lens. A camera with an aperture renders depth of field:
+         * the points at the focal distance are sharp and the others are blurred in proportion to their
+         * distance from the focal plane and to the aperture. A zero radius is a pinhole camera.
+         *
+         * @param radius the radius of the aperture, 0 for a pinhole
+         * @param shape  the shape of the aperture
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the radius is negative or the shape is null
+         */
+        public Builder setAperture(double radius, ApertureShape shape) {
+            if (radius < 0) {
+                throw new IllegalArgumentException("Aperture radius cannot be negative");
+            }
+            if (shape == null) {
+                throw new IllegalArgumentException("Aperture shape cannot be null");
+            }
+            camera.apertureRadius = radius;
+            camera.apertureShape = shape;
+            return this;
+        }
+
+        /**
+         * Sets the distance of the focal plane from the camera, along the direction towards the view plane.
+         * By default the focal plane is the view plane.
+         *
+         * @param focalDistance the focal distance
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the focal distance is not positive
+         */
+        public Builder setFocalDistance(double focalDistance) {
+            if (alignZero(focalDistance) <= 0) {
+                throw new IllegalArgumentException("Focal distance must be positive");
+            }
+            camera.focalDistance = focalDistance;
+            return this;
+        }
+
+        /**
+         * Sets the number of additional lens rays of an out-of-focus pixel. Four lens rays are traced
+         * through each pixel first, and only the pixels whose first rays disagree are traced again
+         * with a grid of this many rays (rounded up to a square).
+         *
+         * @param samples the number of lens rays of a blurred pixel
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the number of samples is not positive
+         */
+        public Builder setApertureSamples(int samples) {
+            if (samples <= 0) {
+                throw new IllegalArgumentException("Number of aperture samples must be positive");
+            }
+            camera.apertureSamples = samples;
+            return this;
+        }
+
+
+        /**
+         * Sets the number of time samples of a moving pixel for motion blur. Each ray of a pixel carries
+         * a random time within the shutter interval, at which it sees the moving geometries (see
+         * {@link geometries.MovingGeometry}). Four rays are traced through each pixel first, and only
+         * the pixels whose first rays disagree are traced again with this many rays (rounded up to a square).
+         * With an aperture, the lens rays carry the times, and their number is set by
+         * {@link #setApertureSamples(int)}.
+         *
+         * @param samples the number of time samples of a moving pixel, 0 to render a still frame at the shutter opening
+         * @return the Builder object itself
+         * @throws IllegalArgumentException if the number of samples is negative
+         */
+        public Builder setMotionBlur(int samples) {
+            if (samples < 0) {
+                throw new IllegalArgumentException("Number of motion samples cannot be negative");
+            }
+            camera.motionSamples = samples;
+            return this;
+        }
+
+
         /**
          * Builds the Camera object after checking that all necessary fields are set.
          *
@@ -321,7 +873,9 @@ public class Camera implements Cloneable {
             camera.vRight = camera.vTo.crossProduct(camera.vUp).normalize();
             camera.VPCenter = camera.p0.add(camera.vTo.scale(camera.distance));
             try {
-                return (Camera) camera.clone();
+                Camera built = (Camera) camera.clone();
+                if (built.focalDistance == 0) built.focalDistance = built.distance;
+                return built;
             } catch (CloneNotSupportedException e) {
                 // This should never happen because Camera implements Cloneable
                 throw new RuntimeException(e);
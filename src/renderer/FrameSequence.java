@@ -0,0 +1,194 @@
+package renderer;
+
+import geometries.Intersectable;
+import lighting.LightSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renderer of the frames of an animation of a scene. The geometries and lights of the scene stay still
+ * through the animation, and each frame (a keyframe) has its own camera and may replace the animated
+ * geometries and lights of the previous frames. The ray tracer is prepared for the still scene once,
+ * and for each frame only what changed is updated (see {@link SimpleRayTracer#prepareFrame}):
+ * a frame that only moves the camera reuses all the prepared structures.
+ * The image of a frame is encoded and written by a background thread while the next frame renders.
+ */
+public class FrameSequence {
+    /**
+     * A frame of the animation
+     */
+    public static final class Frame {
+        /**
+         * The camera of the frame
+         */
+        private final Camera camera;
+        /**
+         * The animated geometries of the frame, null to keep those of the previous frame
+         */
+        private List<Intersectable> geometries = null;
+        /**
+         * The animated lights of the frame, null to keep those of the previous frame
+         */
+        private List<LightSource> lights = null;
+
+        /**
+         * Constructs a frame.
+         *
+         * @param camera the camera of the frame
+         */
+        private Frame(Camera camera) {
+            this.camera = camera;
+        }
+
+        /**
+         * Sets the animated geometries of the frame, replacing those of the previous frame.
+         *
+         * @param geometries the animated geometries
+         * @return the frame itself for chaining
+         */
+        public Frame setGeometries(Intersectable... geometries) {
+            this.geometries = List.of(geometries);
+            return this;
+        }
+
+        /**
+         * Sets the animated lights of the frame, replacing those of the previous frame.
+         *
+         * @param lights the animated lights
+         * @return the frame itself for chaining
+         */
+        public Frame setLights(LightSource... lights) {
+            this.lights = List.of(lights);
+            return this;
+        }
+
+        /**
+         * Returns the camera of the frame.
+         *
+         * @return the camera
+         */
+        public Camera getCamera() {
+            return camera;
+        }
+    }
+
+    /**
+     * The ray tracer of the frames, tracing the still scene
+     */
+    private final SimpleRayTracer rayTracer;
+    /**
+     * The frames of the animation
+     */
+    private final List<Frame> frames = new ArrayList<>();
+
+    /**
+     * Constructs an empty animation.
+     *
+     * @param rayTracer the ray tracer of the frames - its scene holds the still geometries and lights
+     * @throws IllegalArgumentException if the ray tracer is null
+     */
+    public FrameSequence(SimpleRayTracer rayTracer) {
+        if (rayTracer == null) throw new IllegalArgumentException("rayTracer cannot be null");
+        this.rayTracer = rayTracer;
+    }
+
+    /**
+     * Adds a frame to the animation. The camera of the frame is built from the builder (with its own
+     * image writer) with the ray tracer of the animation.
+     *
+     * @param camera the builder of the frame's camera
+     * @return the frame, to set its animated geometries and lights
+     * @throws IllegalArgumentException if the camera builder is null
+     */
+    public Frame addFrame(Camera.Builder camera) {
+        if (camera == null) throw new IllegalArgumentException("Camera builder cannot be null");
+        Frame frame = new Frame(camera.setRayTracer(rayTracer).build());
+        frames.add(frame);
+        return frame;
+    }
+
+    /**
+     * Returns the frames of the animation.
+     *
+     * @return the frames, in order
+     */
+    public List<Frame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * Renders the frames in order and writes their images. The image of a frame is written while the next
+     * frame renders, and at most one image is being written at any time.
+     *
+     * @throws IllegalStateException if writing an image failed, or the thread was interrupted
+     */
+    public void render() {
+        rayTracer.prepareAnimation();
+        List<Intersectable> geometries = List.of();
+        List<LightSource> lights = List.of();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread encoder = null;
+        try {
+            for (int i = 0; i < frames.size(); ++i) {
+                Frame frame = frames.get(i);
+                boolean geometriesChanged = i == 0 || frame.geometries != null && !same(frame.geometries, geometries);
+                boolean lightsChanged = i == 0 || frame.lights != null && !same(frame.lights, lights);
+                if (frame.geometries != null) geometries = frame.geometries;
+                if (frame.lights != null) lights = frame.lights;
+                rayTracer.prepareFrame(geometries, lights, geometriesChanged, lightsChanged);
+
+                frame.camera.renderAsync(0, false).await();
+                join(encoder, failure);
+                encoder = new Thread(() -> {
+                    try {
+                        frame.camera.writeToImage();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }, "frame-encoder-" + i);
+                encoder.setDaemon(true);
+                encoder.start();
+            }
+        } finally {
+            join(encoder, failure);
+        }
+    }
+
+    /**
+     * Waits for the encoding of an image to finish, and rethrows its failure.
+     *
+     * @param encoder the encoding thread, or null
+     * @param failure the failure of the encodings, if any
+     * @throws IllegalStateException if an encoding failed, or the thread was interrupted
+     */
+    private static void join(Thread encoder, AtomicReference<Throwable> failure) {
+        if (encoder == null) return;
+        try {
+            encoder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing a frame", e);
+        }
+        Throwable e = failure.getAndSet(null);
+        if (e instanceof RuntimeException re) throw re;
+        if (e instanceof Error err) throw err;
+        if (e != null) throw new IllegalStateException("Writing a frame failed", e);
+    }
+
+    /**
+     * Checks whether two lists hold the same objects in the same order.
+     *
+     * @param a the first list
+     * @param b the second list
+     * @return true if the lists hold the same objects
+     */
+    private static boolean same(List<?> a, List<?> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); ++i) {
+            if (a.get(i) != b.get(i)) return false;
+        }
+        return true;
+    }
+}
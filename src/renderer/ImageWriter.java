@@ -1,13 +1,16 @@
 package renderer;
 
-import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
-
 import primitives.Color;
 
 /**
@@ -33,11 +36,51 @@ public class ImageWriter {
      * directory
      */
     private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    /**
+     * Size of the direct buffer the HDR files are streamed through
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+    /**
+     * Color value written as 1.0 to the HDR files - the white of the 8-bit image
+     */
+    private static final float HDR_WHITE = 255f;
 
     /**
-     * Image generation buffer (the matrix of the pixels)
+     * Image generation buffer (the matrix of the pixels) - packed RGB row by row, or null if the
+     * pixels are kept in a memory-mapped framebuffer. Render threads write their pixels here directly,
+     * without locks or color model conversions; the writes are published to the encoder by the
+     * completion of the render threads
+     */
+    private int[] pixels;
+    /**
+     * Out-of-core framebuffer backed by a memory-mapped file, or null if the pixels are kept in the image
+     */
+    private MappedFramebuffer mapped;
+    /**
+     * Linear RGB framebuffer of the HDR mode - three floats per pixel, row by row,
+     * or null if the pixels are written directly to the image
+     */
+    private float[] hdr;
+    /**
+     * Number of samples accumulated in each pixel of the HDR framebuffer
      */
-    private BufferedImage image;
+    private int[] samples;
+    /**
+     * Whether the PNG file is encoded while the image is rendered, as rows are completed
+     */
+    private boolean streaming = false;
+    /**
+     * The rows reported completed since the streamed encoding started
+     */
+    private boolean[] completedRows;
+    /**
+     * Number of rows from the top handed to the streaming encoder
+     */
+    private volatile int streamedRows = 0;
+    /**
+     * The encoder of the streamed PNG file, or null if no encoding is in progress
+     */
+    private PngEncoder encoder;
     /**
      * image file name, not including the file extension '.png'
      */
@@ -61,7 +104,31 @@ public class ImageWriter {
         this.nX = nX;
         this.nY = nY;
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        pixels = new int[nX * nY];
+    }
+
+    /**
+     * Image Writer constructor for images too large for the heap: the pixels are kept in a
+     * framebuffer backed by a memory-mapped file, which the render threads write straight to disk pages,
+     * and the PNG file is encoded from it row by row. The backing file is left in place.
+     *
+     * @param imageName       the name of png file
+     * @param nX              amount of pixels by Width
+     * @param nY              amount of pixels by height
+     * @param framebufferFile the file backing the framebuffer
+     * @throws IllegalStateException if the framebuffer file cannot be mapped
+     */
+    public ImageWriter(String imageName, int nX, int nY, Path framebufferFile) {
+        this.imageName = imageName;
+        this.nX = nX;
+        this.nY = nY;
+
+        try {
+            mapped = new MappedFramebuffer(framebufferFile, nX, nY);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - cannot map framebuffer file " + framebufferFile, e);
+        }
     }
 
     // ***************** Getters/Setters ********************** //
@@ -84,22 +151,305 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Sets the HDR framebuffer mode. In this mode the pixel colors are kept unclamped as linear
+     * float RGB, samples may be accumulated into a pixel and are averaged, and the conversion to
+     * 8-bit color is done once, in {@link #writeToImage()}. Switching the mode discards the HDR pixels.
+     *
+     * @param hdr true to keep the pixels in a float framebuffer
+     * @return the image writer itself for chaining
+     * @throws IllegalStateException if the pixels are kept in a memory-mapped framebuffer
+     */
+    public ImageWriter setHdr(boolean hdr) {
+        if (hdr && mapped != null)
+            throw new IllegalStateException("The HDR framebuffer cannot be combined with a memory-mapped framebuffer");
+        if (!hdr) {
+            this.hdr = null;
+            samples = null;
+        } else if (this.hdr == null) {
+            this.hdr = new float[nX * nY * 3];
+            samples = new int[nX * nY];
+        }
+        return this;
+    }
+
+    /**
+     * Checks whether the writer keeps the pixels in a float framebuffer.
+     *
+     * @return true in HDR framebuffer mode
+     */
+    public boolean isHdr() {
+        return hdr != null;
+    }
+
+    /**
+     * Sets the streaming mode. In this mode the PNG file is encoded while the image is rendered:
+     * the rows reported by {@link #rowsCompleted(int, int)} are compressed in the background as soon
+     * as all the rows above them are complete, and {@link #writeToImage()} only finishes the file.
+     * Writing a pixel into a row that was already encoded restarts the encoding in writeToImage.
+     *
+     * @param streaming true to encode the image while it is rendered
+     * @return the image writer itself for chaining
+     */
+    public ImageWriter setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
     // ***************** Operations ******************** //
 
     /**
-     * Function writeToImage produces unoptimized png file of the image according
-     * to pixel color matrix in the directory of the project
+     * Reports that the pixels of a range of rows are final. In streaming mode the completed rows at
+     * the top of the image are handed to the PNG encoder; otherwise the report is ignored.
+     * Render threads may report completed rows concurrently.
+     *
+     * @param fromRow the first completed row
+     * @param toRow   the row after the last completed row
+     */
+    public synchronized void rowsCompleted(int fromRow, int toRow) {
+        if (!streaming) return;
+        if (completedRows == null) completedRows = new boolean[nY];
+        for (int y = fromRow; y < toRow; ++y) completedRows[y] = true;
+        int end = streamedRows;
+        while (end < nY && completedRows[end]) ++end;
+        if (end == streamedRows) return;
+
+        if (hdr != null) resolveHdr(streamedRows, end);
+        try {
+            if (encoder == null) encoder = new PngEncoder(pngPath(), nX, nY, rowSource());
+            encoder.encodeRows(end);
+        } catch (IOException e) {
+            abortStreaming();
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+        streamedRows = end;
+    }
+
+    /**
+     * Function writeToImage produces a png file of the image according to pixel color matrix
+     * in the directory of the project. The rows are filtered and compressed in parallel
+     * (see {@link PngEncoder}); in streaming mode, the encoding of the rows already completed is reused.
      */
-    public void writeToImage() {
+    public synchronized void writeToImage() {
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            if (encoder == null || streamedRows < nY) {
+                abortStreaming();
+                if (hdr != null) resolveHdr(0, nY);
+                encoder = new PngEncoder(pngPath(), nX, nY, rowSource());
+                encoder.encodeRows(nY);
+            }
+            encoder.finish();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        } finally {
+            encoder = null;
+            completedRows = null;
+            streamedRows = 0;
+        }
+    }
+
+    /**
+     * Abandons the streamed encoding of the image, if any.
+     */
+    private synchronized void abortStreaming() {
+        if (encoder != null) encoder.abort();
+        encoder = null;
+        completedRows = null;
+        streamedRows = 0;
+    }
+
+    /**
+     * Returns the path of the PNG file of the image.
+     *
+     * @return the path of the file
+     */
+    private Path pngPath() {
+        return Path.of(FOLDER_PATH, imageName + ".png");
+    }
+
+    /**
+     * Returns the source of the pixel rows for the PNG encoder.
+     *
+     * @return the rows of the mapped framebuffer or of the image
+     */
+    private PngEncoder.RowSource rowSource() {
+        if (mapped != null) return mapped::readRow;
+        return (y, rgb) -> System.arraycopy(pixels, y * nX, rgb, 0, nX);
+    }
+
+    /**
+     * Writes the HDR framebuffer as a little-endian PFM (portable float map) file in the directory
+     * of the project, with linear unclamped RGB where 1.0 is the white of the 8-bit image.
+     * The pixels are streamed through a direct buffer to a file channel, without building an image.
+     *
+     * @throws IllegalStateException if the writer is not in HDR framebuffer mode, or on an I/O error
+     */
+    public void writeToPfm() {
+        requireHdr();
+        writeHdrFile(".pfm", "PF\n" + nX + " " + nY + "\n-1.0\n", (row, buffer) -> {
+            // PFM rows go from the bottom of the image to the top
+            for (int pixel = (nY - 1 - row) * nX, end = pixel + nX; pixel < end; ++pixel) {
+                float scale = samples[pixel] == 0 ? 0 : 1f / (samples[pixel] * HDR_WHITE);
+                buffer.putFloat(hdr[3 * pixel] * scale)
+                        .putFloat(hdr[3 * pixel + 1] * scale)
+                        .putFloat(hdr[3 * pixel + 2] * scale);
+            }
+        }, nX * 12);
+    }
+
+    /**
+     * Writes the HDR framebuffer as a Radiance RGBE (.hdr) file in the directory of the project,
+     * with linear RGB where 1.0 is the white of the 8-bit image. Scanlines of 8 to 32767 pixels are
+     * run-length encoded, others are written flat. The pixels are streamed through a direct buffer
+     * to a file channel, without building an image.
+     *
+     * @throws IllegalStateException if the writer is not in HDR framebuffer mode, or on an I/O error
+     */
+    public void writeToRgbe() {
+        requireHdr();
+        boolean rle = nX >= 8 && nX <= 0x7fff;
+        byte[] scanline = new byte[nX * 4];
+        writeHdrFile(".hdr", "#?RADIANCE\nFORMAT=32-bit_rle_rgbe\n\n-Y " + nY + " +X " + nX + "\n", (row, buffer) -> {
+            for (int x = 0, pixel = row * nX; x < nX; ++x, ++pixel) {
+                float scale = samples[pixel] == 0 ? 0 : 1f / (samples[pixel] * HDR_WHITE);
+                toRgbe(hdr[3 * pixel] * scale, hdr[3 * pixel + 1] * scale, hdr[3 * pixel + 2] * scale,
+                        scanline, rle ? x : 4 * x, rle ? nX : 1);
+            }
+            if (!rle) {
+                buffer.put(scanline);
+                return;
+            }
+            buffer.put((byte) 2).put((byte) 2).put((byte) (nX >> 8)).put((byte) nX);
+            for (int component = 0; component < 4; ++component)
+                encodeRun(scanline, component * nX, nX, buffer);
+        }, nX * 5 + 4);
+    }
+
+    /**
+     * Writer of a row of an HDR file into the output buffer
+     */
+    @FunctionalInterface
+    private interface RowEncoder {
+        /**
+         * Encodes a row of the image.
+         *
+         * @param row    the index of the row in the file
+         * @param buffer the output buffer, with room for the longest encoded row
+         */
+        void encode(int row, ByteBuffer buffer);
+    }
+
+    /**
+     * Streams a header and the encoded rows of the image into a file through a direct buffer.
+     *
+     * @param extension  the file extension
+     * @param header     the ASCII file header
+     * @param encoder    the row encoder
+     * @param maxRowSize the maximal size of an encoded row in bytes
+     */
+    private void writeHdrFile(String extension, String header, RowEncoder encoder, int maxRowSize) {
+        Path path = Path.of(FOLDER_PATH, imageName + extension);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(OUTPUT_BUFFER_SIZE, maxRowSize))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.put(header.getBytes(StandardCharsets.US_ASCII));
+            for (int row = 0; row < nY; ++row) {
+                if (buffer.remaining() < maxRowSize) drain(channel, buffer);
+                encoder.encode(row, buffer);
+            }
+            drain(channel, buffer);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "I/O error", e);
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
     }
 
+    /**
+     * Writes the content of a buffer to a channel and clears the buffer.
+     *
+     * @param channel the channel
+     * @param buffer  the buffer, in write mode
+     * @throws IOException on an I/O error
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Converts a linear color to the shared-exponent RGBE format.
+     *
+     * @param r      the red component
+     * @param g      the green component
+     * @param b      the blue component
+     * @param out    the array receiving the R, G, B and E bytes
+     * @param offset the index of the R byte
+     * @param stride the distance between the bytes
+     */
+    private static void toRgbe(float r, float g, float b, byte[] out, int offset, int stride) {
+        float v = Math.max(r, Math.max(g, b));
+        if (v < 1e-32f) {
+            out[offset] = out[offset + stride] = out[offset + 2 * stride] = out[offset + 3 * stride] = 0;
+            return;
+        }
+        int exponent = Math.getExponent(v) + 1; // v = m * 2^exponent with m in [0.5, 1)
+        float scale = Math.scalb(256f, -exponent);
+        out[offset] = (byte) (int) (r * scale);
+        out[offset + stride] = (byte) (int) (g * scale);
+        out[offset + 2 * stride] = (byte) (int) (b * scale);
+        out[offset + 3 * stride] = (byte) (exponent + 128);
+    }
+
+    /**
+     * Run-length encodes a component of a scanline in the Radiance format: a run of 3 to 127 equal
+     * bytes is written as 128 + length and the byte, other bytes are dumped in chunks of up to 128.
+     *
+     * @param bytes  the component bytes
+     * @param start  the index of the first byte
+     * @param count  the number of bytes
+     * @param buffer the output buffer
+     */
+    private static void encodeRun(byte[] bytes, int start, int count, ByteBuffer buffer) {
+        int end = start + count;
+        int i = start;
+        while (i < end) {
+            // Find the next run of at least 3 equal bytes
+            int runStart = i;
+            int runLength = 0;
+            while (runStart < end) {
+                runLength = 1;
+                while (runLength < 127 && runStart + runLength < end && bytes[runStart + runLength] == bytes[runStart])
+                    ++runLength;
+                if (runLength >= 3) break;
+                runStart += runLength;
+            }
+            if (runStart >= end) runLength = 0;
+            // Dump the bytes before the run
+            while (i < runStart) {
+                int dump = Math.min(128, runStart - i);
+                buffer.put((byte) dump).put(bytes, i, dump);
+                i += dump;
+            }
+            if (runLength >= 3) {
+                buffer.put((byte) (128 + runLength)).put(bytes[runStart]);
+                i = runStart + runLength;
+            }
+        }
+    }
+
+    /**
+     * Checks that the writer is in HDR framebuffer mode.
+     *
+     * @throws IllegalStateException if the writer is not in HDR framebuffer mode
+     */
+    private void requireHdr() {
+        if (hdr == null) throw new IllegalStateException("HDR output requires the HDR framebuffer mode");
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color
      * matrix
@@ -109,7 +459,127 @@ public class ImageWriter {
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        if (yIndex < streamedRows) abortStreaming();
+        setPixel(xIndex, yIndex, color);
+    }
+
+    /**
+     * Writes the colors of a rectangular block of pixels (e.g. a rendered tile) in bulk.
+     * Different threads may write disjoint blocks concurrently, without locking.
+     *
+     * @param x      X axis index of the upper-left pixel of the block
+     * @param y      Y axis index of the upper-left pixel of the block
+     * @param width  number of pixel columns in the block
+     * @param height number of pixel rows in the block
+     * @param colors the colors of the block's pixels, row by row
+     */
+    public void writePixels(int x, int y, int width, int height, Color[] colors) {
+        if (y < streamedRows) abortStreaming();
+        int k = 0;
+        if (mapped == null && hdr == null) {
+            for (int row = y; row < y + height; ++row)
+                for (int pixel = row * nX + x, end = pixel + width; pixel < end; ++pixel)
+                    pixels[pixel] = pack(colors[k++]);
+            return;
+        }
+        for (int row = y; row < y + height; ++row)
+            for (int column = x; column < x + width; ++column)
+                setPixel(column, row, colors[k++]);
+    }
+
+    /**
+     * Stores the color of a pixel in the framebuffer of the current mode.
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  final color of the pixel
+     */
+    private void setPixel(int xIndex, int yIndex, Color color) {
+        if (mapped != null) {
+            mapped.set(xIndex, yIndex, pack(color));
+        } else if (hdr == null) {
+            pixels[yIndex * nX + xIndex] = pack(color);
+        } else {
+            int pixel = yIndex * nX + xIndex;
+            hdr[3 * pixel] = (float) color.getRed();
+            hdr[3 * pixel + 1] = (float) color.getGreen();
+            hdr[3 * pixel + 2] = (float) color.getBlue();
+            samples[pixel] = 1;
+        }
+    }
+
+    /**
+     * Packs a color into 8-bit RGB, clamping as {@link Color#getColor()} does.
+     *
+     * @param color the color
+     * @return the packed RGB
+     */
+    private static int pack(Color color) {
+        return toByte(color.getRed()) << 16 | toByte(color.getGreen()) << 8 | toByte(color.getBlue());
+    }
+
+    /**
+     * Adds a sample to a pixel of the HDR framebuffer. The pixel is written as the average of its samples.
+     * Different threads may accumulate into different pixels concurrently.
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  the color of the sample
+     * @throws IllegalStateException if the writer is not in HDR framebuffer mode
+     */
+    public void accumulatePixel(int xIndex, int yIndex, Color color) {
+        if (hdr == null) throw new IllegalStateException("Accumulation requires the HDR framebuffer mode");
+        if (yIndex < streamedRows) abortStreaming();
+        int pixel = yIndex * nX + xIndex;
+        hdr[3 * pixel] += (float) color.getRed();
+        hdr[3 * pixel + 1] += (float) color.getGreen();
+        hdr[3 * pixel + 2] += (float) color.getBlue();
+        ++samples[pixel];
+    }
+
+    /**
+     * Returns the linear color of a pixel of the HDR framebuffer - the average of its samples.
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the unclamped pixel color, black if no sample was written
+     * @throws IllegalStateException if the writer is not in HDR framebuffer mode
+     */
+    public Color getPixel(int xIndex, int yIndex) {
+        if (hdr == null) throw new IllegalStateException("Pixel colors are kept only in the HDR framebuffer mode");
+        int pixel = yIndex * nX + xIndex;
+        if (samples[pixel] == 0) return Color.BLACK;
+        double scale = 1d / samples[pixel];
+        return new Color(hdr[3 * pixel] * scale, hdr[3 * pixel + 1] * scale, hdr[3 * pixel + 2] * scale);
+    }
+
+    /**
+     * Converts rows of the HDR framebuffer to 8-bit color, clamping as {@link Color#getColor()} does.
+     * The rows are converted in parallel straight into the pixel buffer of the image.
+     *
+     * @param fromRow the first row to convert
+     * @param toRow   the row after the last row to convert
+     */
+    private void resolveHdr(int fromRow, int toRow) {
+        IntStream.range(fromRow, toRow).parallel().forEach(y -> {
+            for (int pixel = y * nX, end = pixel + nX; pixel < end; ++pixel) {
+                double scale = samples[pixel] == 0 ? 0 : 1d / samples[pixel];
+                pixels[pixel] = toByte(hdr[3 * pixel] * scale) << 16
+                        | toByte(hdr[3 * pixel + 1] * scale) << 8
+                        | toByte(hdr[3 * pixel + 2] * scale);
+            }
+        });
+    }
+
+    /**
+     * Converts a color component to 8 bits - truncated and clamped to [0, 255].
+     *
+     * @param component the linear color component
+     * @return the 8-bit component
+     */
+    private static int toByte(double component) {
+        int c = (int) component;
+        return c > 255 ? 255 : Math.max(c, 0);
     }
 
 }
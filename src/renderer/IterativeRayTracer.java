@@ -0,0 +1,154 @@
+package renderer;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+import scene.Scene;
+
+import java.util.Arrays;
+
+/**
+ * Ray tracer computing the reflections and refractions without recursion. The ray tree of a pixel
+ * is traversed with an explicit per-thread stack of (ray, throughput, level) items, and the contribution
+ * of each hit - its local effects or the background, multiplied by the throughput of its ray - is summed
+ * in place in a per-thread {@link ColorAccumulator}. The tracer is limited, pruned and shaded as {@link SimpleRayTracer} is, and produces
+ * the same images (up to the rounding of the different summation order); only the intermediate
+ * colors of the recursion and the depth of the call stack are saved.
+ * Glossy reflections and diffuse transmissions are split into the same grids of rays, but without stopping early
+ * when the first rays agree, so their images differ by the noise of the sampling.
+ */
+public class IterativeRayTracer extends SimpleRayTracer {
+    /**
+     * Stack of the pending secondary rays of a ray tree, reused over all the pixels traced by a thread
+     */
+    private static final class WorkStack {
+        /**
+         * The rays of the items
+         */
+        Ray[] rays = new Ray[16];
+        /**
+         * The throughputs of the items - the accumulated attenuation of their rays
+         */
+        Double3[] throughputs = new Double3[16];
+        /**
+         * The recursion levels of the items
+         */
+        int[] levels = new int[16];
+        /**
+         * The weights of the items - the fraction of a split effect their rays stand for
+         */
+        double[] weights = new double[16];
+        /**
+         * Number of items in the stack
+         */
+        int size = 0;
+        /**
+         * The sum of the contributions of the ray tree
+         */
+        final ColorAccumulator sum = new ColorAccumulator();
+
+        /**
+         * Pushes an item.
+         *
+         * @param ray        the ray
+         * @param throughput the throughput of the ray
+         * @param level      the recursion level of the ray
+         * @param weight     the weight of the ray
+         */
+        void push(Ray ray, Double3 throughput, int level, double weight) {
+            if (size == rays.length) {
+                rays = Arrays.copyOf(rays, 2 * size);
+                throughputs = Arrays.copyOf(throughputs, 2 * size);
+                levels = Arrays.copyOf(levels, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+            }
+            rays[size] = ray;
+            throughputs[size] = throughput;
+            levels[size] = level;
+            weights[size++] = weight;
+        }
+    }
+
+    /**
+     * Per-thread stack of pending rays
+     */
+    private static final ThreadLocal<WorkStack> STACK = ThreadLocal.withInitial(WorkStack::new);
+
+    /**
+     * Constructor to initialize the ray tracer with a scene.
+     *
+     * @param scene The scene to be rendered.
+     */
+    public IterativeRayTracer(Scene scene) {
+        super(scene);
+    }
+
+    @Override
+    Color calcColor(GeoPoint intersection, Ray ray) {
+        WorkStack stack = STACK.get();
+        ColorAccumulator sum = stack.sum.set(ambient(intersection, ray));
+        shade(intersection, ray, INITIAL_K, maxLevel, 1, stack);
+        while (stack.size > 0) {
+            int top = --stack.size;
+            Ray secondary = stack.rays[top];
+            Double3 k = stack.throughputs[top];
+            int level = stack.levels[top];
+            double weight = stack.weights[top];
+            stack.rays[top] = null;
+            stack.throughputs[top] = null;
+
+            GeoPoint gp = findClosestIntersection(secondary);
+            if (gp == null) sum.addScaled(scene.background, k, Double3.ONE, weight);
+            else if (level > 0) shade(gp, secondary, k, level, weight, stack);
+        }
+        return sum.toColor();
+    }
+
+    /**
+     * Adds the local effects of a hit to the sum, and pushes the reflected and refracted rays that survive
+     * the pruning (see {@link SimpleRayTracer#survival(Double3)}). Glossy reflections and diffuse transmissions
+     * are split at the first bounce into the grid of rays of {@link SimpleRayTracer#coneGrid(int, Double3)},
+     * sharing the weight of their parent; unlike the recursive tracer, all the rays of the grid are traced.
+     *
+     * @param gp     the hit
+     * @param ray    the ray that hit the point
+     * @param k      the throughput of the ray
+     * @param level  the recursion level of the ray, positive
+     * @param weight the weight of the ray
+     * @param stack  the stack of pending rays and the sum of the contributions
+     */
+    private void shade(GeoPoint gp, Ray ray, Double3 k, int level, double weight, WorkStack stack) {
+        Vector n = gp.geometry.getNormal(gp.point);
+        stack.sum.addScaled(calcLocalEffects(gp, ray, n, k), k, Double3.ONE, weight);
+
+        Material material = gp.geometry.getMaterial();
+        Vector v = ray.getDir();
+        if (!material.kR.equals(Double3.ZERO))
+            push(stack, gp, constructReflectedRay(gp, v, n), n, material.glossiness, k.product(material.kR), level, weight);
+        if (!material.kT.equals(Double3.ZERO))
+            push(stack, gp, constructRefractedRay(gp, v, n), n, material.diffuseness, k.product(material.kT), level, weight);
+    }
+
+    /**
+     * Pushes the rays of a reflection or a refraction that survive the pruning, boosting the throughput
+     * of a ray that survived the roulette.
+     *
+     * @param stack  the stack of pending rays
+     * @param gp     the point the rays are spawned at
+     * @param sharp  the sharp reflected or refracted ray
+     * @param n      the normal at the point
+     * @param angle  the half-angle of the cone of the rays, 0 for the sharp ray only
+     * @param kkx    the throughput of the rays
+     * @param level  the recursion level of the parent ray
+     * @param weight the weight of the parent ray
+     */
+    private void push(WorkStack stack, GeoPoint gp, Ray sharp, Vector n, double angle, Double3 kkx, int level,
+                      double weight) {
+        int side = angle == 0 ? 1 : coneGrid(level, kkx);
+        for (int cell = 0; cell < side * side; ++cell) {
+            double survival = survival(kkx);
+            if (survival == 0) continue;
+            Ray ray = angle == 0 ? sharp : coneRay(gp, sharp.getDir(), n, angle, cell, side);
+            stack.push(ray, survival == 1 ? kkx : kkx.scale(1 / survival), level - 1, weight / (side * side));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package renderer;
+
+import lighting.LightSource;
+import lighting.PointLight;
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Spatial index of the light sources of a scene by their radius of influence - the distance
+ * beyond which a light's intensity falls below a threshold (see {@link LightSource#getRadius(double)}).
+ * The positioned lights with a finite radius are kept in a bounding volume hierarchy of their spheres
+ * of influence, split at the median along the longest axis as the geometries hierarchy is; the other
+ * lights reach everywhere and are returned for every point, and the lights with a zero radius are dropped.
+ * The index is immutable once built, so it may be queried by parallel render threads.
+ */
+class LightIndex {
+    /**
+     * Maximal number of lights in a leaf node
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * A light with its sphere of influence
+     *
+     * @param light         the light
+     * @param x             x coordinate of the light's position
+     * @param y             y coordinate of the light's position
+     * @param z             z coordinate of the light's position
+     * @param radiusSquared the squared radius of influence of the light
+     */
+    private record Influence(LightSource light, double x, double y, double z, double radiusSquared) {
+        /**
+         * Checks whether a point is within the sphere of influence.
+         *
+         * @param p the point
+         * @return true if the light reaches the point
+         */
+        boolean reaches(Point p) {
+            double dx = p.getX() - x, dy = p.getY() - y, dz = p.getZ() - z;
+            return dx * dx + dy * dy + dz * dz <= radiusSquared;
+        }
+    }
+
+    /**
+     * A node of the hierarchy - the box bounding the spheres of influence of its lights
+     */
+    private static final class Node {
+        /**
+         * Corners of the box
+         */
+        final double minX, minY, minZ, maxX, maxY, maxZ;
+        /**
+         * The lights of a leaf, null in an inner node
+         */
+        final Influence[] lights;
+        /**
+         * The sub-nodes of an inner node, null in a leaf
+         */
+        final Node left, right;
+
+        /**
+         * Builds the hierarchy of a list of lights.
+         *
+         * @param items the lights, sorted in place
+         */
+        Node(List<Influence> items) {
+            double x0 = Double.POSITIVE_INFINITY, y0 = x0, z0 = x0;
+            double x1 = Double.NEGATIVE_INFINITY, y1 = x1, z1 = x1;
+            double[] centerMin = {x0, x0, x0}, centerMax = {x1, x1, x1};
+            for (Influence item : items) {
+                double r = Math.sqrt(item.radiusSquared());
+                x0 = Math.min(x0, item.x() - r);
+                y0 = Math.min(y0, item.y() - r);
+                z0 = Math.min(z0, item.z() - r);
+                x1 = Math.max(x1, item.x() + r);
+                y1 = Math.max(y1, item.y() + r);
+                z1 = Math.max(z1, item.z() + r);
+                double[] center = {item.x(), item.y(), item.z()};
+                for (int a = 0; a < 3; ++a) {
+                    centerMin[a] = Math.min(centerMin[a], center[a]);
+                    centerMax[a] = Math.max(centerMax[a], center[a]);
+                }
+            }
+            minX = x0;
+            minY = y0;
+            minZ = z0;
+            maxX = x1;
+            maxY = y1;
+            maxZ = z1;
+
+            if (items.size() <= LEAF_SIZE) {
+                lights = items.toArray(new Influence[0]);
+                left = right = null;
+                return;
+            }
+            int axis = 0;
+            for (int a = 1; a < 3; ++a) {
+                if (centerMax[a] - centerMin[a] > centerMax[axis] - centerMin[axis]) axis = a;
+            }
+            items.sort(Comparator.comparingDouble(axis == 0 ? Influence::x : axis == 1 ? Influence::y : Influence::z));
+            int middle = items.size() / 2;
+            lights = null;
+            left = new Node(new ArrayList<>(items.subList(0, middle)));
+            right = new Node(new ArrayList<>(items.subList(middle, items.size())));
+        }
+
+        /**
+         * Checks whether a point is in the box.
+         *
+         * @param p the point
+         * @return true if the point is in the box
+         */
+        boolean contains(Point p) {
+            return p.getX() >= minX && p.getX() <= maxX && p.getY() >= minY && p.getY() <= maxY
+                    && p.getZ() >= minZ && p.getZ() <= maxZ;
+        }
+    }
+
+    /**
+     * The lights reaching everywhere
+     */
+    private final List<LightSource> global = new ArrayList<>();
+    /**
+     * The root of the hierarchy of the positioned lights, null if there are none
+     */
+    private final Node root;
+
+    /**
+     * Builds the index of a list of lights.
+     *
+     * @param lights       the light sources
+     * @param minIntensity the intensity below which a light is considered not to reach a point
+     * @throws IllegalArgumentException if the threshold intensity is not positive
+     */
+    LightIndex(List<LightSource> lights, double minIntensity) {
+        if (minIntensity <= 0) throw new IllegalArgumentException("Light cutoff intensity must be positive");
+        List<Influence> positioned = new ArrayList<>();
+        for (LightSource light : lights) {
+            double radius = light.getRadius(minIntensity);
+            if (radius == 0) continue;
+            if (radius == Double.POSITIVE_INFINITY || !(light instanceof PointLight pointLight)) global.add(light);
+            else {
+                Point p = pointLight.getPosition();
+                positioned.add(new Influence(light, p.getX(), p.getY(), p.getZ(), radius * radius));
+            }
+        }
+        root = positioned.isEmpty() ? null : new Node(positioned);
+    }
+
+    /**
+     * Collects the lights reaching a point.
+     *
+     * @param point  the point
+     * @param lights the list receiving the lights (it is cleared first)
+     * @return the list of the lights
+     */
+    List<LightSource> lights(Point point, List<LightSource> lights) {
+        lights.clear();
+        lights.addAll(global);
+        if (root != null) collect(root, point, lights);
+        return lights;
+    }
+
+    /**
+     * Collects the lights of a subtree reaching a point.
+     *
+     * @param node   the root of the subtree
+     * @param point  the point
+     * @param lights the list receiving the lights
+     */
+    private static void collect(Node node, Point point, List<LightSource> lights) {
+        if (!node.contains(point)) return;
+        if (node.lights != null) {
+            for (Influence influence : node.lights) {
+                if (influence.reaches(point)) lights.add(influence.light());
+            }
+            return;
+        }
+        collect(node.left, point, lights);
+        collect(node.right, point, lights);
+    }
+}
@@ -0,0 +1,130 @@
+package renderer;
+
+import lighting.LightSource;
+import primitives.Color;
+import primitives.Point;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Selection of the lights evaluated at a point. With more lights than the budget of the point,
+ * lights are picked at random with probabilities proportional to their importance - the strongest
+ * color component of their attenuated intensity at the point - and each picked light is weighted
+ * by the inverse of its expected number of picks, so the weighted sum of the picked lights' contributions
+ * is an unbiased estimate of the sum over all the lights. Lights picked more than once are evaluated
+ * once with the sum of their weights.
+ * A sampler is reused over the points shaded by a thread, and is not thread safe.
+ */
+class LightSampler {
+    /**
+     * The selected lights
+     */
+    private LightSource[] selected = new LightSource[8];
+    /**
+     * The weights of the selected lights
+     */
+    private double[] weights = new double[8];
+    /**
+     * The candidate lights, copied for indexed access
+     */
+    private LightSource[] candidates = new LightSource[8];
+    /**
+     * Cumulative importance of the candidate lights
+     */
+    private double[] cumulative = new double[8];
+    /**
+     * Number of selected lights
+     */
+    private int count = 0;
+
+    /**
+     * Selects the lights to evaluate at a point.
+     *
+     * @param point  the point
+     * @param lights the candidate lights
+     * @param budget the number of lights to pick, 0 to select all the lights
+     * @param random the source of random numbers
+     * @return the number of selected lights
+     */
+    int select(Point point, List<LightSource> lights, int budget, RandomGenerator random) {
+        int size = lights.size();
+        count = 0;
+        if (budget == 0 || size <= budget) {
+            ensureCapacity(size);
+            for (LightSource light : lights) {
+                selected[count] = light;
+                weights[count++] = 1;
+            }
+            return count;
+        }
+
+        ensureCapacity(Math.max(size, budget));
+        double total = 0;
+        int n = 0;
+        for (LightSource light : lights) {
+            Color intensity = light.getIntensity(point);
+            total += Math.max(intensity.getRed(), Math.max(intensity.getGreen(), intensity.getBlue()));
+            candidates[n] = light;
+            cumulative[n++] = total;
+        }
+        if (total == 0) return 0;
+
+        for (int s = 0; s < budget; ++s) {
+            // The first light whose cumulative importance exceeds a uniform value in [0, total)
+            double u = random.nextDouble() * total;
+            int i = 0;
+            for (int high = size - 1; i < high; ) {
+                int middle = (i + high) >>> 1;
+                if (cumulative[middle] > u) high = middle;
+                else i = middle + 1;
+            }
+            double weight = total / ((cumulative[i] - (i == 0 ? 0 : cumulative[i - 1])) * budget);
+            LightSource light = candidates[i];
+            int j = 0;
+            while (j < count && selected[j] != light) ++j;
+            if (j == count) {
+                selected[count] = light;
+                weights[count++] = weight;
+            } else {
+                weights[j] += weight;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a selected light.
+     *
+     * @param i the index of the light, less than the number of selected lights
+     * @return the light
+     */
+    LightSource light(int i) {
+        return selected[i];
+    }
+
+    /**
+     * Returns the weight of a selected light's contribution.
+     *
+     * @param i the index of the light, less than the number of selected lights
+     * @return the weight of the light
+     */
+    double weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Grows the arrays to hold a number of lights.
+     *
+     * @param size the number of lights
+     */
+    private void ensureCapacity(int size) {
+        if (size <= selected.length) return;
+        int capacity = Math.max(size, 2 * selected.length);
+        selected = Arrays.copyOf(selected, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        candidates = Arrays.copyOf(candidates, capacity);
+        cumulative = Arrays.copyOf(cumulative, capacity);
+    }
+}
@@ -0,0 +1,101 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Out-of-core framebuffer of packed RGB pixels, backed by a memory-mapped file.
+ * The pixels are laid out by square tiles, so that the pixels a render worker writes for a tile
+ * of the image fall on a few contiguous pages of the file. The file is mapped in segments of
+ * whole tiles (a single mapping is limited to 2GB), and the operating system pages the frame
+ * in and out of memory, so its size is limited by the disk rather than by the heap.
+ * Pixels may be written and rows read by different threads concurrently.
+ */
+class MappedFramebuffer {
+    /**
+     * Side of a tile of the layout in pixels
+     */
+    private static final int TILE = 64;
+    /**
+     * Bytes of a pixel - packed RGB as an int
+     */
+    private static final int PIXEL_BYTES = 4;
+    /**
+     * Bytes of a tile of the layout
+     */
+    private static final long TILE_BYTES = (long) TILE * TILE * PIXEL_BYTES;
+    /**
+     * Number of tiles in a mapped segment of the file
+     */
+    private static final int SEGMENT_TILES = (int) (Integer.MAX_VALUE / TILE_BYTES);
+
+    /**
+     * Width of the frame in pixels
+     */
+    private final int width;
+    /**
+     * Number of tiles in a row of tiles
+     */
+    private final int tilesX;
+    /**
+     * The mapped segments of the file
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Creates (or reuses) the backing file of a frame and maps it.
+     *
+     * @param file   the backing file, extended to the size of the frame
+     * @param width  the frame width
+     * @param height the frame height
+     * @throws IOException on an I/O error
+     */
+    MappedFramebuffer(Path file, int width, int height) throws IOException {
+        this.width = width;
+        tilesX = (width + TILE - 1) / TILE;
+        long tiles = (long) tilesX * ((height + TILE - 1) / TILE);
+        segments = new MappedByteBuffer[(int) ((tiles + SEGMENT_TILES - 1) / SEGMENT_TILES)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int s = 0; s < segments.length; ++s) {
+                long first = (long) s * SEGMENT_TILES;
+                long size = Math.min(SEGMENT_TILES, tiles - first) * TILE_BYTES;
+                segments[s] = channel.map(FileChannel.MapMode.READ_WRITE, first * TILE_BYTES, size);
+            }
+        }
+    }
+
+    /**
+     * Writes a pixel.
+     *
+     * @param x   the column of the pixel
+     * @param y   the row of the pixel
+     * @param rgb the packed RGB of the pixel
+     */
+    void set(int x, int y, int rgb) {
+        long tile = (long) (y / TILE) * tilesX + x / TILE;
+        int offset = (int) (tile % SEGMENT_TILES * TILE_BYTES) + ((y % TILE) * TILE + x % TILE) * PIXEL_BYTES;
+        segments[(int) (tile / SEGMENT_TILES)].putInt(offset, rgb);
+    }
+
+    /**
+     * Reads a row of pixels, tile by tile.
+     *
+     * @param y   the row
+     * @param rgb the array receiving the packed RGB of the pixels of the row
+     */
+    void readRow(int y, int[] rgb) {
+        long firstTile = (long) (y / TILE) * tilesX;
+        int rowOffset = (y % TILE) * TILE * PIXEL_BYTES;
+        for (int tx = 0; tx < tilesX; ++tx) {
+            long tile = firstTile + tx;
+            MappedByteBuffer segment = segments[(int) (tile / SEGMENT_TILES)];
+            int offset = (int) (tile % SEGMENT_TILES * TILE_BYTES) + rowOffset;
+            for (int x = tx * TILE, end = Math.min(x + TILE, width); x < end; ++x, offset += PIXEL_BYTES)
+                rgb[x] = segment.getInt(offset);
+        }
+    }
+}
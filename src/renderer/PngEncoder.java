@@ -0,0 +1,369 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming PNG encoder of 8-bit RGB images whose rows are read as packed integer pixels.
+ * The image is encoded in chunks of rows as soon as the rows are ready: each chunk is filtered
+ * (with the adaptive minimum-sum heuristic per scanline) and deflated as an independent task in
+ * the common fork-join pool. A chunk is deflated with the tail of the previous chunk as its
+ * dictionary and ends on a byte boundary (sync flush), so that the chunks concatenate into a
+ * single zlib stream whose checksum is combined from the checksums of the chunks.
+ * The compressed chunks are written in order, through a file channel, as separate IDAT chunks.
+ * At most a few chunks per processor are in flight, so the image is never held on heap as a whole.
+ */
+class PngEncoder {
+    /**
+     * The PNG file signature
+     */
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    /**
+     * Approximate size of the filtered rows of a chunk in bytes
+     */
+    private static final int CHUNK_SIZE = 256 * 1024;
+    /**
+     * Size of the deflate window - the dictionary of a chunk is the filtered data preceding it up to this size
+     */
+    private static final int WINDOW_SIZE = 32 * 1024;
+    /**
+     * Deflate compression level, favouring speed for large frames
+     */
+    private static final int LEVEL = Deflater.BEST_SPEED;
+    /**
+     * Modulus of the Adler-32 checksum
+     */
+    private static final long ADLER_BASE = 65521;
+    /**
+     * Maximal number of chunks being compressed or waiting to be written
+     */
+    private static final int MAX_PENDING = 4 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Source of the pixel rows of an image
+     */
+    @FunctionalInterface
+    interface RowSource {
+        /**
+         * Reads a row of pixels. Rows may be read concurrently.
+         *
+         * @param y   the row
+         * @param rgb the array receiving the packed RGB of the pixels of the row
+         */
+        void readRow(int y, int[] rgb);
+    }
+
+    /**
+     * The output file channel
+     */
+    private final FileChannel channel;
+    /**
+     * Width and height of the image in pixels
+     */
+    private final int width, height;
+    /**
+     * The source of the pixel rows
+     */
+    private final RowSource pixels;
+    /**
+     * Number of rows in a chunk
+     */
+    private final int chunkRows;
+    /**
+     * The chunks being compressed, in the order of the image
+     */
+    private final Queue<CompletableFuture<Chunk>> pending = new ArrayDeque<>();
+    /**
+     * Number of rows handed to the compression tasks
+     */
+    private int submittedRows = 0;
+    /**
+     * Adler-32 checksum of the filtered data written so far
+     */
+    private long adler = 1;
+
+    /**
+     * A compressed chunk of rows
+     *
+     * @param idat     the complete IDAT chunk (length, type, data and CRC)
+     * @param adler    Adler-32 checksum of the filtered rows of the chunk
+     * @param rawBytes size of the filtered rows of the chunk
+     */
+    private record Chunk(byte[] idat, long adler, int rawBytes) {
+    }
+
+    /**
+     * Creates the PNG file and writes its header.
+     *
+     * @param file   the PNG file
+     * @param width  the image width
+     * @param height the image height
+     * @param pixels the source of the rows of the image; a row must not change after it is encoded
+     * @throws IOException on an I/O error
+     */
+    PngEncoder(Path file, int width, int height, RowSource pixels) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        chunkRows = Math.max(1, CHUNK_SIZE / (width * 3 + 1));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        ByteBuffer ihdr = ByteBuffer.allocate(13).putInt(width).putInt(height)
+                .put((byte) 8) // bit depth
+                .put((byte) 2) // color type - RGB
+                .put((byte) 0).put((byte) 0).put((byte) 0); // compression, filter and interlace methods
+        write(ByteBuffer.wrap(SIGNATURE));
+        write(ByteBuffer.wrap(chunk("IHDR", ihdr.array(), 0, 13)));
+    }
+
+    /**
+     * Hands the rows up to a given row to the compression tasks, and writes the chunks already compressed.
+     * Rows are handed in whole chunks, except for the last chunk of the image.
+     *
+     * @param endRow the index after the last ready row; the rows above it must be ready as well
+     * @throws IOException on an I/O error
+     */
+    void encodeRows(int endRow) throws IOException {
+        while (submittedRows < endRow && (endRow - submittedRows >= chunkRows || endRow == height)) {
+            int start = submittedRows;
+            int end = Math.min(start + chunkRows, endRow);
+            if (pending.size() >= MAX_PENDING) writeChunk(pending.remove());
+            pending.add(CompletableFuture.supplyAsync(() -> compress(start, end)));
+            submittedRows = end;
+        }
+        while (!pending.isEmpty() && pending.peek().isDone()) writeChunk(pending.remove());
+    }
+
+    /**
+     * Writes the remaining chunks and the end of the file, and closes the file.
+     *
+     * @throws IOException           on an I/O error
+     * @throws IllegalStateException if not all the rows were encoded
+     */
+    void finish() throws IOException {
+        if (submittedRows < height) {
+            abort();
+            throw new IllegalStateException("Not all the rows of the image were encoded");
+        }
+        try (channel) {
+            while (!pending.isEmpty()) writeChunk(pending.remove());
+            byte[] trailer = ByteBuffer.allocate(4).putInt((int) adler).array();
+            write(ByteBuffer.wrap(chunk("IDAT", trailer, 0, 4)));
+            write(ByteBuffer.wrap(chunk("IEND", trailer, 0, 0)));
+        }
+    }
+
+    /**
+     * Abandons the encoding and closes the file.
+     */
+    void abort() {
+        pending.forEach(future -> future.cancel(false));
+        pending.clear();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // the file is abandoned anyway
+        }
+    }
+
+    /**
+     * Writes a compressed chunk, waiting for its compression to finish.
+     *
+     * @param future the chunk being compressed
+     * @throws IOException on an I/O error
+     */
+    private void writeChunk(CompletableFuture<Chunk> future) throws IOException {
+        Chunk chunk = future.join();
+        write(ByteBuffer.wrap(chunk.idat()));
+        adler = combineAdler(adler, chunk.adler(), chunk.rawBytes());
+    }
+
+    /**
+     * Writes a buffer to the file.
+     *
+     * @param buffer the buffer
+     * @throws IOException on an I/O error
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Filters and compresses a chunk of rows.
+     *
+     * @param start the first row of the chunk
+     * @param end   the row after the last row of the chunk
+     * @return the compressed chunk
+     */
+    private Chunk compress(int start, int end) {
+        byte[] raw = filter(start, end);
+        Deflater deflater = new Deflater(LEVEL, true);
+        try {
+            if (start > 0) {
+                // The filtered rows preceding the chunk, as the decoder will have them in its window
+                int rowBytes = width * 3 + 1;
+                byte[] previous = filter(Math.max(0, start - (WINDOW_SIZE + rowBytes - 1) / rowBytes), start);
+                int length = Math.min(WINDOW_SIZE, previous.length);
+                deflater.setDictionary(previous, previous.length - length, length);
+            }
+            deflater.setInput(raw);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            if (start == 0) {
+                out.write(0x78); // zlib header - deflate with a 32K window, no dictionary
+                out.write(0x9c);
+            }
+            byte[] buffer = new byte[64 * 1024];
+            if (end == height) {
+                deflater.finish();
+                while (!deflater.finished()) out.write(buffer, 0, deflater.deflate(buffer));
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            Adler32 checksum = new Adler32();
+            checksum.update(raw);
+            byte[] data = out.toByteArray();
+            return new Chunk(chunk("IDAT", data, 0, data.length), checksum.getValue(), raw.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Filters rows of the image, choosing for each row the filter with the minimal sum of absolute
+     * differences.
+     *
+     * @param start the first row
+     * @param end   the row after the last row
+     * @return the filtered rows, each preceded by its filter type
+     */
+    private byte[] filter(int start, int end) {
+        int rowBytes = width * 3;
+        byte[] filtered = new byte[(end - start) * (rowBytes + 1)];
+        byte[] prior = new byte[rowBytes];
+        byte[] current = new byte[rowBytes];
+        int[] rgb = new int[width];
+        long[] sums = new long[5];
+        if (start > 0) unpack(start - 1, rgb, prior);
+        for (int y = start, offset = 0; y < end; ++y, offset += rowBytes + 1) {
+            unpack(y, rgb, current);
+            // The sums of all the filters in a single pass over the row
+            sums[0] = sums[1] = sums[2] = sums[3] = sums[4] = 0;
+            for (int i = 0; i < rowBytes; ++i) {
+                int x = current[i] & 0xff;
+                int a = i >= 3 ? current[i - 3] & 0xff : 0;
+                int b = prior[i] & 0xff;
+                int c = i >= 3 ? prior[i - 3] & 0xff : 0;
+                sums[0] += Math.abs((byte) x);
+                sums[1] += Math.abs((byte) (x - a));
+                sums[2] += Math.abs((byte) (x - b));
+                sums[3] += Math.abs((byte) (x - ((a + b) >> 1)));
+                sums[4] += Math.abs((byte) (x - paeth(a, b, c)));
+            }
+            int best = 0;
+            for (int type = 1; type < 5; ++type) {
+                if (sums[type] < sums[best]) best = type;
+            }
+            filtered[offset] = (byte) best;
+            for (int i = 0, o = offset + 1; i < rowBytes; ++i, ++o) {
+                int x = current[i] & 0xff;
+                int a = i >= 3 ? current[i - 3] & 0xff : 0;
+                int b = prior[i] & 0xff;
+                filtered[o] = (byte) switch (best) {
+                    case 0 -> x;
+                    case 1 -> x - a;
+                    case 2 -> x - b;
+                    case 3 -> x - ((a + b) >> 1);
+                    default -> x - paeth(a, b, i >= 3 ? prior[i - 3] & 0xff : 0);
+                };
+            }
+            byte[] swap = prior;
+            prior = current;
+            current = swap;
+        }
+        return filtered;
+    }
+
+    /**
+     * Reads a row of pixels and unpacks it into RGB bytes.
+     *
+     * @param y   the row
+     * @param rgb a scratch array for the packed pixels of the row
+     * @param row the array receiving the bytes
+     */
+    private void unpack(int y, int[] rgb, byte[] row) {
+        pixels.readRow(y, rgb);
+        for (int x = 0, i = 0; x < width; ++x) {
+            row[i++] = (byte) (rgb[x] >> 16);
+            row[i++] = (byte) (rgb[x] >> 8);
+            row[i++] = (byte) rgb[x];
+        }
+    }
+
+    /**
+     * The Paeth predictor of PNG filter type 4.
+     *
+     * @param a the byte to the left
+     * @param b the byte above
+     * @param c the byte above and to the left
+     * @return the one of a, b and c closest to a + b - c
+     */
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    /**
+     * Builds a PNG chunk.
+     *
+     * @param type   the chunk type
+     * @param data   the chunk data
+     * @param offset the index of the data in the array
+     * @param length the length of the data
+     * @return the chunk bytes - length, type, data and CRC
+     */
+    private static byte[] chunk(String type, byte[] data, int offset, int length) {
+        ByteBuffer chunk = ByteBuffer.allocate(length + 12).putInt(length)
+                .put(type.getBytes(StandardCharsets.US_ASCII)).put(data, offset, length);
+        CRC32 crc = new CRC32();
+        crc.update(chunk.array(), 4, length + 4);
+        return chunk.putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data (as zlib's adler32_combine does).
+     *
+     * @param adler1  the checksum of the first block
+     * @param adler2  the checksum of the second block
+     * @param length2 the length of the second block
+     * @return the checksum of the concatenated blocks
+     */
+    private static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ADLER_BASE << 1) sum2 -= ADLER_BASE << 1;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+}
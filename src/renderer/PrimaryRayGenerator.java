@@ -0,0 +1,144 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Generator of the primary rays of a frame.
+ * The center of the upper-left pixel and the steps between neighbouring pixel centers are computed
+ * once per frame, and the rays of a row (or a tile) are generated incrementally by adding the
+ * horizontal step, instead of recomputing the pixel offsets for each pixel as
+ * {@link Camera#constructRay(int, int, int, int)} does.
+ */
+class PrimaryRayGenerator {
+    /**
+     * The camera location - the head of all the primary rays
+     */
+    private final Point p0;
+    /**
+     * Vector from the camera location to the center of pixel (0, 0)
+     */
+    private final double cornerX, cornerY, cornerZ;
+    /**
+     * Step between the centers of two neighbouring pixels in a row (one column to the right)
+     */
+    private final double stepXx, stepXy, stepXz;
+    /**
+     * Step between the centers of two neighbouring pixels in a column (one row down)
+     */
+    private final double stepYx, stepYy, stepYz;
+
+    /**
+     * Precomputes the pixel steps of a frame.
+     *
+     * @param p0       the camera location
+     * @param vpCenter the center of the view plane
+     * @param vRight   the right direction of the camera (unit vector)
+     * @param vUp      the up direction of the camera (unit vector)
+     * @param width    the width of the view plane
+     * @param height   the height of the view plane
+     * @param nX       number of pixels in the x direction
+     * @param nY       number of pixels in the y direction
+     */
+    PrimaryRayGenerator(Point p0, Point vpCenter, Vector vRight, Vector vUp,
+                        double width, double height, int nX, int nY) {
+        this.p0 = p0;
+        double rx = width / nX; // Pixel width
+        double ry = height / nY; // Pixel height
+
+        stepXx = vRight.getX() * rx;
+        stepXy = vRight.getY() * rx;
+        stepXz = vRight.getZ() * rx;
+        stepYx = -vUp.getX() * ry;
+        stepYy = -vUp.getY() * ry;
+        stepYz = -vUp.getZ() * ry;
+
+        double xShift = -(nX - 1) / 2d; // Pixel (0, 0) in steps from the view plane center
+        double yShift = -(nY - 1) / 2d;
+        cornerX = vpCenter.getX() - p0.getX() + xShift * stepXx + yShift * stepYx;
+        cornerY = vpCenter.getY() - p0.getY() + xShift * stepXy + yShift * stepYy;
+        cornerZ = vpCenter.getZ() - p0.getZ() + xShift * stepXz + yShift * stepYz;
+    }
+
+    /**
+     * Writes the normalized directions of consecutive pixels of a row into a buffer, as x, y, z triads.
+     *
+     * @param i      the pixel row index
+     * @param j0     the column index of the first pixel
+     * @param count  the number of pixels
+     * @param buffer the buffer receiving 3 * count values
+     * @return the buffer
+     */
+    double[] directions(int i, int j0, int count, double[] buffer) {
+        double x = cornerX + i * stepYx + j0 * stepXx;
+        double y = cornerY + i * stepYy + j0 * stepXy;
+        double z = cornerZ + i * stepYz + j0 * stepXz;
+        for (int k = 0; k < count * 3; k += 3) {
+            double scale = 1 / Math.sqrt(x * x + y * y + z * z);
+            buffer[k] = x * scale;
+            buffer[k + 1] = y * scale;
+            buffer[k + 2] = z * scale;
+            x += stepXx;
+            y += stepXy;
+            z += stepXz;
+        }
+        return buffer;
+    }
+
+    /**
+     * Generates the rays through all the pixels of a tile, row by row, into the reusable buffer of a thread.
+     *
+     * @param tile   the tile
+     * @param buffer the buffer of the calling thread
+     * @return the array of the buffer holding the tile's rays in its first {@link Tile#size()} elements
+     */
+    Ray[] generateTile(Tile tile, Buffer buffer) {
+        Ray[] rays = buffer.rays(tile.size());
+        double[] dirs = buffer.directions(tile.width());
+        for (int r = 0, k = 0; r < tile.height(); ++r) {
+            directions(tile.y() + r, tile.x(), tile.width(), dirs);
+            for (int d = 0; d < tile.width() * 3; d += 3) {
+                rays[k++] = new Ray(p0, new Vector(dirs[d], dirs[d + 1], dirs[d + 2]));
+            }
+        }
+        return rays;
+    }
+
+    /**
+     * The arrays a render thread reuses over the tiles it traces, grown when a tile needs more room.
+     * A buffer must not be shared between threads.
+     */
+    static final class Buffer {
+        /**
+         * The primary rays of a tile
+         */
+        private Ray[] rays = new Ray[0];
+        /**
+         * The directions of the pixels of a tile row, as x, y, z triads
+         */
+        private double[] directions = new double[0];
+
+        /**
+         * Returns the array of the rays.
+         *
+         * @param count the number of rays needed
+         * @return the array, of at least count elements
+         */
+        Ray[] rays(int count) {
+            if (rays.length < count) rays = new Ray[count];
+            return rays;
+        }
+
+        /**
+         * Returns the array of the directions of a row.
+         *
+         * @param count the number of pixels of the row
+         * @return the array, of at least 3 * count elements
+         */
+        double[] directions(int count) {
+            if (directions.length < 3 * count) directions = new double[3 * count];
+            return directions;
+        }
+    }
+}
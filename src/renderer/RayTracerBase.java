@@ -30,4 +30,25 @@ public abstract class RayTracerBase {
      * @return the color at the intersection point
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Prepares the ray tracer for rendering the scene in its current state.
+     * It is called by the camera before each render; the default implementation does nothing.
+     */
+    public void prepare() {
+    }
+
+    /**
+     * Traces consecutive rays of an array (e.g. the primary rays of a tile).
+     * The default implementation traces each ray by itself.
+     *
+     * @param rays   the rays to trace
+     * @param count  the number of rays to trace
+     * @param colors the array receiving the colors of the rays
+     */
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        for (int i = 0; i < count; ++i) {
+            colors[i] = traceRay(rays[i]);
+        }
+    }
 }
@@ -0,0 +1,320 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only checkpoint file of a long render.
+ * The file starts with a header identifying the frame (scene hash, resolution and tile size),
+ * followed by one record per finished tile holding the tile's linear RGB values, deflated and
+ * protected by a CRC. Finished tiles are buffered and appended periodically; a record that was
+ * cut short by a crash is dropped when the checkpoint is loaded.
+ */
+class RenderCheckpoint {
+    /**
+     * Magic number of a checkpoint file ("RTCK")
+     */
+    private static final int MAGIC = 0x5254434B;
+    /**
+     * Version of the file layout
+     */
+    private static final int VERSION = 1;
+    /**
+     * Size of the header in bytes: magic, version, scene hash, nX, nY, tile size
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4;
+
+    /**
+     * The checkpoint file
+     */
+    private final Path file;
+    /**
+     * Hash identifying the scene and the camera of the render
+     */
+    private final long sceneHash;
+    /**
+     * Horizontal resolution of the frame
+     */
+    private final int nX;
+    /**
+     * Vertical resolution of the frame
+     */
+    private final int nY;
+    /**
+     * Side of the tiles of the frame
+     */
+    private final int tileSize;
+    /**
+     * Minimal time between two writes of the file, in nanoseconds
+     */
+    private final long intervalNanos;
+    /**
+     * Finished tiles not yet written, as encoded records
+     */
+    private final List<byte[]> pending = new ArrayList<>();
+    /**
+     * Time of the last write of the file ({@link System#nanoTime()} based)
+     */
+    private long lastWrite = System.nanoTime();
+    /**
+     * logger for reporting I/O failures
+     */
+    private final Logger logger = Logger.getLogger("RenderCheckpoint");
+
+    /**
+     * Constructs a checkpoint of a frame.
+     *
+     * @param file           the checkpoint file
+     * @param sceneHash      hash identifying the scene and the camera of the render
+     * @param nX             horizontal resolution of the frame
+     * @param nY             vertical resolution of the frame
+     * @param tileSize       side of the tiles of the frame
+     * @param intervalMillis minimal time between two writes of the file in milliseconds
+     */
+    RenderCheckpoint(Path file, long sceneHash, int nX, int nY, int tileSize, long intervalMillis) {
+        this.file = file;
+        this.sceneHash = sceneHash;
+        this.nX = nX;
+        this.nY = nY;
+        this.tileSize = tileSize;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Loads the tiles stored in the checkpoint file. If the file does not exist or belongs to
+     * another frame, a new file is started; a damaged tail record is cut off.
+     *
+     * @param tiles all the tiles of the frame
+     * @return the linear RGB values of the stored tiles, keyed by tile
+     */
+    synchronized Map<Tile, float[]> load(List<Tile> tiles) {
+        Map<Tile, float[]> stored = new HashMap<>();
+        try {
+            if (!Files.exists(file)) {
+                reset();
+                return stored;
+            }
+            long valid;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                 DataInputStream in = new DataInputStream(Channels.newInputStream(channel))) {
+                if (!readHeader(in)) {
+                    valid = -1;
+                } else {
+                    valid = HEADER_SIZE;
+                    while (true) {
+                        Map.Entry<Tile, float[]> entry = readRecord(in, tiles);
+                        if (entry == null) break;
+                        stored.put(entry.getKey(), entry.getValue());
+                        valid = channel.position();
+                    }
+                }
+            }
+            if (valid < 0) {
+                stored.clear();
+                reset();
+            } else {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - cannot read checkpoint " + file, e);
+        }
+        return stored;
+    }
+
+    /**
+     * Records a finished tile. The buffered tiles are appended to the file once the write interval has passed.
+     *
+     * @param tile the finished tile
+     * @param rgb  linear RGB values of the tile's pixels, row by row
+     */
+    void record(Tile tile, float[] rgb) {
+        byte[] record = encode(tile, rgb);
+        synchronized (this) {
+            pending.add(record);
+            if (System.nanoTime() - lastWrite >= intervalNanos) flush();
+        }
+    }
+
+    /**
+     * Appends all the buffered tiles to the file.
+     */
+    synchronized void flush() {
+        lastWrite = System.nanoTime();
+        if (pending.isEmpty()) return;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (byte[] record : pending) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+            channel.force(false);
+            pending.clear();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error - cannot write checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Starts a new checkpoint file holding the header only.
+     *
+     * @throws IOException on write failure
+     */
+    private void reset() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putLong(sceneHash).putInt(nX).putInt(nY).putInt(tileSize)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+        }
+    }
+
+    /**
+     * Reads and checks the header of the file.
+     *
+     * @param in the input stream positioned at the start of the file
+     * @return true if the file belongs to this frame
+     * @throws IOException on read failure
+     */
+    private boolean readHeader(DataInputStream in) throws IOException {
+        try {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == sceneHash
+                    && in.readInt() == nX && in.readInt() == nY && in.readInt() == tileSize;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads a single tile record.
+     *
+     * @param in    the input stream positioned at the start of a record
+     * @param tiles all the tiles of the frame
+     * @return the tile and its RGB values, or null at the end of the file or on a damaged record
+     * @throws IOException on read failure
+     */
+    private Map.Entry<Tile, float[]> readRecord(DataInputStream in, List<Tile> tiles) throws IOException {
+        try {
+            int index = in.readInt();
+            int length = in.readInt();
+            if (index < 0 || index >= tiles.size()) return null;
+            Tile tile = tiles.get(index);
+            float[] rgb = new float[tile.size() * 3];
+            // A length beyond what the deflater can produce for the tile is a damaged tail, not data to read
+            if (length < 0 || length > maxDeflatedSize(rgb.length * Float.BYTES)) return null;
+            byte[] data = in.readNBytes(length);
+            long crc = in.readLong();
+            if (data.length != length || crc != crc(data)) return null;
+
+            ByteBuffer.wrap(inflate(data, rgb.length * Float.BYTES)).asFloatBuffer().get(rgb);
+            return Map.entry(tile, rgb);
+        } catch (EOFException | DataFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Encodes a tile record: tile index, data length, deflated RGB values and their CRC.
+     *
+     * @param tile the tile
+     * @param rgb  linear RGB values of the tile's pixels
+     * @return the encoded record
+     */
+    private static byte[] encode(Tile tile, float[] rgb) {
+        ByteBuffer raw = ByteBuffer.allocate(rgb.length * Float.BYTES);
+        raw.asFloatBuffer().put(rgb);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw.array());
+        deflater.finish();
+        ByteArrayOutputStream data = new ByteArrayOutputStream(raw.capacity() / 2);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            data.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        byte[] bytes = data.toByteArray();
+        ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.length + 16);
+        try (DataOutputStream out = new DataOutputStream(record)) {
+            out.writeInt(tile.index());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeLong(crc(bytes));
+        } catch (IOException e) {
+            // This should never happen because the stream is in memory
+            throw new IllegalStateException(e);
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Returns the largest size of deflated data - zlib's bound for incompressible input.
+     *
+     * @param size the size of the raw data
+     * @return the largest size of the deflated data
+     */
+    private static long maxDeflatedSize(int size) {
+        return size + (size >> 12) + (size >> 14) + (size >> 25) + 13L;
+    }
+
+    /**
+     * Inflates the data of a tile record.
+     *
+     * @param data the deflated data
+     * @param size the expected size of the inflated data
+     * @return the inflated data
+     * @throws DataFormatException if the data is damaged or of a wrong size
+     */
+    private static byte[] inflate(byte[] data, int size) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[size];
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, size - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += n;
+            }
+            if (length != size || !inflater.finished()) throw new DataFormatException("Wrong tile data size");
+            return raw;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Computes the CRC of a record's data.
+     *
+     * @param data the data
+     * @return the CRC32 value
+     */
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+}
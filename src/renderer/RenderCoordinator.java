@@ -0,0 +1,333 @@
+package renderer;
+
+import scene.SceneCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coordinator of a render distributed over worker processes ({@link RenderWorker}) connected over TCP.
+ * Each worker connecting to the coordinator receives the scene in the binary format of {@link SceneCodec},
+ * then the render job: the settings of the camera and of its ray tracer (which must be a {@link SimpleRayTracer}
+ * or an {@link IterativeRayTracer}) and the resolution of the frame. Both are encoded once per render and sent
+ * as length-prefixed blocks. The worker then announces how many tiles it traces at once. The coordinator then
+ * hands out the tiles of the frame dynamically, keeping that many tiles in flight on each worker, and writes
+ * the returned pixels into the camera's image writer. The tiles of a worker that disconnects, or that does not
+ * return a tile within the worker timeout, are handed to the other workers; workers may join at any time.
+ * The job, the tiles and the results are small records sent by Java serialization, and each side only accepts
+ * the record classes it expects; the protocol is still meant for trusted networks only.
+ */
+public class RenderCoordinator implements Closeable {
+    /**
+     * Time between checks of a waiting connection for requeued tiles and for the end of the render,
+     * in milliseconds
+     */
+    private static final long POLL_MILLIS = 100;
+    /**
+     * The classes a worker may send to the coordinator
+     */
+    private static final ObjectInputFilter RESULT_FILTER =
+            ObjectInputFilter.Config.createFilter("renderer.RenderCoordinator$Result;renderer.Tile;[F;!*");
+
+    /**
+     * The render job sent to a worker when it connects, after the scene
+     *
+     * @param camera the settings of the camera of the frame
+     * @param tracer the settings of the camera's ray tracer
+     * @param nx     number of pixels in the x direction
+     * @param ny     number of pixels in the y direction
+     */
+    record Job(Camera.Settings camera, SimpleRayTracer.Settings tracer, int nx, int ny) implements Serializable {
+    }
+
+    /**
+     * A tile traced by a worker
+     *
+     * @param tile the tile
+     * @param rgb  the linear RGB values of the tile's pixels, row by row
+     */
+    record Result(Tile tile, float[] rgb) implements Serializable {
+    }
+
+    /**
+     * The state of a running render, shared by the connections of its workers
+     */
+    private static final class Render {
+        /**
+         * The encoded scene and job
+         */
+        private final byte[] job;
+        /**
+         * The tiles waiting for a worker
+         */
+        private final BlockingQueue<Tile> pending;
+        /**
+         * The number of tiles not yet written
+         */
+        private final CountDownLatch remaining;
+        /**
+         * The action writing a returned tile into the image
+         */
+        private final BiConsumer<Tile, float[]> receiver;
+        /**
+         * Whether the coordinator stopped waiting for the render - it finished, timed out or was interrupted
+         */
+        private volatile boolean stopped = false;
+
+        /**
+         * Constructs the state of a render.
+         *
+         * @param job      the encoded scene and job
+         * @param tiles    the tiles of the frame
+         * @param receiver the action writing a returned tile into the image
+         */
+        Render(byte[] job, List<Tile> tiles, BiConsumer<Tile, float[]> receiver) {
+            this.job = job;
+            this.pending = new LinkedBlockingQueue<>(tiles);
+            this.remaining = new CountDownLatch(tiles.size());
+            this.receiver = receiver;
+        }
+
+        /**
+         * Checks whether the workers should stop: all the tiles were written, or the coordinator stopped waiting.
+         *
+         * @return true if the render is over
+         */
+        boolean isOver() {
+            return stopped || remaining.getCount() == 0;
+        }
+    }
+
+    /**
+     * The socket the workers connect to
+     */
+    private final ServerSocket server;
+    /**
+     * Longest wait for a result from a worker before its tiles are reassigned, in milliseconds, 0 for no limit
+     */
+    private int workerTimeout = 60_000;
+    /**
+     * Longest duration of a render, in milliseconds, 0 for no limit
+     */
+    private long renderTimeout = 0;
+    /**
+     * logger for reporting lost workers
+     */
+    private final Logger logger = Logger.getLogger("RenderCoordinator");
+
+    /**
+     * Constructs a coordinator listening for workers.
+     *
+     * @param port the TCP port to listen on, 0 for any free port (see {@link #getPort()})
+     * @throws IOException              if the port cannot be opened
+     * @throws IllegalArgumentException if the port is out of range
+     */
+    public RenderCoordinator(int port) throws IOException {
+        if (port < 0 || port > 0xFFFF) throw new IllegalArgumentException("Port out of range");
+        server = new ServerSocket(port);
+        server.setSoTimeout((int) POLL_MILLIS);
+    }
+
+    /**
+     * Returns the port the workers connect to.
+     *
+     * @return the local port of the coordinator
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Sets the longest wait for a result from a worker, after which the worker is considered lost
+     * and its tiles are reassigned.
+     *
+     * @param millis the timeout in milliseconds, 0 for no limit
+     * @return the coordinator itself for chaining
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public RenderCoordinator setWorkerTimeout(int millis) {
+        if (millis < 0) throw new IllegalArgumentException("Worker timeout cannot be negative");
+        workerTimeout = millis;
+        return this;
+    }
+
+    /**
+     * Sets the longest duration of a render, after which {@link #render(Camera)} gives up - e.g. when
+     * all the workers are gone and no other worker connects.
+     *
+     * @param millis the timeout in milliseconds, 0 for no limit
+     * @return the coordinator itself for chaining
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public RenderCoordinator setRenderTimeout(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Render timeout cannot be negative");
+        renderTimeout = millis;
+        return this;
+    }
+
+    /**
+     * Renders the image of a camera by the connected workers, and waits until all its tiles were written
+     * into the camera's image writer. The workers of the render are released at its end.
+     *
+     * @param camera the camera, with its image writer and ray tracer
+     * @throws IllegalArgumentException if the camera is null, or its ray tracer or scene cannot be sent
+     *                                  to the workers
+     * @throws IllegalStateException    if the coordinator is closed, the render timeout passed before all
+     *                                  the tiles were written, or the thread was interrupted
+     */
+    public void render(Camera camera) {
+        if (camera == null) throw new IllegalArgumentException("Camera cannot be null");
+        if (server.isClosed()) throw new IllegalStateException("Coordinator is closed");
+        Render render = new Render(encode(camera), camera.tiles(), camera.tileReceiver());
+
+        Thread acceptor = new Thread(() -> {
+            int workers = 0;
+            while (!render.isOver() && !server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread connection = new Thread(() -> serve(socket, render), "render-coordinator-" + ++workers);
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch (SocketTimeoutException e) {
+                    // check again whether the render is finished
+                } catch (IOException e) {
+                    if (!server.isClosed()) logger.log(Level.WARNING, "Accepting a worker failed", e);
+                }
+            }
+        }, "render-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        try {
+            boolean finished = true;
+            if (renderTimeout == 0) render.remaining.await();
+            else finished = render.remaining.await(renderTimeout, TimeUnit.MILLISECONDS);
+            if (!finished) throw new IllegalStateException("Render not finished within " + renderTimeout + " ms, "
+                    + render.remaining.getCount() + " tiles missing");
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering", e);
+        } finally {
+            // Release the workers of an unfinished render
+            render.stopped = true;
+        }
+    }
+
+    /**
+     * Serves a connected worker: sends it the job, then keeps it busy with tiles until the render is over.
+     * If the connection fails, the tiles in flight on the worker are returned to the pending tiles.
+     *
+     * @param socket the connection of the worker
+     * @param render the render
+     */
+    private void serve(Socket socket, Render render) {
+        Set<Tile> inFlight = new HashSet<>();
+        try (socket) {
+            socket.setSoTimeout(workerTimeout);
+            socket.setTcpNoDelay(true);
+            BufferedOutputStream buffer = new BufferedOutputStream(socket.getOutputStream());
+            buffer.write(render.job);
+            ObjectOutputStream out = new ObjectOutputStream(buffer);
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            in.setObjectInputFilter(RESULT_FILTER);
+            int slots = Math.max(1, in.readInt());
+
+            while (!render.isOver()) {
+                Tile tile = inFlight.size() < slots ? render.pending.poll() : null;
+                if (tile == null && inFlight.isEmpty()) {
+                    // Wait for tiles returned by lost workers, or for the end of the render
+                    tile = render.pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (tile == null) continue;
+                }
+                if (tile != null) {
+                    inFlight.add(tile);
+                    out.writeObject(tile);
+                    out.flush();
+                    continue;
+                }
+                Result result = (Result) in.readObject();
+                // Check the whole result before writing any of it, so that a malformed tile is requeued intact
+                if (!inFlight.contains(result.tile())) throw new IOException("Unexpected tile " + result.tile());
+                if (result.rgb() == null || result.rgb().length != result.tile().size() * 3)
+                    throw new IOException("Malformed tile " + result.tile());
+                inFlight.remove(result.tile());
+                if (render.stopped) break;
+                render.receiver.accept(result.tile(), result.rgb());
+                render.remaining.countDown();
+            }
+            out.writeObject(null);
+            out.flush();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            if (!inFlight.isEmpty()) logger.log(Level.WARNING, "Worker lost, reassigning its tiles", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            render.pending.addAll(inFlight);
+        }
+    }
+
+    /**
+     * Encodes the render job of a camera: the length-prefixed block of the encoded scene, followed by
+     * the length-prefixed block of the serialized {@link Job}.
+     *
+     * @param camera the camera
+     * @return the encoded scene and job
+     * @throws IllegalArgumentException if the camera's ray tracer or scene cannot be sent to the workers
+     */
+    private static byte[] encode(Camera camera) {
+        if (!(camera.getRayTracer() instanceof SimpleRayTracer tracer))
+            throw new IllegalArgumentException("The ray tracer cannot be sent to the workers");
+        ImageWriter imageWriter = camera.getImageWriter();
+        Job job = new Job(camera.settings(), tracer.settings(), imageWriter.getNx(), imageWriter.getNy());
+        ByteArrayOutputStream jobBytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(jobBytes)) {
+            out.writeObject(job);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        byte[] sceneBytes = SceneCodec.encode(tracer.scene);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + sceneBytes.length + jobBytes.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(sceneBytes.length);
+            out.write(sceneBytes);
+            out.writeInt(jobBytes.size());
+            jobBytes.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Stops listening for workers.
+     *
+     * @throws IOException if closing the socket failed
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
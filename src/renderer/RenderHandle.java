@@ -0,0 +1,242 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Handle of a running render started by {@link Camera#renderAsync(long)}.
+ * The render workers take tiles one at a time and check the handle cooperatively between tiles,
+ * so a cancellation or an expired time budget stops the render after the tiles in progress are finished.
+ * The handle gives access to the (possibly partially) rendered image and to the set of completed tiles.
+ */
+public class RenderHandle {
+    /**
+     * The image writer the tiles are written into
+     */
+    private final ImageWriter imageWriter;
+    /**
+     * All the tiles of the frame in row-major order
+     */
+    private final List<Tile> tiles;
+    /**
+     * Index of the next tile to hand to a worker
+     */
+    private final AtomicInteger nextTile = new AtomicInteger();
+    /**
+     * The tiles that were fully rendered
+     */
+    private final Set<Tile> completedTiles = ConcurrentHashMap.newKeySet();
+    /**
+     * Wall-clock deadline of the render ({@link System#nanoTime()} based), Long.MAX_VALUE for no deadline
+     */
+    private final long deadline;
+    /**
+     * The first failure thrown by a worker, if any
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    /**
+     * The worker threads of the render
+     */
+    private final List<Thread> workers = new ArrayList<>();
+    /**
+     * Cancellation flag
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructs a handle for rendering the given tiles.
+     *
+     * @param imageWriter      the image writer the tiles are written into
+     * @param tiles            all the tiles of the frame
+     * @param timeBudgetMillis the wall-clock budget of the render in milliseconds, 0 for no limit
+     */
+    RenderHandle(ImageWriter imageWriter, List<Tile> tiles, long timeBudgetMillis) {
+        if (timeBudgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget cannot be negative");
+        }
+        this.imageWriter = imageWriter;
+        this.tiles = List.copyOf(tiles);
+        this.deadline = timeBudgetMillis == 0 ? Long.MAX_VALUE : System.nanoTime() + timeBudgetMillis * 1_000_000L;
+    }
+
+    /**
+     * Starts the worker threads.
+     *
+     * @param threadsCount  the number of worker threads (at least one is started)
+     * @param tileRenderers the factory of the action rendering a single tile, called once by each worker
+     *                      so that each worker may keep its own buffers
+     * @param onFinish      the action run by the last worker to finish
+     */
+    void start(int threadsCount, Supplier<Consumer<Tile>> tileRenderers, Runnable onFinish) {
+        int count = Math.max(1, threadsCount);
+        AtomicInteger running = new AtomicInteger(count);
+        for (int i = count; i > 0; --i) {
+            Thread worker = new Thread(() -> {
+                work(tileRenderers);
+                if (running.decrementAndGet() == 0) {
+                    try {
+                        onFinish.run();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }, "render-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        for (Thread worker : workers) worker.start();
+    }
+
+    /**
+     * Worker loop - renders tiles until the tiles are exhausted or the render is stopped.
+     *
+     * @param tileRenderers the factory of the action rendering a single tile
+     */
+    private void work(Supplier<Consumer<Tile>> tileRenderers) {
+        try {
+            Consumer<Tile> tileRenderer = tileRenderers.get();
+            for (Tile tile = nextTile(); tile != null; tile = nextTile()) {
+                tileRenderer.accept(tile);
+                completedTiles.add(tile);
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Takes the next tile that was not completed yet.
+     *
+     * @return the next tile, or null if the tiles are exhausted or the render should stop
+     */
+    private Tile nextTile() {
+        while (!shouldStop()) {
+            int index = nextTile.getAndIncrement();
+            if (index >= tiles.size()) return null;
+            Tile tile = tiles.get(index);
+            if (!completedTiles.contains(tile)) return tile;
+        }
+        return null;
+    }
+
+    /**
+     * Marks a tile as completed without rendering it.
+     *
+     * @param tile the completed tile
+     */
+    void markCompleted(Tile tile) {
+        completedTiles.add(tile);
+    }
+
+    /**
+     * Checks whether the workers should stop taking tiles.
+     *
+     * @return true if the render was cancelled or its deadline has passed
+     */
+    boolean shouldStop() {
+        return cancelled || isExpired();
+    }
+
+    /**
+     * Requests the render to stop. The tiles in progress are finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the render was cancelled (explicitly or due to a worker failure).
+     *
+     * @return true if the render was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Checks whether the time budget of the render has run out.
+     *
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * Checks whether all the workers have finished.
+     *
+     * @return true if no worker is running
+     */
+    public boolean isDone() {
+        for (Thread worker : workers) {
+            if (worker.isAlive()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether all the tiles of the frame were rendered.
+     *
+     * @return true if the image is complete
+     */
+    public boolean isComplete() {
+        return completedTiles.size() == tiles.size();
+    }
+
+    /**
+     * Waits for all the workers to finish.
+     *
+     * @return the handle itself for chaining
+     * @throws IllegalStateException if the waiting thread was interrupted
+     * @throws RuntimeException      the failure thrown by a worker, if any
+     */
+    public RenderHandle await() {
+        try {
+            for (Thread worker : workers) worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the render", e);
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException re) throw re;
+        if (e instanceof Error err) throw err;
+        if (e != null) throw new IllegalStateException("Render worker failed", e);
+        return this;
+    }
+
+    /**
+     * Returns the image writer holding the (possibly partially) rendered image.
+     *
+     * @return the image writer of the render
+     */
+    public ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
+    /**
+     * Returns all the tiles of the frame.
+     *
+     * @return the tiles of the frame in row-major order
+     */
+    public List<Tile> getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Returns a snapshot of the tiles that were fully rendered so far.
+     *
+     * @return the completed tiles
+     */
+    public Set<Tile> getCompletedTiles() {
+        return Collections.unmodifiableSet(new HashSet<>(completedTiles));
+    }
+}
@@ -0,0 +1,197 @@
+package renderer;
+
+import scene.Scene;
+import scene.SceneCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Worker process of a distributed render (see {@link RenderCoordinator}). The worker connects to the coordinator,
+ * receives the scene and the settings of the camera and its ray tracer, prepares the ray tracer, and traces
+ * the tiles handed to it by several threads, sending back the linear RGB values of each tile, until the coordinator releases it at the end
+ * of the render. It is started as
+ * <pre>java -cp &lt;classes&gt; renderer.RenderWorker &lt;host&gt; &lt;port&gt; [threads]</pre>
+ */
+public final class RenderWorker {
+    /**
+     * The classes of the render job
+     */
+    private static final ObjectInputFilter JOB_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=3;renderer.RenderCoordinator$Job;renderer.Camera$Settings;renderer.SimpleRayTracer$Settings;"
+                    + "[D;!*");
+    /**
+     * The classes the coordinator may send after the job
+     */
+    private static final ObjectInputFilter TILE_FILTER = ObjectInputFilter.Config.createFilter("renderer.Tile;!*");
+    /**
+     * Largest encoded scene accepted from the coordinator, in bytes
+     */
+    private static final int MAX_SCENE_BYTES = 1 << 30;
+    /**
+     * Largest serialized job accepted from the coordinator, in bytes
+     */
+    private static final int MAX_JOB_BYTES = 1 << 16;
+    /**
+     * Marker stopping the tracing threads
+     */
+    private static final Tile END = new Tile(-1, 0, 0, 0, 0);
+
+    /**
+     * Private constructor - the worker only has static methods
+     */
+    private RenderWorker() {
+    }
+
+    /**
+     * Runs a worker for one render.
+     *
+     * @param args the host and the port of the coordinator, and optionally the number of tracing threads
+     *             (the number of processors by default)
+     * @throws IOException if the connection to the coordinator failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java renderer.RenderWorker <host> <port> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length == 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        run(args[0], Integer.parseInt(args[1]), threads);
+    }
+
+    /**
+     * Connects to a coordinator and traces the tiles it hands out, until it releases the worker.
+     *
+     * @param host    the host of the coordinator
+     * @param port    the port of the coordinator
+     * @param threads the number of tracing threads, which is also the number of tiles asked for at once
+     * @throws IOException              if the connection to the coordinator failed or was lost
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public static void run(String host, int port, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Number of threads must be positive");
+        // Not a try-with-resources: a failing tracing thread closes the socket to drop the connection
+        Socket socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedInputStream buffer = new BufferedInputStream(socket.getInputStream());
+            DataInputStream data = new DataInputStream(buffer);
+            Scene scene = SceneCodec.decode(ByteBuffer.wrap(readBlock(data, MAX_SCENE_BYTES)));
+            RenderCoordinator.Job job = readJob(readBlock(data, MAX_JOB_BYTES));
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(threads);
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(buffer);
+            in.setObjectInputFilter(TILE_FILTER);
+
+            Camera camera = job.camera().camera(job.tracer().tracer(scene));
+            PrimaryRayGenerator generator = camera.prepare(job.nx(), job.ny());
+            BlockingQueue<Tile> tiles = new LinkedBlockingQueue<>();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> tracers = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                Thread tracer = new Thread(() -> {
+                    PrimaryRayGenerator.Buffer rays = new PrimaryRayGenerator.Buffer();
+                    try {
+                        for (Tile tile = tiles.take(); tile != END; tile = tiles.take()) {
+                            float[] rgb = Camera.toRgb(camera.traceTile(tile, generator, rays));
+                            synchronized (out) {
+                                out.writeObject(new RenderCoordinator.Result(tile, rgb));
+                                // Forget the sent arrays, so that neither side keeps them referenced
+                                out.reset();
+                                out.flush();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        // Drop the connection, so that the coordinator reassigns the tiles of the worker
+                        failure.compareAndSet(null, e);
+                        try {
+                            socket.close();
+                        } catch (IOException ignored) {
+                            // already failed
+                        }
+                    }
+                }, "render-worker-" + i);
+                tracer.setDaemon(true);
+                tracer.start();
+                tracers.add(tracer);
+            }
+
+            try {
+                for (Object message = in.readObject(); message != null; message = in.readObject())
+                    tiles.add((Tile) message);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unexpected message from the coordinator", e);
+            } finally {
+                for (int i = 0; i < threads; ++i) tiles.add(END);
+                for (Thread tracer : tracers) join(tracer);
+                Throwable e = failure.get();
+                if (e instanceof IOException io) throw io;
+                if (e instanceof RuntimeException re) throw re;
+                if (e instanceof Error err) throw err;
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Reads a length-prefixed block sent by the coordinator.
+     *
+     * @param in  the stream from the coordinator
+     * @param max the largest accepted length of the block
+     * @return the block
+     * @throws IOException if the stream failed, or the length is negative or above the limit
+     */
+    private static byte[] readBlock(DataInputStream in, int max) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > max) throw new IOException("Block length " + length + " out of range");
+        byte[] block = new byte[length];
+        in.readFully(block);
+        return block;
+    }
+
+    /**
+     * Deserializes the render job, accepting only the classes of the job.
+     *
+     * @param bytes the serialized job
+     * @return the job
+     * @throws IOException if the job cannot be deserialized
+     */
+    private static RenderCoordinator.Job readJob(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(JOB_FILTER);
+            return (RenderCoordinator.Job) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a render job", e);
+        }
+    }
+
+    /**
+     * Waits for a tracing thread to finish.
+     *
+     * @param tracer the thread
+     * @throws IOException if the thread was interrupted
+     */
+    private static void join(Thread tracer) throws IOException {
+        try {
+            tracer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while tracing", e);
+        }
+    }
+}
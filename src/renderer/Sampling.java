@@ -0,0 +1,84 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Vector;
+
+/**
+ * Sampling of directions for the distributed ray tracing effects.
+ * The samples are mapped from parameters in the unit square, so that stratified (jittered grid)
+ * parameters give stratified directions.
+ */
+final class Sampling {
+    /**
+     * Largest difference of a color component between the first samples of an adaptive estimate
+     * for which they agree
+     */
+    static final double AGREEMENT = 2;
+
+    /**
+     * Don't let anyone instantiate this class
+     */
+    private Sampling() {
+    }
+
+    /**
+     * Maps parameters in the unit square to a direction in a cone, uniformly over the cone's solid angle.
+     *
+     * @param axis  the axis of the cone, normalized
+     * @param angle the half-angle of the cone, in radians
+     * @param u     the first parameter, in [0, 1] - 0 is the axis and 1 the boundary of the cone
+     * @param v     the second parameter, in [0, 1] - the angle around the axis
+     * @return the normalized direction
+     */
+    static Vector cone(Vector axis, double angle, double u, double v) {
+        double cosTheta = 1 - u * (1 - Math.cos(angle));
+        double sinTheta = Math.sqrt(Math.max(0, 1 - cosTheta * cosTheta));
+        if (sinTheta == 0) return axis;
+        double phi = 2 * Math.PI * v;
+        double a = sinTheta * Math.cos(phi), b = sinTheta * Math.sin(phi);
+
+        double ax = axis.getX(), ay = axis.getY(), az = axis.getZ();
+        Vector first = axis.crossProduct(Math.abs(ax) < 0.9 ? new Vector(1, 0, 0) : new Vector(0, 1, 0)).normalize();
+        Vector second = axis.crossProduct(first);
+        return new Vector(ax * cosTheta + first.getX() * a + second.getX() * b,
+                ay * cosTheta + first.getY() * a + second.getY() * b,
+                az * cosTheta + first.getZ() * a + second.getZ() * b).normalize();
+    }
+
+    /**
+     * Maps parameters in the unit square to a direction in a hemisphere, with a density proportional to
+     * the cosine of the angle from the pole (Malley's method - a uniform disk projected up to the hemisphere).
+     *
+     * @param normal the pole of the hemisphere, normalized
+     * @param u      the first parameter, in [0, 1] - 0 is the pole and 1 the equator
+     * @param v      the second parameter, in [0, 1] - the angle around the pole
+     * @return the normalized direction
+     */
+    static Vector cosineHemisphere(Vector normal, double u, double v) {
+        return cone(normal, Math.PI / 2, 1 - Math.sqrt(1 - u), v);
+    }
+
+    /**
+     * Checks whether the first samples of an adaptive estimate agree, so that no more samples are needed:
+     * each color component differs by at most {@link #AGREEMENT} between the samples.
+     *
+     * @param colors the array holding the samples
+     * @param from   the index of the first sample
+     * @param count  the number of samples
+     * @return true if the samples agree
+     */
+    static boolean agree(Color[] colors, int from, int count) {
+        double minR = Double.POSITIVE_INFINITY, minG = minR, minB = minR;
+        double maxR = Double.NEGATIVE_INFINITY, maxG = maxR, maxB = maxR;
+        for (int i = from; i < from + count; ++i) {
+            Color color = colors[i];
+            minR = Math.min(minR, color.getRed());
+            minG = Math.min(minG, color.getGreen());
+            minB = Math.min(minB, color.getBlue());
+            maxR = Math.max(maxR, color.getRed());
+            maxG = Math.max(maxG, color.getGreen());
+            maxB = Math.max(maxB, color.getBlue());
+        }
+        return maxR - minR <= AGREEMENT && maxG - minG <= AGREEMENT && maxB - minB <= AGREEMENT;
+    }
+}
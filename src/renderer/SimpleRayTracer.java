@@ -1,10 +1,22 @@
 package renderer;
 
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.RayPacket;
+import geometries.ShadowRay;
+import lighting.AreaLight;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 import geometries.Intersectable.GeoPoint;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import static primitives.Util.alignZero;
 
 /**
@@ -13,7 +25,82 @@ import static primitives.Util.alignZero;
 public class SimpleRayTracer extends RayTracerBase {
     private static final int MAX_CALC_COLOR_LEVEL = 10;
     private static final double MIN_CALC_COLOR_K = 0.001;
-    private static final Double3 INITIAL_K = Double3.ONE;
+    static final Double3 INITIAL_K = Double3.ONE;
+    /**
+     * Per-thread accumulator of the local effects, reused over all the shading calculations of a thread
+     */
+    private static final ThreadLocal<ColorAccumulator> ACCUMULATOR = ThreadLocal.withInitial(ColorAccumulator::new);
+    /**
+     * Per-thread list of the lights reaching a point, reused over all the shading calculations of a thread
+     */
+    private static final ThreadLocal<List<LightSource>> LIGHTS = ThreadLocal.withInitial(ArrayList::new);
+    /**
+     * Per-thread selection of the lights evaluated at a point
+     */
+    private static final ThreadLocal<LightSampler> SAMPLER = ThreadLocal.withInitial(LightSampler::new);
+    /**
+     * Per-thread direction from a light to the shaded point
+     */
+    private static final ThreadLocal<double[]> LIGHT_DIRECTION = ThreadLocal.withInitial(() -> new double[3]);
+    /**
+     * Per-thread shadow ray, reused by all the shadow queries of a thread
+     */
+    private static final ThreadLocal<ShadowRay> SHADOW_RAY = ThreadLocal.withInitial(ShadowRay::new);
+    /**
+     * Number of consecutive shadow rays a cached occluder may fail to block before the cache of its light is paused
+     */
+    private static final int OCCLUDER_MISS_RUN = 4;
+    /**
+     * Number of shadow rays towards a light that skip its paused occluder cache
+     */
+    private static final int OCCLUDER_PAUSE = 64;
+
+    /**
+     * The last opaque occluder a thread found towards a light, and the state of its pause after a run of misses
+     */
+    private static final class LastOccluder {
+        /**
+         * The occluder, null until one is found
+         */
+        private Geometry geometry = null;
+        /**
+         * The number of consecutive shadow rays the occluder did not block
+         */
+        private int misses = 0;
+        /**
+         * The number of shadow rays still to skip the occluder
+         */
+        private int paused = 0;
+    }
+
+    int maxLevel = MAX_CALC_COLOR_LEVEL;
+    private double minK = MIN_CALC_COLOR_K;
+    private double rouletteThreshold = 0;
+    private int coneSamples = 16;
+    private double occlusionDistance = 0;
+    private int occlusionSamples = 16;
+    private boolean bvh = false;
+    private int packetSize = 0;
+    private Intersectable geometries = null;
+    /**
+     * Prepared hierarchy of the still geometries of an animation, shared by its frames
+     */
+    private Intersectable stillGeometries = null;
+    /**
+     * The lights of the current frame of an animation - the scene lights and the frame's animated lights
+     */
+    private List<LightSource> frameLights = null;
+    private double lightCutoff = 0;
+    private LightIndex lightIndex = null;
+    private int lightSamples = 0;
+    private boolean occluderCache = false;
+    /**
+     * Per-thread last opaque occluder found towards each light, recreated by {@link #prepare()}
+     */
+    private ThreadLocal<Map<LightSource, LastOccluder>> occluders = null;
+    private final LongAdder shadowTraversals = new LongAdder();
+    private final LongAdder occluderCacheHits = new LongAdder();
+    private final LongAdder occluderCacheMisses = new LongAdder();
 
     /**
      * Constructor to initialize the ray tracer with a scene.
@@ -24,6 +111,327 @@ public class SimpleRayTracer extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Sets the maximal depth of the reflection and refraction recursion.
+     *
+     * @param maxLevel the maximal number of levels of a ray tree, including the primary ray (default 10)
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the level is not positive
+     */
+    public SimpleRayTracer setMaxLevel(int maxLevel) {
+        if (maxLevel <= 0) throw new IllegalArgumentException("Maximal recursion level must be positive");
+        this.maxLevel = maxLevel;
+        return this;
+    }
+
+    /**
+     * Sets the minimal attenuation of a ray that is still traced, and of a light that is still shaded.
+     * Rays whose accumulated attenuation is below it in all the color components are cut off
+     * (unless Russian roulette is used).
+     *
+     * @param minK the minimal attenuation coefficient (default 0.001)
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the coefficient is not in [0, 1)
+     */
+    public SimpleRayTracer setMinK(double minK) {
+        if (minK < 0 || minK >= 1) throw new IllegalArgumentException("Minimal attenuation must be in [0, 1)");
+        this.minK = minK;
+        return this;
+    }
+
+    /**
+     * Sets Russian roulette termination of the reflected and refracted rays instead of cutting them off
+     * by the minimal attenuation: a ray whose throughput (the largest component of its accumulated attenuation)
+     * is below the threshold is traced with probability throughput/threshold, and its color is divided
+     * by that probability. The expected color is kept, while the weak branches of deep ray trees
+     * (between facing mirrors, in nested glass) are pruned early; the surviving rays add noise.
+     * The maximal recursion level still bounds the depth.
+     *
+     * @param threshold the throughput below which rays play the roulette (e.g. 0.2), 0 to cut off the rays
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the threshold is not in [0, 1]
+     */
+    public SimpleRayTracer setRussianRoulette(double threshold) {
+        if (threshold < 0 || threshold > 1) throw new IllegalArgumentException("Roulette threshold must be in [0, 1]");
+        rouletteThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Sets the budget of rays of a glossy reflection or a diffuse transmission (see {@link Material#glossiness}
+     * and {@link Material#diffuseness}). The budget applies to the rays spawned at a primary hit, reduced by
+     * the attenuation of the effect and rounded up to a square grid; the rays stop being added once
+     * the first rays agree, and deeper bounces trace a single random ray.
+     *
+     * @param samples the maximal number of rays of a cone effect at the first bounce (default 16)
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public SimpleRayTracer setConeSamples(int samples) {
+        if (samples <= 0) throw new IllegalArgumentException("Number of cone samples must be positive");
+        coneSamples = samples;
+        return this;
+    }
+
+    /**
+     * Sets ambient occlusion: the scene's ambient light at a primary hit is scaled by the fraction of the
+     * hemisphere above the point that is not blocked within a short distance (see {@link Intersectable#hasIntersection}).
+     * The budget of occlusion rays is spent only where the first rays disagree, mostly near creases and contacts.
+     *
+     * @param distance the reach of the occlusion rays, 0 to disable ambient occlusion
+     * @param samples  the maximal number of occlusion rays of a point, rounded up to a square grid
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the distance is negative or the number of samples is not positive
+     */
+    public SimpleRayTracer setAmbientOcclusion(double distance, int samples) {
+        if (distance < 0) throw new IllegalArgumentException("Occlusion distance cannot be negative");
+        if (samples <= 0) throw new IllegalArgumentException("Number of occlusion samples must be positive");
+        occlusionDistance = distance;
+        occlusionSamples = samples;
+        return this;
+    }
+
+    /**
+     * Sets whether a bounding volume hierarchy of the scene geometries is built before rendering.
+     *
+     * @param bvh true to trace the rays through a bounding volume hierarchy
+     * @return the ray tracer itself for chaining
+     */
+    public SimpleRayTracer setBvh(boolean bvh) {
+        this.bvh = bvh;
+        return this;
+    }
+
+    /**
+     * Sets the number of coherent rays traced together as a packet by {@link #traceRays(Ray[], int, Color[])}.
+     *
+     * @param packetSize the number of rays in a packet, 0 or 1 to trace each ray by itself
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the packet size is negative
+     */
+    public SimpleRayTracer setPacketSize(int packetSize) {
+        if (packetSize < 0) throw new IllegalArgumentException("Packet size cannot be negative");
+        this.packetSize = packetSize;
+        return this;
+    }
+
+    /**
+     * Sets the light culling threshold: a light is not evaluated at the points where its attenuated
+     * intensity is below the threshold in all the color components (see {@link LightSource#getRadius(double)}),
+     * and the lights reaching a point are found through a spatial index of the lights built by {@link #prepare()}.
+     * The light beyond the radius of a light is dropped, so the threshold should be well below
+     * the smallest visible color difference.
+     *
+     * @param minIntensity the threshold intensity (e.g. 0.5), 0 to evaluate all the lights at every point
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public SimpleRayTracer setLightCutoff(double minIntensity) {
+        if (minIntensity < 0) throw new IllegalArgumentException("Light cutoff intensity cannot be negative");
+        lightCutoff = minIntensity;
+        lightIndex = null;
+        return this;
+    }
+
+    /**
+     * Sets the budget of lights evaluated at a hit point. At a point reached by more lights,
+     * the lights are picked at random by their attenuated intensity at the point, and their contributions
+     * are weighted so that the expected color is that of evaluating all the lights (see {@link LightSampler}).
+     * The shadow rays and the shading of a hit are thus bounded by the budget, at the price of noise
+     * that decreases as the budget (or the number of samples of a pixel) grows.
+     *
+     * @param lightsPerHit the number of lights picked at a hit point, 0 to evaluate all the lights
+     * @return the ray tracer itself for chaining
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public SimpleRayTracer setLightSamples(int lightsPerHit) {
+        if (lightsPerHit < 0) throw new IllegalArgumentException("Number of light samples cannot be negative");
+        lightSamples = lightsPerHit;
+        return this;
+    }
+
+    /**
+     * Sets whether each render thread remembers the last opaque occluder found towards each light,
+     * and tests a shadow ray against it before traversing the scene. Neighbouring points shaded by
+     * a thread are usually shadowed by the same occluder, so most of the shadow rays in the shadow are
+     * answered by a single geometry; the colors are the same as without the cache. Each miss costs
+     * an intersection test on top of the traversal, so after a run of misses the cache of a light is paused
+     * for a number of shadow rays. The cache pays off where large occluders shadow contiguous areas; in lit
+     * scenes or scenes shadowed by many small occluders it answers few rays, and the remaining misses
+     * can make the frame slightly slower than without it.
+     *
+     * @param occluderCache true to cache the last occluder per light and per thread
+     * @return the ray tracer itself for chaining
+     */
+    public SimpleRayTracer setOccluderCache(boolean occluderCache) {
+        this.occluderCache = occluderCache;
+        occluders = null;
+        return this;
+    }
+
+    /**
+     * Returns the number of shadow rays traced through the scene since the tracer was prepared.
+     *
+     * @return the number of shadow ray traversals
+     */
+    long getShadowTraversals() {
+        return shadowTraversals.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays found blocked by a cached occluder since the tracer was prepared.
+     *
+     * @return the number of occluder cache hits
+     */
+    long getOccluderCacheHits() {
+        return occluderCacheHits.sum();
+    }
+
+    /**
+     * Returns the number of shadow rays not blocked by the cached occluder they were tested against,
+     * since the tracer was prepared.
+     *
+     * @return the number of occluder cache misses
+     */
+    long getOccluderCacheMisses() {
+        return occluderCacheMisses.sum();
+    }
+
+    /**
+     * The settings of a tracer, to build an equivalent tracer of the scene elsewhere (e.g. on a render worker)
+     *
+     * @param iterative         whether the tracer is an {@link IterativeRayTracer}
+     * @param maxLevel          the maximal recursion level
+     * @param minK              the minimal attenuation
+     * @param rouletteThreshold the Russian roulette threshold
+     * @param coneSamples       the budget of rays of a cone effect
+     * @param occlusionDistance the reach of the ambient occlusion rays
+     * @param occlusionSamples  the budget of ambient occlusion rays
+     * @param bvh               whether a bounding volume hierarchy is built
+     * @param packetSize        the number of rays in a packet
+     * @param lightCutoff       the light culling threshold
+     * @param lightSamples      the budget of lights of a hit point
+     * @param occluderCache     whether the last occluder of each light is cached
+     */
+    record Settings(boolean iterative, int maxLevel, double minK, double rouletteThreshold, int coneSamples,
+                    double occlusionDistance, int occlusionSamples, boolean bvh, int packetSize,
+                    double lightCutoff, int lightSamples, boolean occluderCache) implements Serializable {
+        /**
+         * Builds a tracer of a scene with these settings.
+         *
+         * @param scene the scene
+         * @return the tracer
+         * @throws IllegalArgumentException if a setting is out of its range
+         */
+        SimpleRayTracer tracer(Scene scene) {
+            SimpleRayTracer tracer = iterative ? new IterativeRayTracer(scene) : new SimpleRayTracer(scene);
+            return tracer.setMaxLevel(maxLevel).setMinK(minK).setRussianRoulette(rouletteThreshold)
+                    .setConeSamples(coneSamples).setAmbientOcclusion(occlusionDistance, occlusionSamples)
+                    .setBvh(bvh).setPacketSize(packetSize).setLightCutoff(lightCutoff).setLightSamples(lightSamples)
+                    .setOccluderCache(occluderCache);
+        }
+    }
+
+    /**
+     * Returns the settings of the tracer.
+     *
+     * @return the settings
+     * @throws IllegalArgumentException if the tracer is a subclass other than {@link IterativeRayTracer},
+     *                                  whose behaviour the settings cannot describe
+     */
+    Settings settings() {
+        if (getClass() != SimpleRayTracer.class && getClass() != IterativeRayTracer.class)
+            throw new IllegalArgumentException("Unsupported ray tracer " + getClass().getName());
+        return new Settings(getClass() == IterativeRayTracer.class, maxLevel, minK, rouletteThreshold, coneSamples,
+                occlusionDistance, occlusionSamples, bvh, packetSize, lightCutoff, lightSamples, occluderCache);
+    }
+
+    @Override
+    public void prepare() {
+        geometries = bvh ? scene.geometries.buildBvh() : scene.geometries;
+        stillGeometries = null;
+        frameLights = null;
+        lightIndex = lightCutoff > 0 ? new LightIndex(scene.lights, lightCutoff) : null;
+        occluders = occluderCache ? ThreadLocal.withInitial(IdentityHashMap::new) : null;
+        shadowTraversals.reset();
+        occluderCacheHits.reset();
+        occluderCacheMisses.reset();
+    }
+
+    /**
+     * Prepares the tracer for the frames of an animation, in which the geometries and lights of the scene
+     * stay still and a set of animated geometries and lights changes between frames. The hierarchy of the
+     * scene geometries is built here once for all the frames; each frame is then prepared by
+     * {@link #prepareFrame(List, List, boolean, boolean)}.
+     */
+    void prepareAnimation() {
+        prepare();
+        stillGeometries = geometries;
+    }
+
+    /**
+     * Prepares the tracer for a frame of an animation, updating only what changed since the previous frame:
+     * the hierarchy of the animated geometries is rebuilt (next to the prepared hierarchy of the still
+     * geometries) when they changed, and the light index when the lights changed. The occluder cache is kept
+     * while the frames differ only in the view, since it does not depend on it.
+     *
+     * @param geometries        the animated geometries of the frame
+     * @param lights            the animated lights of the frame
+     * @param geometriesChanged whether the animated geometries changed since the previous frame
+     * @param lightsChanged     whether the animated lights changed since the previous frame
+     * @throws IllegalStateException if the tracer was not prepared for an animation
+     */
+    void prepareFrame(List<Intersectable> geometries, List<LightSource> lights,
+                      boolean geometriesChanged, boolean lightsChanged) {
+        if (stillGeometries == null) throw new IllegalStateException("Tracer not prepared for an animation");
+        if (geometriesChanged) {
+            Geometries animated = new Geometries(geometries.toArray(new Intersectable[0]));
+            this.geometries = geometries.isEmpty() ? stillGeometries
+                    : new Geometries(stillGeometries, bvh ? animated.buildBvh() : animated);
+        }
+        if (lightsChanged) {
+            frameLights = new ArrayList<>(scene.lights);
+            frameLights.addAll(lights);
+            lightIndex = lightCutoff > 0 ? new LightIndex(frameLights, lightCutoff) : null;
+        }
+        if (geometriesChanged || lightsChanged)
+            occluders = occluderCache ? ThreadLocal.withInitial(IdentityHashMap::new) : null;
+    }
+
+    /**
+     * Returns the geometries the rays are traced through - the prepared hierarchy, or the scene geometries
+     * if the tracer was not prepared.
+     *
+     * @return the geometries to trace
+     */
+    private Intersectable geometries() {
+        return geometries == null ? scene.geometries : geometries;
+    }
+
+    /**
+     * Returns the lights to evaluate at a point - the lights of the prepared index reaching the point,
+     * or all the lights of the scene (or of the animation frame) if there is no index.
+     *
+     * @param point the point
+     * @return the lights to evaluate, valid until the next call on the same thread
+     */
+    private List<LightSource> lights(Point point) {
+        if (lightIndex != null) return lightIndex.lights(point, LIGHTS.get());
+        return frameLights == null ? scene.lights : frameLights;
+    }
+
+    /**
+     * Selects the lights evaluated at a point - the lights reaching the point, or a weighted random pick
+     * of them within the light budget.
+     *
+     * @param point the point
+     * @param sampler the thread's light sampler receiving the selection
+     * @return the number of selected lights
+     */
+    private int selectLights(Point point, LightSampler sampler) {
+        return sampler.select(point, lights(point), lightSamples, ThreadLocalRandom.current());
+    }
+
     /**
      * Traces a given ray and determines the color at the closest intersection point.
      *
@@ -36,20 +444,88 @@ public class SimpleRayTracer extends RayTracerBase {
         return intersection == null ? scene.background : calcColor(intersection, ray);
     }
 
+    @Override
+    public void traceRays(Ray[] rays, int count, Color[] colors) {
+        if (packetSize <= 1) {
+            super.traceRays(rays, count, colors);
+            return;
+        }
+        Intersectable geometries = geometries();
+        for (int start = 0; start < count; start += packetSize) {
+            RayPacket packet = new RayPacket(rays, start, Math.min(packetSize, count - start));
+            geometries.findClosestGeoPoints(packet);
+            for (int i = 0; i < packet.size(); ++i) {
+                GeoPoint intersection = packet.getClosest(i);
+                colors[start + i] = intersection == null ? scene.background : calcColor(intersection, rays[start + i]);
+            }
+        }
+    }
+
     /**
      * Wrapper function to calculate the color at a point, including ambient light.
+     * This is the entry point of the shading of a primary ray's hit for both single rays and packets,
+     * overridden by {@link IterativeRayTracer}.
      *
      * @param intersection The intersection point and geometry.
      * @param ray The ray hitting the geometry.
      * @return The color at the intersection point with ambient light.
      */
-    private Color calcColor(GeoPoint intersection, Ray ray) {
-        return calcColor(intersection, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K)
-                .add(scene.ambientLight.getIntensity());
+    Color calcColor(GeoPoint intersection, Ray ray) {
+        return calcColor(intersection, ray, maxLevel, INITIAL_K).add(ambient(intersection, ray));
+    }
+
+    /**
+     * Calculates the ambient light at a primary hit - the scene's ambient light, scaled by the ambient occlusion
+     * of the point if it is enabled.
+     *
+     * @param gp The primary hit.
+     * @param ray The primary ray.
+     * @return The ambient light at the point.
+     */
+    Color ambient(GeoPoint gp, Ray ray) {
+        Color ambient = scene.ambientLight.getIntensity();
+        if (occlusionDistance == 0) return ambient;
+        return ambient.scale(ambientAccessibility(gp, ray));
+    }
+
+    /**
+     * Estimates the fraction of the hemisphere above a point (on the viewer's side) that is open within
+     * the occlusion distance, weighted by the cosine of the angle from the normal. Occlusion rays are
+     * any-hit queries limited to the occlusion distance, so their traversal ends at the first occluder
+     * and skips the geometries out of reach. One ray in each quadrant of the hemisphere is traced first,
+     * and if they agree (all blocked or all open) the point is taken to be fully occluded or open;
+     * otherwise a jittered grid of the occlusion budget is added.
+     *
+     * @param gp The point.
+     * @param ray The ray that hit the point.
+     * @return The accessibility of the point, between 0 (fully occluded) and 1 (open).
+     */
+    private double ambientAccessibility(GeoPoint gp, Ray ray) {
+        Vector n = gp.geometry.getNormal(gp.point);
+        if (n.dotProduct(ray.getDir()) > 0) n = n.scale(-1);
+        Intersectable geometries = geometries();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int open = 0;
+        for (int cell = 0; cell < 4; ++cell) {
+            Vector direction = Sampling.cosineHemisphere(n, (cell / 2 + random.nextDouble()) / 2,
+                    (cell % 2 + random.nextDouble()) / 2);
+            if (!geometries.hasIntersection(new Ray(gp.point, direction, n, gp.time), occlusionDistance)) ++open;
+        }
+        if (open == 0 || open == 4) return open / 4d;
+
+        int side = (int) Math.ceil(Math.sqrt(occlusionSamples));
+        for (int cell = 0; cell < side * side; ++cell) {
+            Vector direction = Sampling.cosineHemisphere(n, (cell / side + random.nextDouble()) / side,
+                    (cell % side + random.nextDouble()) / side);
+            if (!geometries.hasIntersection(new Ray(gp.point, direction, n, gp.time), occlusionDistance)) ++open;
+        }
+        return open / (4d + side * side);
     }
 
     /**
      * Recursive calculation of color at a point, excluding ambient light for recursive calls.
+     * The normal at the point is calculated once for both the local and the global effects.
      *
      * @param intersection The intersection point.
      * @param ray The ray that hit the point.
@@ -58,48 +534,64 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return The calculated color at the point.
      */
     private Color calcColor(GeoPoint intersection, Ray ray, int level, Double3 k) {
-        if (level == 0 || k.lowerThan(MIN_CALC_COLOR_K)) {
+        if (level == 0 || rouletteThreshold == 0 && k.lowerThan(minK)) {
             return Color.BLACK;
         }
 
-        return calcLocalEffects(intersection, ray, k)
-                .add(calcGlobalEffects(intersection, ray, level, k));
+        Vector n = intersection.geometry.getNormal(intersection.point);
+        Color local = calcLocalEffects(intersection, ray, n, k);
+        Material material = intersection.geometry.getMaterial();
+        if (material.kR.equals(Double3.ZERO) && material.kT.equals(Double3.ZERO)) return local;
+        return local.add(calcGlobalEffects(intersection, ray, n, level, k));
     }
 
     /**
      * Calculate the local lighting effects (diffuse and specular) at a given point.
+     * This is the hot path of the tracer: the light directions and intensities and the lighting terms
+     * are computed with primitive doubles, the shadow rays are per-thread {@link ShadowRay}s, and the terms
+     * are summed in a per-thread {@link ColorAccumulator}, instead of through immutable vectors, rays, colors
+     * and triads that allocate an object per operation.
      *
      * @param gp The geometry point to evaluate.
      * @param ray The incoming ray.
+     * @param n The normal vector at the point.
      * @param k The attenuation coefficient.
      * @return The calculated local color.
      */
-    private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
-        Color color = gp.geometry.getEmission();
+    Color calcLocalEffects(GeoPoint gp, Ray ray, Vector n, Double3 k) {
         Vector v = ray.getDir();
-        Vector n = gp.geometry.getNormal(gp.point);
         double nv = alignZero(n.dotProduct(v));
 
-        if (nv == 0) return color;
+        if (nv == 0) return gp.geometry.getEmission();
 
         Material material = gp.geometry.getMaterial();
-        for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(gp.point);
-            double nl = alignZero(n.dotProduct(l));
+        ColorAccumulator color = null;
+        LightSampler sampler = SAMPLER.get();
+        double[] l = LIGHT_DIRECTION.get();
+        double nx = n.getX(), ny = n.getY(), nz = n.getZ();
+        double vx = v.getX(), vy = v.getY(), vz = v.getZ();
+        double nDotV = nx * vx + ny * vy + nz * vz;
+        for (int i = 0, count = selectLights(gp.point, sampler); i < count; ++i) {
+            LightSource lightSource = sampler.light(i);
+            double fraction = lightSource.illuminate(gp.point, l);
+            double nl = alignZero(nx * l[0] + ny * l[1] + nz * l[2]);
 
             // Only consider light contributions if light direction and view direction are on the same side of the surface
             if (nl * nv > 0) {
                 Double3 ktr = transparency(gp, lightSource, l, n);
-                if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-                    Color iL = lightSource.getIntensity(gp.point).scale(ktr);
-                    color = color.add(
-                            calcDiffusive(material.kD, nl, iL),
-                            calcSpecular(material.kS, n, l, nl, v, iL, material.Shininess)
-                    );
+                if (!ktr.productLowerThan(k, minK)) {
+                    if (color == null) color = ACCUMULATOR.get().set(gp.geometry.getEmission());
+                    Color iL = lightSource.getIntensity();
+                    double weight = sampler.weight(i) * fraction;
+                    color.addScaled(iL, ktr, material.kD, Math.abs(nl) * weight);
+                    // -v.r where r = l - 2(n.l)n is the reflected light direction
+                    double minusVR = -alignZero(vx * l[0] + vy * l[1] + vz * l[2] - 2 * nl * nDotV);
+                    if (minusVR > 0)
+                        color.addScaled(iL, ktr, material.kS, Math.pow(minusVR, material.Shininess) * weight);
                 }
             }
         }
-        return color;
+        return color == null ? gp.geometry.getEmission() : color.toColor();
     }
 
     /**
@@ -110,8 +602,9 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param n The normal vector at the intersection point.
      * @return The reflected ray.
      */
-    private Ray constructReflectedRay(GeoPoint gp, Vector direction, Vector n) {
-        return new Ray(gp.point, direction.subtract(n.scale(2 * direction.dotProduct(n))).normalize(), n);
+    Ray constructReflectedRay(GeoPoint gp, Vector direction, Vector n) {
+        return new Ray(gp.point, direction.subtract(n.scale(2 * direction.dotProduct(n))).normalize(), n,
+                gp.time);
     }
 
     /**
@@ -122,8 +615,8 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param n The normal vector at the intersection point.
      * @return The refracted ray.
      */
-    private Ray constructRefractedRay(GeoPoint gp, Vector direction, Vector n) {
-        return new Ray(gp.point, direction, n);
+    Ray constructRefractedRay(GeoPoint gp, Vector direction, Vector n) {
+        return new Ray(gp.point, direction, n, gp.time);
     }
 
     /**
@@ -131,31 +624,101 @@ public class SimpleRayTracer extends RayTracerBase {
      *
      * @param gp The geometry point to evaluate.
      * @param ray The incoming ray.
+     * @param n The normal vector at the point.
      * @param level The recursion level.
      * @param k The attenuation coefficient.
      * @return The calculated global color.
      */
-    private Color calcGlobalEffects(GeoPoint gp, Ray ray, int level, Double3 k) {
+    private Color calcGlobalEffects(GeoPoint gp, Ray ray, Vector n, int level, Double3 k) {
         Color color = Color.BLACK;
         Material material = gp.geometry.getMaterial();
         Vector v = ray.getDir();
-        Vector n = gp.geometry.getNormal(gp.point);
 
         // Reflection
         if (!material.kR.equals(Double3.ZERO)) {
             Ray reflectedRay = constructReflectedRay(gp, v, n);
-            color = color.add(calcGlobalEffect(reflectedRay, level, k, material.kR));
+            color = color.add(material.glossiness == 0 ? calcGlobalEffect(reflectedRay, level, k, material.kR)
+                    : calcConeEffect(gp, reflectedRay.getDir(), n, material.glossiness, level, k, material.kR));
         }
 
         // Refraction
         if (!material.kT.equals(Double3.ZERO)) {
             Ray refractedRay = constructRefractedRay(gp, v, n);
-            color = color.add(calcGlobalEffect(refractedRay, level, k, material.kT));
+            color = color.add(material.diffuseness == 0 ? calcGlobalEffect(refractedRay, level, k, material.kT)
+                    : calcConeEffect(gp, refractedRay.getDir(), n, material.diffuseness, level, k, material.kT));
         }
 
         return color;
     }
 
+    /**
+     * Calculates a glossy reflection or a diffuse transmission - the average of the global effects of rays
+     * spread in a cone around the sharp direction. The rays are split only at the first bounce, by a budget
+     * reduced with the accumulated attenuation: one ray in each quadrant of the cone is traced first,
+     * and if they agree the effect is their average; otherwise a jittered grid covering the whole cone
+     * is added. At deeper bounces a single random ray of the cone is traced.
+     *
+     * @param gp The geometry point of intersection.
+     * @param axis The sharp direction of the effect.
+     * @param n The normal vector at the point.
+     * @param angle The half-angle of the cone.
+     * @param level The recursion level.
+     * @param k The attenuation coefficient.
+     * @param kx The reflection or refraction coefficient.
+     * @return The calculated color contribution from the effect.
+     */
+    private Color calcConeEffect(GeoPoint gp, Vector axis, Vector n, double angle, int level, Double3 k, Double3 kx) {
+        int side = coneGrid(level, k.product(kx));
+        if (side == 1) return calcGlobalEffect(coneRay(gp, axis, n, angle, 0, 1), level, k, kx);
+
+        ColorAccumulator sum = new ColorAccumulator();
+        Color[] first = new Color[4];
+        for (int cell = 0; cell < 4; ++cell) {
+            first[cell] = calcGlobalEffect(coneRay(gp, axis, n, angle, cell, 2), level, k, kx);
+            sum.add(first[cell]);
+        }
+        int count = 4;
+        if (side > 2 && !Sampling.agree(first, 0, 4)) {
+            for (int cell = 0; cell < side * side; ++cell)
+                sum.add(calcGlobalEffect(coneRay(gp, axis, n, angle, cell, side), level, k, kx));
+            count += side * side;
+        }
+        return sum.toColor().reduce(count);
+    }
+
+    /**
+     * Returns the side of the grid of rays a cone effect is split into: the cone budget reduced
+     * by the accumulated attenuation at the first bounce, and a single ray at deeper bounces.
+     *
+     * @param level The recursion level of the point the rays are spawned at.
+     * @param kkx The accumulated attenuation of the rays.
+     * @return The number of rays along a side of the grid.
+     */
+    int coneGrid(int level, Double3 kkx) {
+        if (level < maxLevel) return 1;
+        return Math.max(1, (int) Math.ceil(Math.sqrt(coneSamples * Math.min(1, kkx.max()))));
+    }
+
+    /**
+     * Constructs a ray of a cone effect, jittered in a cell of a grid over the cone's parameters.
+     * A direction crossing to the other side of the surface than the sharp direction is replaced by the sharp one.
+     *
+     * @param gp The geometry point of intersection.
+     * @param axis The sharp direction of the effect.
+     * @param n The normal vector at the point.
+     * @param angle The half-angle of the cone.
+     * @param cell The index of the cell in the grid.
+     * @param side The number of cells along a side of the grid.
+     * @return The ray.
+     */
+    Ray coneRay(GeoPoint gp, Vector axis, Vector n, double angle, int cell, int side) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Vector direction = Sampling.cone(axis, angle, (cell / side + random.nextDouble()) / side,
+                (cell % side + random.nextDouble()) / side);
+        if (alignZero(direction.dotProduct(n)) * alignZero(axis.dotProduct(n)) <= 0) direction = axis;
+        return new Ray(gp.point, direction, n, gp.time);
+    }
+
     /**
      * Helper function to calculate the global effect for a given ray (either reflection or refraction).
      *
@@ -167,77 +730,155 @@ public class SimpleRayTracer extends RayTracerBase {
      */
     private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
         Double3 kkx = k.product(kx);
-        if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
+        double survival = survival(kkx);
+        if (survival == 0) return Color.BLACK;
+        if (survival < 1) kkx = kkx.scale(1 / survival);
 
         GeoPoint gp = findClosestIntersection(ray);
-        return (gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx)).scale(kx);
+        Color color = (gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx)).scale(kx);
+        return survival == 1 ? color : color.scale(1 / survival);
+    }
+
+    /**
+     * Decides whether a secondary ray is traced. Without Russian roulette, the ray is traced if its accumulated
+     * attenuation reaches the minimal attenuation. With the roulette, a weak ray survives with probability
+     * proportional to its throughput, and a surviving ray is to be boosted by the inverse probability
+     * to keep the expected color.
+     *
+     * @param kkx The accumulated attenuation of the ray.
+     * @return The probability the ray survived with, 0 if it is not traced.
+     */
+    double survival(Double3 kkx) {
+        if (rouletteThreshold == 0) return kkx.lowerThan(minK) ? 0 : 1;
+        double throughput = kkx.max();
+        if (throughput >= rouletteThreshold) return 1;
+        double survival = throughput / rouletteThreshold;
+        return ThreadLocalRandom.current().nextDouble() < survival ? survival : 0;
     }
 
     /**
      * Calculates the transparency factor for a given point by evaluating light occlusions.
+     * The visibility of an area light is estimated by shadow rays to sample points of its area.
      *
      * @param gp The geometry point to evaluate.
      * @param light The light source being considered.
-     * @param l The direction from the point to the light source.
+     * @param l The components of the direction from the light source to the point.
      * @param n The normal vector at the intersection point.
      * @return The transparency coefficient (1 if fully transparent, 0 if fully blocked).
      */
-    private Double3 transparency(GeoPoint gp, LightSource light, Vector l, Vector n) {
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(new Ray(gp.point, l.scale(-1), n));
-
-        if (intersections == null) return Double3.ONE;
+    private Double3 transparency(GeoPoint gp, LightSource light, double[] l, Vector n) {
+        if (light instanceof AreaLight area)
+            return areaTransparency(gp, area, n, n.getX() * l[0] + n.getY() * l[1] + n.getZ() * l[2] < 0);
+        return transparency(gp, light, n, -l[0], -l[1], -l[2], light.getDistance(gp.point));
+    }
 
-        Double3 ktr = Double3.ONE;
-        double lightDistance = light.getDistance(gp.point);
+    /**
+     * Calculates the transparency factor of an area light with adaptive sampling: the boundary samples
+     * of the area are traced first, and if they agree the point is taken to be fully lit or in the umbra;
+     * otherwise it is in the penumbra, and the transparency is averaged over a jittered grid of samples
+     * covering the whole area.
+     *
+     * @param gp The geometry point to evaluate.
+     * @param light The area light.
+     * @param n The normal vector at the intersection point.
+     * @param front Whether the light is on the side of the surface the normal points to.
+     * @return The average transparency coefficient over the area of the light.
+     */
+    private Double3 areaTransparency(GeoPoint gp, AreaLight light, Vector n, boolean front) {
+        Double3 first = null;
+        boolean agree = true;
+        for (double[] uv : light.getBoundarySamples()) {
+            Double3 ktr = sampleTransparency(gp, light, light.getSample(uv[0], uv[1]), n, front);
+            if (first == null) first = ktr;
+            else if (!ktr.equals(first)) {
+                agree = false;
+                break;
+            }
+        }
+        if (agree) return first;
 
-        for (GeoPoint intersection : intersections) {
-            if (alignZero(intersection.point.distance(gp.point) - lightDistance) <= 0) {
-                ktr = ktr.product(intersection.geometry.getMaterial().kT);
-                if (ktr.lowerThan(MIN_CALC_COLOR_K)) return Double3.ZERO;
+        int grid = light.getSampleGrid();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Double3 sum = Double3.ZERO;
+        for (int i = 0; i < grid; ++i) {
+            for (int j = 0; j < grid; ++j) {
+                Point sample = light.getSample((i + random.nextDouble()) / grid, (j + random.nextDouble()) / grid);
+                sum = sum.add(sampleTransparency(gp, light, sample, n, front));
             }
         }
-        return ktr;
+        return sum.scale(1d / (grid * grid));
     }
 
     /**
-     * Finds the closest intersection point for a given ray.
+     * Calculates the transparency factor towards a sample point of an area light.
      *
-     * @param ray The ray to trace.
-     * @return The closest intersection point, or null if no intersections are found.
+     * @param gp The geometry point to evaluate.
+     * @param light The area light.
+     * @param sample The sample point of the light.
+     * @param n The normal vector at the intersection point.
+     * @param front Whether the light is on the side of the surface the normal points to.
+     * @return The transparency coefficient, 0 if the sample is behind the surface.
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
+    private Double3 sampleTransparency(GeoPoint gp, AreaLight light, Point sample, Vector n, boolean front) {
+        if (sample.equals(gp.point)) return Double3.ONE;
+        double x = sample.getX() - gp.point.getX(), y = sample.getY() - gp.point.getY(),
+                z = sample.getZ() - gp.point.getZ();
+        double nl = alignZero(n.getX() * x + n.getY() * y + n.getZ() * z);
+        if (nl == 0 || nl > 0 != front) return Double3.ZERO;
+        return transparency(gp, light, n, x, y, z, Math.sqrt(x * x + y * y + z * z));
     }
 
     /**
-     * Calculates the diffusive component of the lighting.
+     * Calculates the transparency factor along a shadow ray from a point towards a point of a light.
+     * The shadow ray is the thread's {@link ShadowRay}, and the scene is traversed by an any-hit query
+     * which stops once the ray is blocked.
+     * With the occluder cache, the opaque occluder last found by the thread towards the light is tested
+     * first, and the scene is traversed only if it does not block the ray. After a run of misses,
+     * the occluder is skipped for a number of shadow rays.
      *
-     * @param kD The diffusion coefficient.
-     * @param nl The dot product of the normal and light direction.
-     * @param iL The intensity of the light source.
-     * @return The diffusive color component.
+     * @param gp The geometry point to evaluate.
+     * @param light The light source.
+     * @param n The normal vector at the intersection point.
+     * @param x The x component of the direction from the point towards the light.
+     * @param y The y component of the direction towards the light.
+     * @param z The z component of the direction towards the light.
+     * @param lightDistance The distance from the point to the light.
+     * @return The transparency coefficient (1 if fully transparent, 0 if fully blocked).
      */
-    private Color calcDiffusive(Double3 kD, double nl, Color iL) {
-        return iL.scale(kD.scale(Math.abs(nl)));
+    private Double3 transparency(GeoPoint gp, LightSource light, Vector n, double x, double y, double z,
+                                 double lightDistance) {
+        ShadowRay shadowRay = SHADOW_RAY.get().set(gp.point, n, x, y, z, lightDistance, gp.time, minK);
+        LastOccluder last = occluders == null ? null
+                : occluders.get().computeIfAbsent(light, key -> new LastOccluder());
+        if (last != null && last.geometry != null) {
+            if (last.paused > 0) --last.paused;
+            else if (last.geometry.attenuate(shadowRay)) {
+                last.misses = 0;
+                occluderCacheHits.increment();
+                return Double3.ZERO;
+            } else {
+                occluderCacheMisses.increment();
+                if (++last.misses == OCCLUDER_MISS_RUN) {
+                    last.misses = 0;
+                    last.paused = OCCLUDER_PAUSE;
+                }
+            }
+        }
+
+        shadowTraversals.increment();
+        if (!geometries().attenuate(shadowRay)) return shadowRay.getTransmission();
+        Geometry blocker = shadowRay.getBlocker();
+        if (last != null && blocker.getMaterial().kT.lowerThan(minK)) last.geometry = blocker;
+        return Double3.ZERO;
     }
 
     /**
-     * Calculates the specular component of the lighting.
+     * Finds the closest intersection point for a given ray.
      *
-     * @param kS The specular coefficient.
-     * @param n The normal vector at the point.
-     * @param l The light direction.
-     * @param nl The dot product of the normal and light direction.
-     * @param v The view direction.
-     * @param iL The intensity of the light source.
-     * @param nShininess The shininess factor of the material.
-     * @return The specular color component.
+     * @param ray The ray to trace.
+     * @return The closest intersection point, or null if no intersections are found.
      */
-    private Color calcSpecular(Double3 kS, Vector n, Vector l, double nl, Vector v, Color iL, int nShininess) {
-        double minusVR = -alignZero(v.dotProduct(l.subtract(n.scale(nl * 2))));
-
-        if (minusVR <= 0) return Color.BLACK;
-
-        return iL.scale(kS.scale(Math.pow(minusVR, nShininess)));
+    GeoPoint findClosestIntersection(Ray ray) {
+        return ray.findClosestGeoPoint(geometries().findGeoIntersections(ray));
     }
-}
\ No newline at end of file
+}
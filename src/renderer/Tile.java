@@ -0,0 +1,49 @@
+package renderer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rectangular block of pixels of the view plane, the unit of work handed to the render workers.
+ *
+ * @param index  the position of the tile in the row-major order of the frame
+ * @param x      the column of the upper-left pixel of the tile
+ * @param y      the row of the upper-left pixel of the tile
+ * @param width  the number of pixel columns in the tile
+ * @param height the number of pixel rows in the tile
+ */
+public record Tile(int index, int x, int y, int width, int height) implements Serializable {
+
+    /**
+     * Splits a frame into square tiles in row-major order.
+     * The tiles at the right and bottom edges are clipped to the frame.
+     *
+     * @param nX       number of pixels in the x direction
+     * @param nY       number of pixels in the y direction
+     * @param tileSize the side of a tile in pixels
+     * @return the list of the tiles covering the frame
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public static List<Tile> split(int nX, int nY, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        List<Tile> tiles = new ArrayList<>();
+        for (int y = 0; y < nY; y += tileSize) {
+            for (int x = 0; x < nX; x += tileSize) {
+                tiles.add(new Tile(tiles.size(), x, y, Math.min(tileSize, nX - x), Math.min(tileSize, nY - y)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the number of pixels in the tile.
+     *
+     * @return the number of pixels in the tile
+     */
+    public int size() {
+        return width * height;
+    }
+}
@@ -0,0 +1,683 @@
+package scene;
+
+import geometries.Cylinder;
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.Intersectable;
+import geometries.MovingGeometry;
+import geometries.Plane;
+import geometries.Polygon;
+import geometries.Sphere;
+import geometries.Triangle;
+import geometries.Tube;
+import lighting.AmbientLight;
+import lighting.AreaLight;
+import lighting.DirectionalLight;
+import lighting.DiskLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import lighting.RectangleLight;
+import lighting.SpotLight;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary format of a {@link Scene}, to ship scenes to render workers and to cache them between runs.
+ * The layout (big-endian) is:
+ * <ul>
+ * <li>the header: the magic number "RTSN", the version of the layout and the length of the body</li>
+ * <li>the name of the scene (a length-prefixed UTF-8 string), the background color and the ambient intensity</li>
+ * <li>the table of the materials, shared by reference between the geometries: a count and fixed-size entries</li>
+ * <li>the lights: a count and a record per light</li>
+ * <li>the geometries: a single record of the scene's {@link Geometries}</li>
+ * </ul>
+ * Every light and geometry is a record made of a type tag, the length of its payload and the payload;
+ * a geometry's payload starts with its material index and emission, and the payload of a collection
+ * (or of a moving geometry) holds the records of its members. Each type is written and read by explicit code
+ * (no reflection), and reading works directly on any {@link ByteBuffer}, e.g. a memory-mapped file.
+ * Only the exact supported types are written: a subclass may override the behaviour of the type it extends,
+ * so it is rejected rather than silently written as its base type. Collections nest at most
+ * {@value #MAX_DEPTH} levels deep.
+ */
+public final class SceneCodec {
+    /**
+     * Magic number of the format ("RTSN")
+     */
+    private static final int MAGIC = 0x5254534E;
+    /**
+     * Version of the layout
+     */
+    public static final int VERSION = 1;
+    /**
+     * Size of the header in bytes: magic, version, body length
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    /**
+     * Maximal nesting depth of the geometry records, bounding the recursion of the reader
+     */
+    public static final int MAX_DEPTH = 256;
+
+    // Tags of the geometry records
+    private static final byte GEOMETRIES = 1;
+    private static final byte PLANE = 2;
+    private static final byte SPHERE = 3;
+    private static final byte TRIANGLE = 4;
+    private static final byte POLYGON = 5;
+    private static final byte TUBE = 6;
+    private static final byte CYLINDER = 7;
+    private static final byte MOVING = 8;
+    // Tags of the light records
+    private static final byte DIRECTIONAL_LIGHT = 16;
+    private static final byte POINT_LIGHT = 17;
+    private static final byte SPOT_LIGHT = 18;
+    private static final byte RECTANGLE_LIGHT = 19;
+    private static final byte DISK_LIGHT = 20;
+
+    /**
+     * The geometry types of the format
+     */
+    private static final Set<Class<?>> GEOMETRY_TYPES = Set.of(Geometries.class, MovingGeometry.class, Plane.class,
+            Sphere.class, Triangle.class, Polygon.class, Tube.class, Cylinder.class);
+    /**
+     * The light types of the format
+     */
+    private static final Set<Class<?>> LIGHT_TYPES = Set.of(DirectionalLight.class, PointLight.class,
+            SpotLight.class, RectangleLight.class, DiskLight.class);
+
+    /**
+     * Private constructor - the codec only has static methods
+     */
+    private SceneCodec() {
+    }
+
+    /**
+     * Encodes a scene.
+     *
+     * @param scene the scene
+     * @return the encoded scene
+     * @throws IllegalArgumentException if the scene is null, holds a geometry or a light of an unsupported type
+     *                                  (including a subclass of a supported type), or nests collections
+     *                                  deeper than {@value #MAX_DEPTH} levels
+     */
+    public static byte[] encode(Scene scene) {
+        if (scene == null) throw new IllegalArgumentException("Scene cannot be null");
+        return new Encoder().scene(scene);
+    }
+
+    /**
+     * Decodes a scene from the current position of a buffer, and advances the position past it.
+     *
+     * @param buffer the buffer (e.g. a memory-mapped file)
+     * @return the scene
+     * @throws IllegalArgumentException if the buffer does not hold a scene of this version, or the scene is corrupt
+     */
+    public static Scene decode(ByteBuffer buffer) {
+        try {
+            return new Decoder(buffer).scene();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated scene data", e);
+        }
+    }
+
+    /**
+     * Writes a scene into a file.
+     *
+     * @param scene the scene
+     * @param file  the file
+     * @throws IOException if writing the file failed
+     */
+    public static void write(Scene scene, Path file) throws IOException {
+        Files.write(file, encode(scene));
+    }
+
+    /**
+     * Reads a scene from a file, by mapping the file into memory.
+     *
+     * @param file the file
+     * @return the scene
+     * @throws IOException              if reading the file failed
+     * @throws IllegalArgumentException if the file does not hold a scene of this version, or the scene is corrupt
+     */
+    public static Scene read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writer of the binary layout into a growing buffer
+     */
+    private static final class Encoder {
+        /**
+         * The buffer of the encoded scene
+         */
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+        /**
+         * Index of each material in the material table, by reference
+         */
+        private final Map<Material, Integer> materials = new IdentityHashMap<>();
+
+        /**
+         * Encodes a scene.
+         *
+         * @param scene the scene
+         * @return the encoded scene
+         */
+        byte[] scene(Scene scene) {
+            List<Material> table = new ArrayList<>();
+            collectMaterials(scene.geometries, table, 0);
+
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(0); // body length, set at the end
+            byte[] name = scene.name == null ? null : scene.name.getBytes(StandardCharsets.UTF_8);
+            putInt(name == null ? -1 : name.length);
+            if (name != null) {
+                ensure(name.length);
+                buffer.put(name);
+            }
+            putColor(scene.background);
+            putColor(scene.ambientLight.getIntensity());
+
+            putInt(table.size());
+            for (Material material : table) putMaterial(material);
+            putInt(scene.lights.size());
+            for (LightSource light : scene.lights) light(light);
+            geometry(scene.geometries);
+
+            buffer.putInt(8, buffer.position() - HEADER_SIZE);
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip().get(bytes);
+            return bytes;
+        }
+
+        /**
+         * Assigns an index to each distinct material of the geometries,
+         * and checks that the geometries do not nest deeper than the reader accepts.
+         *
+         * @param geometry the geometry, or collection of geometries
+         * @param table    the table of the materials, receiving the new materials
+         * @param depth    the nesting depth of the geometry
+         */
+        private void collectMaterials(Intersectable geometry, List<Material> table, int depth) {
+            if (depth >= MAX_DEPTH) throw new IllegalArgumentException("Geometries nested too deep");
+            if (geometry instanceof Geometries collection) {
+                for (Intersectable member : collection.getGeometries()) collectMaterials(member, table, depth + 1);
+            } else if (geometry instanceof MovingGeometry moving) {
+                collectMaterials(moving.getGeometry(), table, depth + 1);
+            } else if (geometry instanceof Geometry g && !materials.containsKey(g.getMaterial())) {
+                materials.put(g.getMaterial(), table.size());
+                table.add(g.getMaterial());
+            }
+        }
+
+        /**
+         * Starts a record: writes its tag and reserves its length.
+         *
+         * @param tag the tag of the record
+         * @return the position of the length, to end the record with {@link #end(int)}
+         */
+        private int begin(byte tag) {
+            ensure(5);
+            buffer.put(tag);
+            int at = buffer.position();
+            buffer.putInt(0);
+            return at;
+        }
+
+        /**
+         * Ends a record: sets its length to the bytes written since it was started.
+         *
+         * @param at the position of the length of the record
+         */
+        private void end(int at) {
+            buffer.putInt(at, buffer.position() - at - 4);
+        }
+
+        /**
+         * Writes the record of a light.
+         *
+         * @param light the light
+         */
+        private void light(LightSource light) {
+            if (!LIGHT_TYPES.contains(light.getClass()))
+                throw new IllegalArgumentException("Unsupported light " + light.getClass().getName());
+            int at;
+            if (light instanceof DirectionalLight directional) {
+                at = begin(DIRECTIONAL_LIGHT);
+                putColor(directional.getIntensity());
+                putVector(directional.getDirection());
+            } else if (light instanceof RectangleLight rectangle) {
+                at = begin(RECTANGLE_LIGHT);
+                putPointLight(rectangle);
+                putInt(rectangle.getSampleGrid());
+                putVector(rectangle.getEdge1());
+                putVector(rectangle.getEdge2());
+            } else if (light instanceof DiskLight disk) {
+                at = begin(DISK_LIGHT);
+                putPointLight(disk);
+                putInt(disk.getSampleGrid());
+                putVector(disk.getNormal());
+                putDouble(disk.getRadius());
+            } else if (light instanceof SpotLight spot) {
+                at = begin(SPOT_LIGHT);
+                putPointLight(spot);
+                putVector(spot.getDirection());
+            } else if (light instanceof PointLight point) {
+                at = begin(POINT_LIGHT);
+                putPointLight(point);
+            } else {
+                throw new IllegalArgumentException("Unsupported light " + light.getClass().getName());
+            }
+            end(at);
+        }
+
+        /**
+         * Writes the record of a geometry.
+         *
+         * @param geometry the geometry
+         */
+        private void geometry(Intersectable geometry) {
+            if (!GEOMETRY_TYPES.contains(geometry.getClass()))
+                throw new IllegalArgumentException("Unsupported geometry " + geometry.getClass().getName());
+            int at;
+            if (geometry instanceof Geometries collection) {
+                at = begin(GEOMETRIES);
+                List<Intersectable> members = collection.getGeometries();
+                putInt(members.size());
+                for (Intersectable member : members) geometry(member);
+            } else if (geometry instanceof MovingGeometry moving) {
+                at = begin(MOVING);
+                putVector(moving.getTranslation());
+                geometry(moving.getGeometry());
+            } else if (geometry instanceof Plane plane) {
+                at = begin(PLANE);
+                putSurface(plane);
+                putPoint(plane.getPoint());
+                putVector(plane.getNormal());
+            } else if (geometry instanceof Sphere sphere) {
+                at = begin(SPHERE);
+                putSurface(sphere);
+                putPoint(sphere.getCenter());
+                putDouble(sphere.getRadius());
+            } else if (geometry instanceof Triangle triangle) {
+                at = begin(TRIANGLE);
+                putSurface(triangle);
+                for (Point vertex : triangle.getVertices()) putPoint(vertex);
+            } else if (geometry instanceof Polygon polygon) {
+                at = begin(POLYGON);
+                putSurface(polygon);
+                putInt(polygon.getVertices().size());
+                for (Point vertex : polygon.getVertices()) putPoint(vertex);
+            } else if (geometry instanceof Cylinder cylinder) {
+                at = begin(CYLINDER);
+                putSurface(cylinder);
+                putDouble(cylinder.getRadius());
+                putPoint(cylinder.getAxisRay().getP0());
+                putVector(cylinder.getAxisRay().getDir());
+                putDouble(cylinder.getHeight());
+            } else if (geometry instanceof Tube tube) {
+                at = begin(TUBE);
+                putSurface(tube);
+                putDouble(tube.getRadius());
+                putPoint(tube.getAxisRay().getP0());
+                putVector(tube.getAxisRay().getDir());
+            } else {
+                throw new IllegalArgumentException("Unsupported geometry " + geometry.getClass().getName());
+            }
+            end(at);
+        }
+
+        /**
+         * Writes the fields common to all the geometries: the index of the material and the emission.
+         *
+         * @param geometry the geometry
+         */
+        private void putSurface(Geometry geometry) {
+            putInt(materials.get(geometry.getMaterial()));
+            putColor(geometry.getEmission());
+        }
+
+        /**
+         * Writes the fields common to the point lights and their subclasses.
+         *
+         * @param light the light
+         */
+        private void putPointLight(PointLight light) {
+            putColor(light.getIntensity());
+            putPoint(light.getPosition());
+            putDouble(light.getKC());
+            putDouble(light.getKL());
+            putDouble(light.getKQ());
+        }
+
+        /**
+         * Writes a material entry of the material table.
+         *
+         * @param material the material
+         */
+        private void putMaterial(Material material) {
+            putDouble3(material.kD);
+            putDouble3(material.kS);
+            putDouble3(material.kT);
+            putDouble3(material.kR);
+            putInt(material.Shininess);
+            putDouble(material.glossiness);
+            putDouble(material.diffuseness);
+        }
+
+        /**
+         * Writes a color.
+         *
+         * @param color the color
+         */
+        private void putColor(Color color) {
+            putDouble(color.getRed());
+            putDouble(color.getGreen());
+            putDouble(color.getBlue());
+        }
+
+        /**
+         * Writes a triad of numbers.
+         *
+         * @param triad the triad
+         */
+        private void putDouble3(Double3 triad) {
+            putDouble(triad.get1());
+            putDouble(triad.get2());
+            putDouble(triad.get3());
+        }
+
+        /**
+         * Writes a point.
+         *
+         * @param point the point
+         */
+        private void putPoint(Point point) {
+            putDouble(point.getX());
+            putDouble(point.getY());
+            putDouble(point.getZ());
+        }
+
+        /**
+         * Writes a vector.
+         *
+         * @param vector the vector
+         */
+        private void putVector(Vector vector) {
+            putPoint(vector);
+        }
+
+        /**
+         * Writes a number.
+         *
+         * @param value the number
+         */
+        private void putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        /**
+         * Writes an integer.
+         *
+         * @param value the integer
+         */
+        private void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Grows the buffer if it has less room than needed.
+         *
+         * @param bytes the number of bytes about to be written
+         */
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) return;
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            grown.put(buffer.flip());
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Reader of the binary layout from a buffer
+     */
+    private static final class Decoder {
+        /**
+         * The buffer holding the encoded scene
+         */
+        private final ByteBuffer buffer;
+        /**
+         * The material table of the scene
+         */
+        private Material[] materials;
+
+        /**
+         * Constructs a reader.
+         *
+         * @param buffer the buffer, positioned at the start of the scene
+         */
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Decodes the scene.
+         *
+         * @return the scene
+         */
+        Scene scene() {
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Not a scene");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported scene version " + version);
+            int end = buffer.getInt() + buffer.position();
+
+            // -1 marks a scene without a name, any other length is a count of bytes
+            String name = null;
+            if (buffer.getInt(buffer.position()) == -1) buffer.getInt();
+            else {
+                byte[] bytes = new byte[count()];
+                buffer.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+            }
+            Scene scene = new Scene(name).setBackground(getColor())
+                    .setAmbientLight(new AmbientLight(getColor(), Double3.ONE));
+
+            materials = new Material[count()];
+            for (int i = 0; i < materials.length; ++i) materials[i] = getMaterial();
+            int lights = count();
+            for (int i = 0; i < lights; ++i) scene.lights.add(light());
+            if (!(geometry(0) instanceof Geometries geometries))
+                throw new IllegalArgumentException("Corrupt scene geometries");
+            scene.setGeometries(geometries);
+
+            if (buffer.position() != end) throw new IllegalArgumentException("Corrupt scene length");
+            return scene;
+        }
+
+        /**
+         * Reads the record of a light.
+         *
+         * @return the light
+         */
+        private LightSource light() {
+            byte tag = buffer.get();
+            int end = buffer.getInt() + buffer.position();
+            LightSource light = switch (tag) {
+                case DIRECTIONAL_LIGHT -> new DirectionalLight(getColor(), getVector());
+                case POINT_LIGHT -> getAttenuation(new PointLight(getColor(), getPoint()));
+                case SPOT_LIGHT -> {
+                    Color intensity = getColor();
+                    Point position = getPoint();
+                    double kC = buffer.getDouble(), kL = buffer.getDouble(), kQ = buffer.getDouble();
+                    yield new SpotLight(intensity, position, getVector()).setKC(kC).setKL(kL).setKQ(kQ);
+                }
+                case RECTANGLE_LIGHT, DISK_LIGHT -> {
+                    Color intensity = getColor();
+                    Point position = getPoint();
+                    double kC = buffer.getDouble(), kL = buffer.getDouble(), kQ = buffer.getDouble();
+                    int grid = buffer.getInt();
+                    AreaLight area = tag == RECTANGLE_LIGHT
+                            ? new RectangleLight(intensity, position, getVector(), getVector())
+                            : new DiskLight(intensity, position, getVector(), buffer.getDouble());
+                    yield area.setSamples(grid * grid).setKC(kC).setKL(kL).setKQ(kQ);
+                }
+                default -> throw new IllegalArgumentException("Unknown light record " + tag);
+            };
+            if (buffer.position() != end) throw new IllegalArgumentException("Corrupt light record " + tag);
+            return light;
+        }
+
+        /**
+         * Reads the record of a geometry.
+         *
+         * @param depth the nesting depth of the record
+         * @return the geometry
+         */
+        private Intersectable geometry(int depth) {
+            if (depth >= MAX_DEPTH) throw new IllegalArgumentException("Geometry records nested too deep");
+            byte tag = buffer.get();
+            int end = buffer.getInt() + buffer.position();
+            Intersectable geometry = switch (tag) {
+                case GEOMETRIES -> {
+                    int count = count();
+                    Intersectable[] members = new Intersectable[count];
+                    for (int i = 0; i < count; ++i) members[i] = geometry(depth + 1);
+                    yield new Geometries(members);
+                }
+                case MOVING -> {
+                    Vector translation = getVector();
+                    yield new MovingGeometry(geometry(depth + 1), translation);
+                }
+                default -> {
+                    Material material = getMaterialIndex();
+                    Color emission = getColor();
+                    Geometry surface = switch (tag) {
+                        case PLANE -> new Plane(getPoint(), getVector());
+                        case SPHERE -> {
+                            Point center = getPoint();
+                            yield new Sphere(buffer.getDouble(), center);
+                        }
+                        case TRIANGLE -> new Triangle(getPoint(), getPoint(), getPoint());
+                        case POLYGON -> {
+                            Point[] vertices = new Point[count()];
+                            for (int i = 0; i < vertices.length; ++i) vertices[i] = getPoint();
+                            yield new Polygon(vertices);
+                        }
+                        case TUBE -> {
+                            double radius = buffer.getDouble();
+                            yield new Tube(radius, new Ray(getPoint(), getVector()));
+                        }
+                        case CYLINDER -> {
+                            double radius = buffer.getDouble();
+                            Ray axis = new Ray(getPoint(), getVector());
+                            yield new Cylinder(radius, axis, buffer.getDouble());
+                        }
+                        default -> throw new IllegalArgumentException("Unknown geometry record " + tag);
+                    };
+                    yield surface.setMaterial(material).setEmission(emission);
+                }
+            };
+            if (buffer.position() != end) throw new IllegalArgumentException("Corrupt geometry record " + tag);
+            return geometry;
+        }
+
+        /**
+         * Reads the attenuation factors of a point light.
+         *
+         * @param light the light
+         * @return the light with its attenuation factors set
+         */
+        private PointLight getAttenuation(PointLight light) {
+            return light.setKC(buffer.getDouble()).setKL(buffer.getDouble()).setKQ(buffer.getDouble());
+        }
+
+        /**
+         * Reads a material entry of the material table.
+         *
+         * @return the material
+         */
+        private Material getMaterial() {
+            return new Material().setKD(getDouble3()).setKS(getDouble3()).setKT(getDouble3()).setKR(getDouble3())
+                    .setShininess(buffer.getInt()).setGlossiness(buffer.getDouble())
+                    .setDiffuseness(buffer.getDouble());
+        }
+
+        /**
+         * Reads a reference to the material table.
+         *
+         * @return the referenced material
+         */
+        private Material getMaterialIndex() {
+            int index = buffer.getInt();
+            if (index < 0 || index >= materials.length) throw new IllegalArgumentException("Corrupt material index");
+            return materials[index];
+        }
+
+        /**
+         * Reads a count of elements, which is at most the number of bytes left.
+         *
+         * @return the count
+         */
+        private int count() {
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Corrupt count");
+            return count;
+        }
+
+        /**
+         * Reads a color.
+         *
+         * @return the color
+         */
+        private Color getColor() {
+            return new Color(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+
+        /**
+         * Reads a triad of numbers.
+         *
+         * @return the triad
+         */
+        private Double3 getDouble3() {
+            return new Double3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+
+        /**
+         * Reads a point.
+         *
+         * @return the point
+         */
+        private Point getPoint() {
+            return new Point(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+
+        /**
+         * Reads a vector.
+         *
+         * @return the vector
+         */
+        private Vector getVector() {
+            return new Vector(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
@@ -85,4 +87,159 @@ class GeometriesTests {
         intersections = geometries.findIntersections(ray);
         assertEquals(4, intersections.size(), "Expected 4 intersection points when all shapes are intersected");
     }
+
+    /**
+     * Test method for {@link geometries.Geometries#buildBvh()}.
+     */
+    @Test
+    void testBuildBvh() {
+        Geometries geometries = new Geometries(plane, triangle, new Geometries(sphere,
+                new Sphere(1, new Point(5, 5, 0)), new Sphere(1, new Point(-5, 5, 0)), new Sphere(1, new Point(5, -5, 0))));
+        Geometries bvh = geometries.buildBvh();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The hierarchy finds the same intersections as the flat collection
+        Ray[] rays = {
+                new Ray(new Point(0.5, 0.25, -1), new Vector(0, 0, 1)),
+                new Ray(new Point(5, 5, -3), new Vector(0, 0, 1)),
+                new Ray(new Point(-5, -5, -3), new Vector(0, 0, 1)),
+                new Ray(new Point(-10, 5, 0), new Vector(1, 0, 0))};
+        for (Ray ray : rays) {
+            List<Point> expected = geometries.findIntersections(ray);
+            List<Point> result = bvh.findIntersections(ray);
+            assertEquals(expected == null ? 0 : expected.size(), result == null ? 0 : result.size(),
+                    "Hierarchy found a wrong number of intersections");
+        }
+
+        // TC02: The unbounded plane stays at the top level, so the hierarchy is unbounded
+        assertNull(bvh.getBoundingBox(), "Hierarchy with a plane must be unbounded");
+        assertNotNull(new Geometries(sphere, triangle).getBoundingBox(), "Bounded collection has no box");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        Geometries inner = new Geometries(sphere);
+        Geometries outer = new Geometries(new Geometries(inner));
+        Ray ray = new Ray(new Point(10, 0, -5), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A geometry added to a nested collection after the boxes were used is still intersected
+        assertNull(outer.findIntersections(ray), "Ray must miss the nested collections");
+        inner.add(new Sphere(1, new Point(10, 0, 0)));
+        List<Point> result = outer.findIntersections(ray);
+        assertEquals(2, result == null ? 0 : result.size(), "Stale box of a nested collection");
+
+        // TC02: A geometry added to one collection keeps the boxes of unrelated collections
+        BoundingBox box = outer.getBoundingBox();
+        new Geometries(triangle).add(plane);
+        assertSame(box, outer.getBoundingBox(), "Box of an unrelated collection invalidated");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The list of geometries cannot be changed behind the collection
+        assertThrows(UnsupportedOperationException.class, () -> outer.getGeometries().add(triangle),
+                "List of geometries changed behind the collection");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findClosestGeoPoints(RayPacket)}.
+     */
+    @Test
+    void testFindClosestGeoPoints() {
+        Geometries geometries = new Geometries(plane, triangle, sphere, new Sphere(1, new Point(5, 5, 0)),
+                new Sphere(1, new Point(-5, 5, 0))).buildBvh();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Every ray of a packet gets the closest intersection found for it alone
+        Ray[] rays = new Ray[64];
+        for (int i = 0; i < rays.length; ++i)
+            rays[i] = new Ray(new Point(0, 0, -10), new Vector((i % 8) - 3.5, (i / 8) - 3.5, 10));
+        RayPacket packet = new RayPacket(rays, 0, rays.length);
+        geometries.findClosestGeoPoints(packet);
+        for (int i = 0; i < rays.length; ++i) {
+            Intersectable.GeoPoint expected = rays[i].findClosestGeoPoint(geometries.findGeoIntersections(rays[i]));
+            assertEquals(expected, packet.getClosest(i), "Wrong closest intersection of ray " + i);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#hasIntersection(Ray, double)}.
+     */
+    @Test
+    void testHasIntersection() {
+        Geometries geometries = new Geometries(sphere, plane, triangle);
+        Geometries bvh = geometries.buildBvh();
+        // The ray meets the sphere at distance 4 and 6 and the plane at distance 6
+        Ray ray = new Ray(new Point(1, 0, -5), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: An intersection within the distance
+        assertTrue(geometries.hasIntersection(ray, 5), "Intersection within the distance missed");
+        assertTrue(bvh.hasIntersection(ray, 5), "Intersection within the distance missed by the hierarchy");
+        // TC02: All the intersections beyond the distance
+        assertFalse(geometries.hasIntersection(ray, 3), "Intersection beyond the distance found");
+        assertFalse(bvh.hasIntersection(ray, 3), "Intersection beyond the distance found by the hierarchy");
+        // TC03: A ray missing all the geometries
+        assertFalse(geometries.hasIntersection(new Ray(new Point(5, 5, 0), new Vector(1, 0, 0)), 100),
+                "Intersection of a missing ray found");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: An intersection exactly at the distance
+        assertTrue(geometries.hasIntersection(ray, 4), "Intersection at the distance missed");
+        // TC11: An empty collection
+        assertFalse(new Geometries().hasIntersection(ray, 100), "Intersection with an empty collection found");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#attenuate(ShadowRay)}.
+     */
+    @Test
+    void testAttenuate() {
+        Material half = new Material().setKT(0.5);
+        Sphere glassSphere = (Sphere) new Sphere(1, new Point(1, 0, 0)).setMaterial(half);
+        Triangle glassTriangle = (Triangle) new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0))
+                .setMaterial(half);
+        Plane wall = new Plane(new Point(0, 0, 1), new Vector(0, 0, 1));
+        Geometries geometries = new Geometries(glassSphere, glassTriangle, wall);
+        Geometries bvh = geometries.buildBvh();
+        // The shadow ray goes up from (0.2, 0.2, -5): it crosses the sphere at distances 5 -+ sqrt(0.32),
+        // the triangle at distance 5 and the opaque plane at distance 6
+        Point point = new Point(0.2, 0.2, -5);
+        Vector normal = new Vector(1, 0, 0);
+        ShadowRay ray = new ShadowRay();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The light is before the plane - attenuated by both sides of the sphere and by the triangle
+        for (Geometries tested : List.of(geometries, bvh)) {
+            assertFalse(tested.attenuate(ray.set(point, normal, 0, 0, 2, 5.9, 0, 0.001)), "Ray blocked");
+            assertEquals(0.125, ray.getTransmission().get1(), 1e-12, "Wrong transmission");
+            assertNull(ray.getBlocker(), "Blocker of an unblocked ray");
+        }
+        // TC02: The light is between the triangle and the far side of the sphere
+        assertFalse(geometries.attenuate(ray.set(point, normal, 0, 0, 1, 5.2, 0, 0.001)), "Ray blocked");
+        assertEquals(new Double3(0.25), ray.getTransmission(), "Wrong transmission");
+        // TC03: The light is beyond the opaque plane
+        assertTrue(bvh.attenuate(ray.set(point, normal, 0, 0, 1, 100, 0, 0.001)), "Ray not blocked");
+        assertEquals(Double3.ZERO, ray.getTransmission(), "Wrong transmission of a blocked ray");
+        assertSame(wall, ray.getBlocker(), "Wrong blocker");
+        // TC04: A geometry without a shadow query of its own (a moving sphere) blocks the ray at the time
+        // it crosses the ray, and not once it moved away
+        Sphere ball = new Sphere(0.5, new Point(0.2, 0.2, -2));
+        Geometries moving = new Geometries(new MovingGeometry(ball, new Vector(10, 0, 0)), glassSphere);
+        assertTrue(moving.attenuate(ray.set(point, normal, 0, 0, 1, 100, 0, 0.001)), "Ray not blocked");
+        assertSame(ball.getMaterial(), ray.getBlocker().getMaterial(), "Wrong blocker");
+        assertFalse(moving.attenuate(ray.set(point, normal, 0, 0, 1, 100, 1, 0.001)), "Ray blocked");
+        assertEquals(new Double3(0.25), ray.getTransmission(), "Wrong transmission");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The light is before all the geometries
+        assertFalse(bvh.attenuate(ray.set(point, normal, 0, 0, 1, 3, 0, 0.001)), "Ray blocked");
+        assertSame(Double3.ONE, ray.getTransmission(), "Attenuated ray");
+        // TC11: The head is moved off the surface along the normal - the triangle is then missed
+        assertFalse(new Geometries(glassTriangle).attenuate(ray.set(new Point(0.25, 0.2, -5), normal, 1, 0, 10,
+                100, 0, 0.001)), "Ray blocked");
+        assertSame(Double3.ONE, ray.getTransmission(), "Ray from the moved head attenuated");
+    }
 }
@@ -0,0 +1,88 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link geometries.MovingGeometry}.
+ */
+class MovingGeometryTests {
+    /**
+     * A unit sphere at the origin moving 10 along the x axis during the shutter interval
+     */
+    private final MovingGeometry moving = new MovingGeometry(
+            new Sphere(1, Point.ZERO).setEmission(new Color(10, 20, 30)), new Vector(10, 0, 0));
+
+    /**
+     * Test method for {@link geometries.MovingGeometry#findGeoIntersections(primitives.Ray)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        Vector down = new Vector(0, -1, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A ray in the middle of the motion hits the sphere at its place at the ray's time
+        List<Intersectable.GeoPoint> result = moving.findGeoIntersections(new Ray(new Point(5, 5, 0), down, 0.5));
+        assertNotNull(result, "Ray at the time of the sphere's place missed it");
+        assertEquals(List.of(new Point(5, 1, 0), new Point(5, -1, 0)),
+                result.stream().map(gp -> gp.point).sorted((a, b) -> Double.compare(b.getY(), a.getY())).toList(),
+                "Wrong intersections of a moving sphere");
+        // TC02: The intersected geometry has the normals, the emission and the time of the moved sphere
+        Intersectable.GeoPoint top = result.stream().filter(gp -> gp.point.getY() > 0).findFirst().orElseThrow();
+        assertEquals(new Vector(0, 1, 0), top.geometry.getNormal(top.point), "Wrong normal of a moving sphere");
+        assertEquals(20, top.geometry.getEmission().getGreen(), "Wrong emission of a moving sphere");
+        assertEquals(0.5, top.time, "Intersection not stamped with the ray's time");
+        // TC03: A ray at another time misses the sphere
+        assertNull(moving.findGeoIntersections(new Ray(new Point(5, 5, 0), down, 0.2)),
+                "Ray at another time hit the moving sphere");
+        // TC04: The intersected geometry intersected again follows the time of the new ray
+        assertNull(top.geometry.findGeoIntersections(new Ray(new Point(5, 5, 0), down, 0.9)),
+                "Intersected geometry did not follow the motion");
+        assertTrue(top.geometry.hasIntersection(new Ray(new Point(9, 5, 0), down, 0.9), 10),
+                "Intersected geometry did not follow the motion");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: At the shutter opening the sphere is at its constructed place
+        assertEquals(2, moving.findGeoIntersections(new Ray(new Point(0, 5, 0), down)).size(),
+                "Wrong intersections at the shutter opening");
+        // TC11: At the shutter closing the sphere is translated by the whole motion
+        assertEquals(2, moving.findGeoIntersections(new Ray(new Point(10, 5, 0), down, 1)).size(),
+                "Wrong intersections at the shutter closing");
+        assertFalse(moving.hasIntersection(new Ray(new Point(0, 5, 0), down, 1), 10),
+                "Sphere did not move by the shutter closing");
+    }
+
+    /**
+     * Test method for {@link geometries.MovingGeometry#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        BoundingBox box = moving.getBoundingBox();
+        Vector down = new Vector(0, -1, 0);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The box covers the whole motion of the geometry
+        for (double x : new double[]{-0.9, 5, 10.9})
+            assertTrue(box.intersects(new Ray(new Point(x, 5, 0), down)), "Box misses the motion at " + x);
+        // TC02: The box excludes the space around the motion
+        assertFalse(box.intersects(new Ray(new Point(11.5, 5, 0), down)), "Box exceeds the motion");
+        // TC03: The box is computed once, not per call on the ray paths
+        assertSame(box, moving.getBoundingBox(), "Box computed again");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A moving unbounded geometry is unbounded
+        assertNull(new MovingGeometry(new Plane(Point.ZERO, new Vector(0, 1, 0)), new Vector(1, 0, 0))
+                .getBoundingBox(), "Moving plane is bounded");
+        // TC11: Missing geometry or translation
+        assertThrows(IllegalArgumentException.class, () -> new MovingGeometry(null, new Vector(1, 0, 0)),
+                "Null geometry accepted");
+        assertThrows(IllegalArgumentException.class, () -> new MovingGeometry(new Sphere(1, Point.ZERO), null),
+                "Null translation accepted");
+    }
+}
@@ -0,0 +1,129 @@
+package lighting;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Plane;
+import geometries.Triangle;
+import primitives.*;
+import renderer.SimpleRayTracer;
+import scene.Scene;
+
+/**
+ * Unit tests for the area lights and their soft shadows
+ */
+class AreaLightTests {
+    /**
+     * Delta for the comparisons of the tests
+     */
+    private static final double DELTA = 1e-9;
+    /**
+     * Center of the lights of the tests
+     */
+    private final Point center = new Point(0, 0, 100);
+
+    /**
+     * Test method for {@link DiskLight#getSample(double, double)}.
+     */
+    @Test
+    void testDiskSample() {
+        DiskLight disk = new DiskLight(new Color(100, 100, 100), center, new Vector(0, 0, -1), 20);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A sample inside the unit square is inside the disk, on its plane
+        Point p = disk.getSample(0.3, 0.8);
+        assertEquals(100, p.getZ(), DELTA, "Disk sample off the disk's plane");
+        assertTrue(p.distance(center) < 20, "Disk sample out of the disk");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The center of the square is the center of the disk
+        assertEquals(0, disk.getSample(0.5, 0.5).distance(center), DELTA, "Wrong disk center sample");
+        // TC11: The corners of the square are on the rim of the disk
+        for (double[] uv : disk.getBoundarySamples()) {
+            if (uv[0] == 0.5) continue;
+            assertEquals(20, disk.getSample(uv[0], uv[1]).distance(center), DELTA, "Disk corner sample not on the rim");
+        }
+    }
+
+    /**
+     * Test method for {@link RectangleLight#getSample(double, double)}.
+     */
+    @Test
+    void testRectangleSample() {
+        RectangleLight rectangle = new RectangleLight(new Color(100, 100, 100), center,
+                new Vector(40, 0, 0), new Vector(0, 20, 0));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A sample inside the unit square maps linearly onto the rectangle
+        assertEquals(new Point(-8, 6, 100), rectangle.getSample(0.3, 0.8), "Wrong rectangle sample");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The corners of the square are the corners of the rectangle
+        assertEquals(new Point(-20, -10, 100), rectangle.getSample(0, 0), "Wrong rectangle corner sample");
+        assertEquals(new Point(20, 10, 100), rectangle.getSample(1, 1), "Wrong rectangle corner sample");
+        // TC11: The center of the square is the center of the rectangle
+        assertEquals(center, rectangle.getSample(0.5, 0.5), "Wrong rectangle center sample");
+    }
+
+    /**
+     * Test method for the constructors and {@link AreaLight#setSamples(int)}.
+     */
+    @Test
+    void testArguments() {
+        Color intensity = new Color(100, 100, 100);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The sample budget is rounded up to a square grid
+        assertEquals(4, new DiskLight(intensity, center, new Vector(0, 0, -1), 1).setSamples(10).getSampleGrid(),
+                "Wrong sample grid");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A single sample
+        assertEquals(1, new DiskLight(intensity, center, new Vector(0, 0, -1), 1).setSamples(1).getSampleGrid(),
+                "Wrong sample grid");
+        // TC11: No samples
+        assertThrows(IllegalArgumentException.class,
+                () -> new DiskLight(intensity, center, new Vector(0, 0, -1), 1).setSamples(0),
+                "No samples accepted");
+        // TC12: Zero radius
+        assertThrows(IllegalArgumentException.class,
+                () -> new DiskLight(intensity, center, new Vector(0, 0, -1), 0), "Zero radius accepted");
+        // TC13: Parallel edges
+        assertThrows(IllegalArgumentException.class,
+                () -> new RectangleLight(intensity, center, new Vector(1, 0, 0), new Vector(2, 0, 0)),
+                "Parallel edges accepted");
+    }
+
+    /**
+     * Test method for the soft shadows of an area light: a disk light above a plane,
+     * half hidden from the points under the edge of an occluding triangle.
+     */
+    @Test
+    void testSoftShadow() {
+        Plane floor = new Plane(Point.ZERO, new Vector(0, 0, 1));
+        floor.setMaterial(new Material().setKD(1));
+        Scene lit = new Scene("Lit");
+        lit.geometries.add(floor);
+        lit.lights.add(new DiskLight(new Color(100, 100, 100), center, new Vector(0, 0, -1), 20).setSamples(256));
+        Scene shadowed = new Scene("Shadowed");
+        shadowed.geometries.add(floor, new Triangle(new Point(0, -1000, 50), new Point(0, 1000, 50),
+                new Point(-1000, 0, 50)));
+        shadowed.lights.add(lit.lights.getFirst());
+        SimpleRayTracer litTracer = new SimpleRayTracer(lit);
+        SimpleRayTracer shadowTracer = new SimpleRayTracer(shadowed);
+        litTracer.prepare();
+        shadowTracer.prepare();
+        Vector down = new Vector(0, 0, -1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A point in the umbra gets no light
+        assertEquals(0, shadowTracer.traceRay(new Ray(new Point(-100, 0, 10), down)).getRed(), DELTA,
+                "Light in the umbra");
+        // TC02: A point out of the shadow gets all the light
+        Ray out = new Ray(new Point(100, 0, 10), down);
+        assertEquals(litTracer.traceRay(out).getRed(), shadowTracer.traceRay(out).getRed(), DELTA,
+                "Light blocked out of the shadow");
+        // TC03: A point under the edge of the occluder sees about half of the light
+        Ray edge = new Ray(new Point(0, 0, 10), down);
+        double ratio = shadowTracer.traceRay(edge).getRed() / litTracer.traceRay(edge).getRed();
+        assertTrue(ratio > 0.35 && ratio < 0.65, "Wrong penumbra: " + ratio);
+    }
+}
@@ -0,0 +1,87 @@
+package lighting;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Unit tests for {@link PointLight}
+ */
+class PointLightTests {
+    /**
+     * Delta for the comparisons of the tests
+     */
+    private static final double DELTA = 1e-9;
+    /**
+     * Intensity of the lights of the tests - the strongest component decides the radius
+     */
+    private final Color intensity = new Color(50, 100, 20);
+
+    /**
+     * Test method for {@link PointLight#getRadius(double)}.
+     */
+    @Test
+    void testGetRadius() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Quadratic attenuation - 1 + 2*d + d^2 = 100/1 at d = 9
+        PointLight light = new PointLight(intensity, Point.ZERO).setKL(2).setKQ(1);
+        assertEquals(9, light.getRadius(1), DELTA, "Wrong quadratic radius");
+        assertEquals(1, light.getIntensity(new Point(0, 9, 0)).getGreen(), DELTA, "Wrong intensity at the radius");
+        // TC02: Linear attenuation - 1 + 0.5*d = 100/4 at d = 48
+        assertEquals(48, new PointLight(intensity, Point.ZERO).setKL(0.5).getRadius(4), DELTA,
+                "Wrong linear radius");
+        // TC03: A spot light has the radius of its point light
+        assertEquals(9, new SpotLight(intensity, Point.ZERO, new Vector(0, 0, -1)).setKL(2).setKQ(1).getRadius(1),
+                DELTA, "Wrong spot light radius");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: No attenuation
+        assertEquals(Double.POSITIVE_INFINITY, new PointLight(intensity, Point.ZERO).getRadius(1), "Wrong radius");
+        // TC11: The light is below the threshold everywhere
+        assertEquals(0, new PointLight(intensity, Point.ZERO).setKQ(1).getRadius(200), DELTA, "Wrong radius");
+        // TC12: A directional light reaches everywhere
+        assertEquals(Double.POSITIVE_INFINITY,
+                new DirectionalLight(intensity, new Vector(0, 0, -1)).getRadius(1), "Wrong radius");
+    }
+
+    /**
+     * Test method for {@link PointLight#illuminate(Point, double[])}.
+     */
+    @Test
+    void testIlluminate() {
+        Point point = new Point(0, 3, 4);
+        double[] l = new double[3];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Point, spot and directional lights - the direction and the intensity of getL and getIntensity
+        LightSource[] lights = {new PointLight(intensity, Point.ZERO).setKL(0.5).setKQ(0.1),
+                new SpotLight(intensity, Point.ZERO, new Vector(0, 1, 2)).setKL(0.5),
+                new DirectionalLight(intensity, new Vector(1, -1, 0))};
+        for (LightSource light : lights) {
+            double fraction = light.illuminate(point, l);
+            Vector expected = light.getL(point);
+            assertEquals(expected.getX(), l[0], DELTA, "Wrong direction");
+            assertEquals(expected.getY(), l[1], DELTA, "Wrong direction");
+            assertEquals(expected.getZ(), l[2], DELTA, "Wrong direction");
+            assertEquals(light.getIntensity(point).getGreen(), light.getIntensity().getGreen() * fraction, DELTA,
+                    "Wrong intensity");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A point behind a spot light gets no light
+        assertEquals(0, new SpotLight(intensity, Point.ZERO, new Vector(0, -1, 0)).illuminate(point, l), DELTA,
+                "Light behind a spot light");
+
+        // TC11: A point at the position of a point or spot light has no direction
+        assertThrows(IllegalArgumentException.class, () -> new PointLight(intensity, point).illuminate(point, l),
+                "Point at a point light accepted");
+        assertThrows(IllegalArgumentException.class,
+                () -> new SpotLight(intensity, point, new Vector(0, -1, 0)).illuminate(point, l),
+                "Point at a spot light accepted");
+    }
+}
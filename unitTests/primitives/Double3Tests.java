@@ -154,4 +154,16 @@ public class Double3Tests {
         assertTrue(double3_1.lowerThan(double3_2), "lowerThan() failed when all values are less than other Double3");
         assertFalse(double3_2.lowerThan(double3_1), "lowerThan() failed when not all values are less than other Double3");
     }
+
+    /**
+     * Test method for {@link primitives.Double3#max()}.
+     */
+    @Test
+    void testMax() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The largest number in each position
+        assertEquals(3.0, new Double3(3.0, 1.0, 2.0).max(), 1e-10, "max() failed for the first number");
+        assertEquals(3.0, new Double3(1.0, 3.0, 2.0).max(), 1e-10, "max() failed for the second number");
+        assertEquals(3.0, new Double3(1.0, 2.0, 3.0).max(), 1e-10, "max() failed for the third number");
+    }
 }
@@ -81,6 +81,9 @@ public class RayTests {
 
         // TC02: Test inequality of different rays
         assertNotEquals(ray1, ray3, "equals() failed for different rays");
+
+        // TC03: Test inequality of rays at different times
+        assertNotEquals(ray1, new Ray(p0, dir, 0.5), "equals() failed for rays at different times");
     }
 
     /**
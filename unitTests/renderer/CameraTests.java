@@ -1,12 +1,22 @@
 package renderer;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
 
 import primitives.*;
 import scene.Scene;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Testing Camera Class
  *
@@ -59,4 +69,250 @@ class CameraTests {
 
     }
 
+    /**
+     * Test method for {@link renderer.Camera#renderAsync(long)}.
+     */
+    @Test
+    void testRenderAsync() {
+        Camera camera = cameraBuilder.setVPSize(8, 8)
+                .setImageWriter(new ImageWriter("Test", 100, 100))
+                .setTileSize(10)
+                .setMultithreading(2)
+                .build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A render without a budget completes all the tiles
+        RenderHandle complete = camera.renderAsync(0).await();
+        assertTrue(complete.isComplete(), "Render without a budget did not complete");
+        assertEquals(100, complete.getCompletedTiles().size(), "Wrong number of completed tiles");
+
+        // TC02: A cancelled render stops between tiles and reports the finished tiles only
+        // (the rays are held until the render is cancelled, so the workers cannot finish first)
+        CountDownLatch released = new CountDownLatch(1);
+        RenderHandle cancelled = cameraBuilder.setRayTracer(new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Color.BLACK;
+            }
+        }).build().renderAsync(0);
+        cancelled.cancel();
+        released.countDown();
+        cancelled.await();
+        assertTrue(cancelled.isCancelled(), "Render was not cancelled");
+        assertTrue(cancelled.isDone(), "Workers are still running after await");
+        assertFalse(cancelled.isComplete(), "Cancelled render completed all the tiles");
+        assertTrue(cancelled.getTiles().containsAll(cancelled.getCompletedTiles()), "Unknown completed tile");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Negative time budget
+        assertThrows(IllegalArgumentException.class, () -> camera.renderAsync(-1), "Negative budget accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setCheckpoint(java.nio.file.Path, long, long)}.
+     */
+    @Test
+    void testCheckpointResume() throws IOException {
+        Path file = Files.createTempFile("camera", ".ckpt");
+        Files.delete(file);
+        try {
+            AtomicInteger traced = new AtomicInteger();
+            RayTracerBase counting = new RayTracerBase(new Scene("Test")) {
+                @Override
+                public Color traceRay(Ray ray) {
+                    traced.incrementAndGet();
+                    return new Color(10, 20, 30);
+                }
+            };
+            cameraBuilder.setVPSize(8, 8).setTileSize(4).setRayTracer(counting).setCheckpoint(file, 42, 0);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: The first render traces every pixel and stores all the tiles
+            cameraBuilder.setImageWriter(new ImageWriter("Test", 16, 16)).build().renderImage();
+            assertEquals(256, traced.get(), "First render did not trace all the pixels");
+
+            // TC02: A render of the same scene resumes from the checkpoint without tracing
+            RenderHandle resumed = cameraBuilder.setImageWriter(new ImageWriter("Test", 16, 16)).build()
+                    .renderAsync(0).await();
+            assertEquals(256, traced.get(), "Resumed render traced stored tiles");
+            assertTrue(resumed.isComplete(), "Resumed render is not complete");
+
+            // TC03: A checkpoint of another scene is not resumed
+            cameraBuilder.setCheckpoint(file, 43, 0)
+                    .setImageWriter(new ImageWriter("Test", 16, 16)).build().renderImage();
+            assertEquals(512, traced.get(), "Checkpoint of another scene was resumed");
+
+            // =============== Boundary Values Tests ==================
+            // TC10: A damaged tail record claiming a huge length is cut off, and the stored tiles are resumed
+            long size = Files.size(file);
+            Files.write(file, ByteBuffer.allocate(24).putInt(0).putInt(Integer.MAX_VALUE).array(),
+                    StandardOpenOption.APPEND);
+            cameraBuilder.setImageWriter(new ImageWriter("Test", 16, 16)).build().renderImage();
+            assertEquals(512, traced.get(), "Stored tiles before a damaged tail were traced");
+            assertEquals(size, Files.size(file), "Damaged tail not cut off");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setAperture(double, Camera.ApertureShape)}.
+     */
+    @Test
+    void testDepthOfField() {
+        AtomicInteger traced = new AtomicInteger();
+        RayTracerBase uniform = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return new Color(10, 20, 30);
+            }
+        };
+        // The color depends on the side of the aperture the ray starts at, so no pixel is in focus
+        RayTracerBase sided = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return ray.getP0().getX() > 0 ? new Color(100, 100, 100) : Color.BLACK;
+            }
+        };
+        cameraBuilder.setVPSize(8, 8).setTileSize(4).setAperture(1, Camera.ApertureShape.CIRCLE)
+                .setApertureSamples(16);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Pixels whose first lens rays agree stop after four rays
+        cameraBuilder.setRayTracer(uniform).setImageWriter(new ImageWriter("Test", 8, 8)).build().renderImage();
+        assertEquals(4 * 64, traced.get(), "In-focus pixels traced more than four lens rays");
+
+        // TC02: Pixels whose first lens rays disagree are traced again with the whole grid
+        traced.set(0);
+        cameraBuilder.setRayTracer(sided).setImageWriter(new ImageWriter("Test", 8, 8)).build().renderImage();
+        assertEquals((4 + 16) * 64, traced.get(), "Blurred pixels were not traced with the whole grid");
+
+        // TC03: All the lens rays of a pixel start in the aperture and pass through its point on the focal plane
+        for (Camera.ApertureShape shape : Camera.ApertureShape.values()) {
+            List<Ray> rays = new ArrayList<>();
+            cameraBuilder.setAperture(2, shape).setFocalDistance(25).setRayTracer(new RayTracerBase(new Scene("Test")) {
+                @Override
+                public Color traceRay(Ray ray) {
+                    synchronized (rays) {
+                        rays.add(ray);
+                    }
+                    return ray.getP0().getX() > 0 ? new Color(100, 100, 100) : Color.BLACK;
+                }
+            }).setImageWriter(new ImageWriter("Test", 1, 1)).build().renderImage();
+            assertEquals(4 + 16, rays.size(), "Wrong number of lens rays");
+            Point focus = new Point(0, 0, -25);
+            for (Ray ray : rays) {
+                Point p0 = ray.getP0();
+                assertEquals(0, p0.getZ(), 1e-10, shape + " lens ray starts out of the lens plane");
+                double reach = shape == Camera.ApertureShape.CIRCLE ? p0.distance(Point.ZERO)
+                        : Math.max(Math.abs(p0.getX()), Math.abs(p0.getY()));
+                assertTrue(reach <= 2 + 1e-10, shape + " lens ray starts out of the aperture");
+                assertEquals(0, ray.getPoint(p0.distance(focus)).distance(focus), 1e-9,
+                        shape + " lens ray misses the focal point");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A zero aperture is a pinhole tracing a single ray per pixel
+        traced.set(0);
+        cameraBuilder.setAperture(0, Camera.ApertureShape.CIRCLE).setRayTracer(sided)
+                .setImageWriter(new ImageWriter("Test", 8, 8)).build().renderImage();
+        assertEquals(64, traced.get(), "Pinhole traced more than one ray per pixel");
+        // TC11: Invalid lens parameters
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setAperture(-1, Camera.ApertureShape.CIRCLE),
+                "Negative aperture accepted");
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setAperture(1, null),
+                "Null aperture shape accepted");
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setFocalDistance(0),
+                "Zero focal distance accepted");
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setApertureSamples(0),
+                "Zero aperture samples accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera.Builder#setMotionBlur(int)}.
+     */
+    @Test
+    void testMotionBlur() {
+        List<Ray> rays = new ArrayList<>();
+        // The color changes in the middle of the shutter interval, as if an object moved across all the pixels
+        RayTracerBase moving = new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                synchronized (rays) {
+                    rays.add(ray);
+                }
+                return ray.getTime() < 0.5 ? new Color(100, 100, 100) : Color.BLACK;
+            }
+        };
+        cameraBuilder.setVPSize(8, 8).setRayTracer(moving).setMotionBlur(16);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The first rays of a pixel sample the four quarters of the shutter interval through the pixel
+        cameraBuilder.setImageWriter(new ImageWriter("Test", 1, 1)).build().renderImage();
+        assertEquals(4 + 16, rays.size(), "Moving pixel was not traced with the whole grid");
+        for (int cell = 0; cell < 4; ++cell) {
+            assertEquals(cell, (int) (rays.get(cell).getTime() * 4), "Time out of its quarter of the shutter interval");
+            assertEquals(new Vector(0, 0, -1), rays.get(cell).getDir(), "Time sample out of the pixel");
+        }
+        // TC02: The times of the grid rays stratify the shutter interval
+        for (int cell = 0; cell < 16; ++cell)
+            assertEquals(cell, (int) (rays.get(4 + cell).getTime() * 16), "Time out of its part of the shutter interval");
+
+        // TC03: Still pixels stop after four rays
+        rays.clear();
+        cameraBuilder.setRayTracer(new RayTracerBase(new Scene("Test")) {
+            @Override
+            public Color traceRay(Ray ray) {
+                synchronized (rays) {
+                    rays.add(ray);
+                }
+                return Color.BLACK;
+            }
+        }).setImageWriter(new ImageWriter("Test", 4, 4)).build().renderImage();
+        assertEquals(4 * 16, rays.size(), "Still pixels traced more than four rays");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Without motion blur all the rays are at the shutter opening
+        rays.clear();
+        cameraBuilder.setMotionBlur(0).setImageWriter(new ImageWriter("Test", 4, 4)).build().renderImage();
+        assertEquals(16, rays.size(), "Still frame traced more than one ray per pixel");
+        assertTrue(rays.stream().allMatch(ray -> ray.getTime() == 0), "Still frame ray out of the shutter opening");
+        // TC11: Negative number of samples
+        assertThrows(IllegalArgumentException.class, () -> cameraBuilder.setMotionBlur(-1),
+                "Negative motion samples accepted");
+    }
+
+    /**
+     * Test method for {@link renderer.PrimaryRayGenerator#generateTile(Tile, PrimaryRayGenerator.Buffer)}.
+     */
+    @Test
+    void testPrimaryRayGenerator() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The generated rays of every tile match the rays constructed one by one
+        Camera camera = cameraBuilder.setVPSize(8, 6).build();
+        Vector vRight = camera.getvTo().crossProduct(camera.getvUp());
+        Point vpCenter = Point.ZERO.add(camera.getvTo().scale(camera.getDistance()));
+        PrimaryRayGenerator generator =
+                new PrimaryRayGenerator(Point.ZERO, vpCenter, vRight, camera.getvUp(), 8, 6, 5, 4);
+        PrimaryRayGenerator.Buffer buffer = new PrimaryRayGenerator.Buffer();
+        Ray[] first = null;
+        for (Tile tile : Tile.split(5, 4, 2)) {
+            Ray[] rays = generator.generateTile(tile, buffer);
+            int k = 0;
+            for (int i = tile.y(); i < tile.y() + tile.height(); ++i)
+                for (int j = tile.x(); j < tile.x() + tile.width(); ++j)
+                    assertEquals(camera.constructRay(5, 4, j, i), rays[k++], "Bad generated ray");
+            // TC02: The buffer's array is reused by the tiles which fit in it
+            if (first == null) first = rays;
+            else assertSame(first, rays, "Ray array of the buffer not reused");
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Geometries;
+import geometries.Intersectable;
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.LightSource;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link FrameSequence}
+ */
+class FrameSequenceTests {
+    /**
+     * Resolution of the frames
+     */
+    private static final int RESOLUTION = 20;
+
+    /**
+     * Creates the builder of a camera looking down at the origin.
+     *
+     * @param x the x coordinate of the camera
+     * @return the camera builder
+     */
+    private static Camera.Builder camera(double x) {
+        return Camera.getBuilder().setLocation(new Point(x, 100, 0))
+                .setDirection(new Vector(0, -1, 0), new Vector(0, 0, -1))
+                .setVPDistance(100).setVPSize(60, 60);
+    }
+
+    /**
+     * Renders a frame by itself, as the reference of a frame of the sequence.
+     *
+     * @param still    the still geometries
+     * @param x        the x coordinate of the camera
+     * @param geometry the animated geometry
+     * @param light    the animated light
+     * @return the image writer holding the frame
+     */
+    private static ImageWriter reference(Intersectable still, double x, Intersectable geometry, LightSource light) {
+        Scene scene = new Scene("Reference");
+        scene.geometries.add(still, geometry);
+        scene.lights.add(light);
+        ImageWriter writer = new ImageWriter("reference", RESOLUTION, RESOLUTION).setHdr(true);
+        camera(x).setImageWriter(writer).setRayTracer(new SimpleRayTracer(scene).setBvh(true)).build().renderImage();
+        return writer;
+    }
+
+    /**
+     * Test method for {@link FrameSequence#render()}.
+     */
+    @Test
+    void testRender() throws IOException {
+        AtomicInteger builds = new AtomicInteger();
+        Scene scene = new Scene("Animation");
+        scene.geometries = new Geometries() {
+            @Override
+            public Geometries buildBvh() {
+                builds.incrementAndGet();
+                return super.buildBvh();
+            }
+        };
+        Intersectable floor = new Plane(Point.ZERO, new Vector(0, 1, 0)).setMaterial(new Material().setKD(0.8));
+        scene.geometries.add(floor);
+        Intersectable ball1 = new Sphere(5, new Point(-5, 5, 0)).setMaterial(new Material().setKD(0.5));
+        Intersectable ball2 = new Sphere(5, new Point(5, 5, 0)).setMaterial(new Material().setKD(0.5));
+        LightSource light1 = new PointLight(new Color(300, 300, 300), new Point(-20, 40, 0));
+        LightSource light2 = new PointLight(new Color(300, 200, 100), new Point(20, 40, 10));
+
+        FrameSequence sequence = new FrameSequence(new SimpleRayTracer(scene).setBvh(true));
+        double[] cameras = {0, 10, 10, 10};
+        Intersectable[] balls = {ball1, ball1, ball2, ball2};
+        LightSource[] lights = {light1, light1, light1, light2};
+        ImageWriter[] writers = new ImageWriter[4];
+        for (int i = 0; i < 4; ++i) {
+            writers[i] = new ImageWriter("frameSequence" + i, RESOLUTION, RESOLUTION).setHdr(true);
+            FrameSequence.Frame frame = sequence.addFrame(camera(cameras[i]).setImageWriter(writers[i]));
+            if (i == 0 || balls[i] != balls[i - 1]) frame.setGeometries(balls[i]);
+            if (i == 0 || lights[i] != lights[i - 1]) frame.setLights(lights[i]);
+        }
+        sequence.render();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The still geometries are prepared once for all the frames
+        assertEquals(1, builds.get(), "Still geometries prepared more than once");
+        for (int i = 0; i < 4; ++i) {
+            // TC02: Each frame (moving the camera, replacing the ball, replacing the light) is rendered
+            // as if it were rendered by itself
+            ImageWriter expected = reference(floor, cameras[i], balls[i], lights[i]);
+            ImageWriter actual = writers[i];
+            for (int y = 0; y < RESOLUTION; ++y) {
+                for (int x = 0; x < RESOLUTION; ++x) {
+                    assertEquals(expected.getPixel(x, y).getRed(), actual.getPixel(x, y).getRed(), 1e-9,
+                            "Wrong frame " + i + " at " + x + "," + y);
+                    assertEquals(expected.getPixel(x, y).getBlue(), actual.getPixel(x, y).getBlue(), 1e-9,
+                            "Wrong frame " + i + " at " + x + "," + y);
+                }
+            }
+            // TC03: The image of each frame is written
+            Path image = Path.of(System.getProperty("user.dir"), "images", "frameSequence" + i + ".png");
+            assertTrue(Files.size(image) > 0, "Frame " + i + " was not written");
+            Files.delete(image);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: An empty sequence renders nothing
+        assertDoesNotThrow(() -> new FrameSequence(new SimpleRayTracer(scene)).render(), "Empty sequence failed");
+        // TC11: A frame is not prepared before the animation
+        assertThrows(IllegalStateException.class,
+                () -> new SimpleRayTracer(scene).prepareFrame(List.of(), List.of(), true, true),
+                "Frame prepared without the animation");
+        // TC12: Missing ray tracer or camera
+        assertThrows(IllegalArgumentException.class, () -> new FrameSequence(null), "Null ray tracer accepted");
+        assertThrows(IllegalArgumentException.class, () -> sequence.addFrame(null), "Null camera accepted");
+    }
+}
@@ -3,9 +3,17 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for ImageWriter class.
@@ -48,4 +56,265 @@ public class ImageWriterTests {
         File file = new File(System.getProperty("user.dir") + "/images/test_grid_image.png");
         assertTrue(file.exists(), "Image file was not created");
     }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#accumulatePixel(int, int, Color)} in HDR framebuffer mode.
+     */
+    @Test
+    void testHdrFramebuffer() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("test_hdr_image", 4, 2).setHdr(true);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Written pixel keeps its unclamped color
+        imageWriter.writePixel(0, 0, new Color(1000, 20, 30));
+        assertEquals(1000, imageWriter.getPixel(0, 0).getRed(), 1e-3, "HDR pixel was clamped");
+
+        // TC02: Accumulated samples are averaged
+        imageWriter.accumulatePixel(1, 1, new Color(100, 0, 10));
+        imageWriter.accumulatePixel(1, 1, new Color(200, 50, 30));
+        Color average = imageWriter.getPixel(1, 1);
+        assertEquals(150, average.getRed(), 1e-3, "Wrong average of the red samples");
+        assertEquals(25, average.getGreen(), 1e-3, "Wrong average of the green samples");
+        assertEquals(20, average.getBlue(), 1e-3, "Wrong average of the blue samples");
+
+        // TC03: The image is converted to 8 bits when it is written
+        imageWriter.writeToImage();
+        Path file = Path.of(System.getProperty("user.dir"), "images", "test_hdr_image.png");
+        BufferedImage image = ImageIO.read(file.toFile());
+        Files.delete(file);
+        assertEquals(new java.awt.Color(255, 20, 30).getRGB(), image.getRGB(0, 0), "Wrong clamped pixel");
+        assertEquals(new java.awt.Color(150, 25, 20).getRGB(), image.getRGB(1, 1), "Wrong averaged pixel");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Pixel without samples is black
+        assertEquals(java.awt.Color.BLACK.getRGB(), image.getRGB(3, 0), "Pixel without samples is not black");
+
+        // TC11: Accumulation without the HDR framebuffer
+        assertThrows(IllegalStateException.class,
+                () -> new ImageWriter("test", 1, 1).accumulatePixel(0, 0, Color.BLACK), "Accumulated without HDR");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writePixels(int, int, int, int, Color[])}.
+     */
+    @Test
+    void testWritePixelsConcurrently() throws Exception {
+        int size = 200, tile = 50;
+        ImageWriter imageWriter = new ImageWriter("test_concurrent_image", size, size);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Threads writing disjoint tiles in bulk and pixel by pixel
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int ty = thread; ty < size / tile; ty += threads.length) {
+                    for (int tx = 0; tx < size / tile; ++tx) {
+                        Color[] colors = new Color[tile * tile];
+                        for (int k = 0; k < colors.length; ++k)
+                            colors[k] = new Color(tx * tile + k % tile, ty * tile + k / tile, thread);
+                        if (tx % 2 == 0)
+                            imageWriter.writePixels(tx * tile, ty * tile, tile, tile, colors);
+                        else
+                            for (int k = 0; k < colors.length; ++k)
+                                imageWriter.writePixel(tx * tile + k % tile, ty * tile + k / tile, colors[k]);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        imageWriter.writeToImage();
+
+        BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/test_concurrent_image.png"));
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x)
+                assertEquals(new java.awt.Color(x, y, (y / tile) % threads.length).getRGB(), image.getRGB(x, y),
+                        "Wrong pixel (" + x + ", " + y + ")");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#rowsCompleted(int, int)} in streaming mode.
+     */
+    @Test
+    void testStreamingPng() throws IOException {
+        int nX = 400, nY = 700; // several compressed chunks
+        File file = new File(System.getProperty("user.dir") + "/images/test_streaming_image.png");
+        ImageWriter imageWriter = new ImageWriter("test_streaming_image", nX, nY).setStreaming(true);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rows completed out of order are encoded into a valid image
+        for (int band = nY / 100 - 1; band >= 0; --band) {
+            for (int y = band * 100; y < band * 100 + 100; ++y)
+                for (int x = 0; x < nX; ++x)
+                    imageWriter.writePixel(x, y, new Color(x % 256, y % 256, (x * y) % 251));
+            imageWriter.rowsCompleted(band * 100, band * 100 + 100);
+        }
+        imageWriter.writeToImage();
+        BufferedImage image = ImageIO.read(file);
+        for (int y = 0; y < nY; ++y)
+            for (int x = 0; x < nX; ++x)
+                assertEquals(new java.awt.Color(x % 256, y % 256, (x * y) % 251).getRGB(), image.getRGB(x, y),
+                        "Wrong pixel (" + x + ", " + y + ")");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A pixel written into an encoded row restarts the encoding
+        imageWriter.rowsCompleted(0, nY);
+        imageWriter.writePixel(5, 5, new Color(1, 2, 3));
+        imageWriter.writeToImage();
+        assertEquals(new java.awt.Color(1, 2, 3).getRGB(), ImageIO.read(file).getRGB(5, 5), "Late pixel was lost");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#ImageWriter(String, int, int, Path)}.
+     */
+    @Test
+    void testMappedFramebuffer() throws IOException {
+        int nX = 300, nY = 200; // partial tiles of the layout at the right and bottom edges
+        Path framebuffer = Files.createTempFile("framebuffer", ".bin");
+        try {
+            ImageWriter imageWriter = new ImageWriter("test_mapped_image", nX, nY, framebuffer);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Pixels written to the mapped framebuffer are encoded into the image
+            for (int y = 0; y < nY; ++y)
+                for (int x = 0; x < nX; ++x)
+                    imageWriter.writePixel(x, y, new Color(x % 256, y, 300));
+            imageWriter.writeToImage();
+            BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/test_mapped_image.png"));
+            for (int y = 0; y < nY; ++y)
+                for (int x = 0; x < nX; ++x)
+                    assertEquals(new java.awt.Color(x % 256, y, 255).getRGB(), image.getRGB(x, y),
+                            "Wrong pixel (" + x + ", " + y + ")");
+
+            // TC02: The framebuffer is kept in the file, in whole tiles
+            assertEquals(5 * 4 * 64 * 64 * 4, Files.size(framebuffer), "Wrong framebuffer file size");
+
+            // =============== Boundary Values Tests ==================
+            // TC10: HDR mode cannot be combined with the mapped framebuffer
+            assertThrows(IllegalStateException.class, () -> imageWriter.setHdr(true), "HDR mode accepted");
+        } finally {
+            Files.deleteIfExists(framebuffer);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writeToPfm()}.
+     */
+    @Test
+    void testWriteToPfm() throws IOException {
+        ImageWriter imageWriter = new ImageWriter("test_pfm_image", 3, 2).setHdr(true);
+        imageWriter.writePixel(0, 0, new Color(510, 255, 0));
+        imageWriter.writePixel(2, 1, new Color(0, 51, 25.5));
+        imageWriter.writeToPfm();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Header, then little-endian rows from the bottom up, with 1.0 as the 8-bit white
+        byte[] bytes = Files.readAllBytes(Path.of(System.getProperty("user.dir"), "images", "test_pfm_image.pfm"));
+        String header = "PF\n3 2\n-1.0\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII), "Wrong PFM header");
+        ByteBuffer floats = ByteBuffer.wrap(bytes, header.length(), bytes.length - header.length())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3 * 2 * 3 * 4, floats.remaining(), "Wrong PFM data size");
+        float[] data = new float[18];
+        floats.asFloatBuffer().get(data);
+        assertEquals(0.2f, data[7], 1e-6, "Wrong pixel (2, 1) green");
+        assertEquals(0.1f, data[8], 1e-6, "Wrong pixel (2, 1) blue");
+        assertEquals(2f, data[9], 1e-6, "Wrong unclamped pixel (0, 0) red");
+        assertEquals(1f, data[10], 1e-6, "Wrong pixel (0, 0) green");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Writing without the HDR framebuffer
+        assertThrows(IllegalStateException.class, () -> new ImageWriter("test", 1, 1).writeToPfm(),
+                "PFM written without HDR");
+    }
+
+    /**
+     * Test method for {@link renderer.ImageWriter#writeToRgbe()}.
+     */
+    @Test
+    void testWriteToRgbe() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Run-length encoded scanlines decode to the pixel colors
+        ImageWriter imageWriter = new ImageWriter("test_rgbe_image", 200, 2).setHdr(true);
+        for (int x = 0; x < 200; ++x) {
+            imageWriter.writePixel(x, 0, new Color(255, 127.5, 0));
+            imageWriter.writePixel(x, 1, new Color(x * 10, x % 7, 1000));
+        }
+        imageWriter.writeToRgbe();
+        float[][] pixels = readRgbe("test_rgbe_image", 200, 2);
+        assertEquals(1f, pixels[0][0], 1e-2, "Wrong red of a run");
+        assertEquals(0.5f, pixels[199][1], 1e-2, "Wrong green of a run");
+        for (int x = 0; x < 200; ++x) {
+            float[] pixel = pixels[200 + x];
+            float tolerance = Math.max(x * 10 / 255f, 1000 / 255f) / 128;
+            assertEquals(x * 10 / 255f, pixel[0], tolerance, "Wrong red of pixel " + x);
+            assertEquals(1000 / 255f, pixel[2], tolerance, "Wrong blue of pixel " + x);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Narrow image is written flat
+        ImageWriter narrow = new ImageWriter("test_rgbe_narrow", 2, 1).setHdr(true);
+        narrow.writePixel(0, 0, new Color(255, 0, 0));
+        narrow.writeToRgbe();
+        assertEquals(1f, readRgbe("test_rgbe_narrow", 2, 1)[0][0], 1e-2, "Wrong flat pixel");
+        assertEquals(0f, readRgbe("test_rgbe_narrow", 2, 1)[1][0], 1e-6, "Wrong flat black pixel");
+    }
+
+    /**
+     * Reads a Radiance RGBE file written by the image writer.
+     *
+     * @param name   the image name
+     * @param width  the image width
+     * @param height the image height
+     * @return the linear RGB of the pixels, row by row
+     * @throws IOException on an I/O error
+     */
+    private static float[][] readRgbe(String name, int width, int height) throws IOException {
+        byte[] bytes = Files.readAllBytes(Path.of(System.getProperty("user.dir"), "images", name + ".hdr"));
+        String header = "#?RADIANCE\nFORMAT=32-bit_rle_rgbe\n\n-Y " + height + " +X " + width + "\n";
+        assertEquals(header, new String(bytes, 0, header.length(), StandardCharsets.US_ASCII), "Wrong RGBE header");
+        int pos = header.length();
+        float[][] pixels = new float[width * height][];
+        byte[] scanline = new byte[width * 4];
+        for (int y = 0; y < height; ++y) {
+            if (width >= 8 && width <= 0x7fff) {
+                assertEquals(2, bytes[pos] & 0xff, "Missing scanline marker");
+                assertEquals(width, (bytes[pos + 2] & 0xff) << 8 | bytes[pos + 3] & 0xff, "Wrong scanline width");
+                pos += 4;
+                for (int i = 0; i < scanline.length; ) {
+                    int code = bytes[pos++] & 0xff;
+                    if (code > 128) {
+                        for (int k = 0; k < code - 128; ++k) scanline[i++] = bytes[pos];
+                        ++pos;
+                    } else {
+                        for (int k = 0; k < code; ++k) scanline[i++] = bytes[pos++];
+                    }
+                }
+                for (int x = 0; x < width; ++x)
+                    pixels[y * width + x] = rgbe(scanline[x], scanline[width + x], scanline[2 * width + x],
+                            scanline[3 * width + x]);
+            } else {
+                for (int x = 0; x < width; ++x, pos += 4)
+                    pixels[y * width + x] = rgbe(bytes[pos], bytes[pos + 1], bytes[pos + 2], bytes[pos + 3]);
+            }
+        }
+        assertEquals(bytes.length, pos, "Extra bytes after the pixels");
+        return pixels;
+    }
+
+    /**
+     * Decodes an RGBE pixel.
+     *
+     * @param r the red mantissa
+     * @param g the green mantissa
+     * @param b the blue mantissa
+     * @param e the shared exponent
+     * @return the linear RGB
+     */
+    private static float[] rgbe(byte r, byte g, byte b, byte e) {
+        if (e == 0) return new float[]{0, 0, 0};
+        float scale = Math.scalb(1f, (e & 0xff) - 136);
+        return new float[]{((r & 0xff) + 0.5f) * scale, ((g & 0xff) + 0.5f) * scale, ((b & 0xff) + 0.5f) * scale};
+    }
 }
@@ -0,0 +1,62 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Unit tests for {@link IterativeRayTracer}
+ */
+class IterativeRayTracerTests {
+    /**
+     * Creates a scene of a glass ball between two facing tinted mirrors, lit by a point light
+     *
+     * @return the scene
+     */
+    private static Scene scene() {
+        Scene scene = new Scene("Glass between mirrors").setBackground(new Color(10, 20, 30));
+        Material mirror = new Material().setKD(0.2).setKS(0.3).setShininess(20).setKR(new Double3(0.8, 0.6, 0.4));
+        scene.geometries.add(
+                new Plane(new Point(0, 0, 0), new Vector(0, 1, 0)).setEmission(new Color(40, 0, 0)).setMaterial(mirror),
+                new Plane(new Point(0, 100, 0), new Vector(0, -1, 0)).setEmission(new Color(0, 40, 0)).setMaterial(mirror),
+                new Sphere(20, new Point(50, 50, -30)).setEmission(new Color(0, 0, 60))
+                        .setMaterial(new Material().setKD(0.3).setKS(0.3).setShininess(50).setKR(0.3).setKT(0.6)));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), new Double3(0.05)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point(0, 80, 50)).setKL(0.001));
+        return scene;
+    }
+
+    /**
+     * Test method for {@link IterativeRayTracer#traceRay(Ray)}.
+     */
+    @Test
+    void testTraceRay() {
+        SimpleRayTracer recursive = new SimpleRayTracer(scene()).setMaxLevel(12).setMinK(1e-4);
+        IterativeRayTracer iterative = new IterativeRayTracer(scene());
+        iterative.setMaxLevel(12).setMinK(1e-4);
+        Point eye = new Point(-50, 50, 100);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rays through the reflection and refraction trees give the colors of the recursive tracer
+        for (int i = 0; i < 40; ++i) {
+            Ray ray = new Ray(eye, new Point(50 + 3 * (i % 8) - 12, 20 + 3 * i, -30).subtract(eye));
+            Color expected = recursive.traceRay(ray);
+            Color actual = iterative.traceRay(ray);
+            assertEquals(expected.getRed(), actual.getRed(), 1e-9, "Wrong red at ray " + i);
+            assertEquals(expected.getGreen(), actual.getGreen(), 1e-9, "Wrong green at ray " + i);
+            assertEquals(expected.getBlue(), actual.getBlue(), 1e-9, "Wrong blue at ray " + i);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A ray missing the scene gets the background
+        Color miss = iterative.traceRay(new Ray(eye, new Vector(0, 0, 1)));
+        assertEquals(10, miss.getRed(), 1e-9, "Wrong background");
+    }
+}
@@ -0,0 +1,59 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import lighting.DirectionalLight;
+import lighting.LightSource;
+import lighting.PointLight;
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link LightIndex}
+ */
+class LightIndexTests {
+    /**
+     * Test method for {@link LightIndex#lights(Point, List)}.
+     */
+    @Test
+    void testLights() {
+        // A row of lights 10 apart, each reaching 9 (1 + 2*d + d^2 = 100 at d = 9), and a directional light
+        List<LightSource> lights = new ArrayList<>();
+        for (int i = 0; i < 20; ++i)
+            lights.add(new PointLight(new Color(100, 100, 100), new Point(10 * i, 0, 0)).setKL(2).setKQ(1));
+        DirectionalLight sun = new DirectionalLight(new Color(10, 10, 10), new Vector(0, 0, -1));
+        lights.add(sun);
+        PointLight unattenuated = new PointLight(new Color(10, 10, 10), new Point(1000, 0, 0));
+        lights.add(unattenuated);
+        LightIndex index = new LightIndex(lights, 1);
+        List<LightSource> found = new ArrayList<>();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A point near a single light
+        assertEquals(Set.of(lights.get(5), sun, unattenuated),
+                new HashSet<>(index.lights(new Point(50, 3, 0), found)), "Wrong lights near a light");
+        // TC02: A point between two lights within the reach of both
+        assertEquals(Set.of(lights.get(5), lights.get(6), sun, unattenuated),
+                new HashSet<>(index.lights(new Point(55, 0, 0), found)), "Wrong lights between lights");
+        // TC03: A point far from the positioned lights gets only the lights reaching everywhere
+        assertEquals(Set.of(sun, unattenuated),
+                new HashSet<>(index.lights(new Point(55, 50, 0), found)), "Wrong lights far from the lights");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A point on the sphere of influence of a light
+        assertTrue(index.lights(new Point(9, 0, 0), found).contains(lights.get(0)), "Light missing at its radius");
+        // TC11: A light below the threshold everywhere is dropped
+        assertFalse(new LightIndex(List.of(new PointLight(new Color(1, 1, 1), Point.ZERO).setKQ(1)), 2)
+                .lights(Point.ZERO, found).iterator().hasNext(), "Dark light not dropped");
+        // TC12: Invalid threshold
+        assertThrows(IllegalArgumentException.class, () -> new LightIndex(lights, 0), "Zero threshold accepted");
+    }
+}
@@ -0,0 +1,96 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import lighting.LightSource;
+import lighting.PointLight;
+import primitives.Color;
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link LightSampler}
+ */
+class LightSamplerTests {
+    /**
+     * Delta for the comparisons of the tests
+     */
+    private static final double DELTA = 1e-9;
+    /**
+     * The point sampled in the tests
+     */
+    private final Point point = Point.ZERO;
+
+    /**
+     * Creates lights of different importance at the point of the tests
+     *
+     * @return the lights, with intensities 100, 50, 0 and 10 at the point
+     */
+    private List<LightSource> lights() {
+        List<LightSource> lights = new ArrayList<>();
+        lights.add(new PointLight(new Color(100, 20, 0), new Point(1, 0, 0)));
+        lights.add(new PointLight(new Color(0, 100, 0), new Point(1, 0, 0)).setKC(2));
+        lights.add(new PointLight(Color.BLACK, new Point(0, 1, 0)));
+        lights.add(new PointLight(new Color(0, 0, 20), new Point(0, 0, 1)).setKC(2));
+        return lights;
+    }
+
+    /**
+     * Importance of a light at the point of the tests
+     *
+     * @param light the light
+     * @return the strongest component of the light's intensity at the point
+     */
+    private double importance(LightSource light) {
+        Color intensity = light.getIntensity(point);
+        return Math.max(intensity.getRed(), Math.max(intensity.getGreen(), intensity.getBlue()));
+    }
+
+    /**
+     * Test method for {@link LightSampler#select(Point, List, int, java.util.random.RandomGenerator)}.
+     */
+    @Test
+    void testSelect() {
+        List<LightSource> lights = lights();
+        LightSampler sampler = new LightSampler();
+        Random random = new Random(42);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Each pick contributes the total importance divided by the budget
+        for (int trial = 0; trial < 100; ++trial) {
+            double sum = 0;
+            for (int i = 0, count = sampler.select(point, lights, 2, random); i < count; ++i)
+                sum += sampler.weight(i) * importance(sampler.light(i));
+            assertEquals(160, sum, DELTA, "Wrong weighted importance");
+        }
+        // TC02: The expected weight of every light is 1 and the dark light is never picked
+        double[] weights = new double[lights.size()];
+        int trials = 20000;
+        for (int trial = 0; trial < trials; ++trial) {
+            for (int i = 0, count = sampler.select(point, lights, 2, random); i < count; ++i)
+                weights[lights.indexOf(sampler.light(i))] += sampler.weight(i);
+        }
+        assertEquals(1, weights[0] / trials, 0.05, "Biased weight of the strong light");
+        assertEquals(1, weights[1] / trials, 0.05, "Biased weight of the medium light");
+        assertEquals(0, weights[2], DELTA, "Dark light picked");
+        assertEquals(1, weights[3] / trials, 0.1, "Biased weight of the weak light");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Without a budget all the lights are selected with weight 1
+        assertEquals(4, sampler.select(point, lights, 0, random), "Wrong number of lights without budget");
+        for (int i = 0; i < 4; ++i) {
+            assertSame(lights.get(i), sampler.light(i), "Wrong light without budget");
+            assertEquals(1, sampler.weight(i), DELTA, "Wrong weight without budget");
+        }
+        // TC11: A budget of all the lights selects all the lights
+        assertEquals(4, sampler.select(point, lights, 4, random), "Wrong number of lights within budget");
+        // TC12: No light is selected if all the lights are dark
+        assertEquals(0, sampler.select(point, List.of(lights.get(2), lights.get(2)), 1, random),
+                "Dark light selected");
+    }
+}
@@ -0,0 +1,234 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import primitives.*;
+import scene.Scene;
+import scene.SceneCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for {@link RenderCoordinator} and {@link RenderWorker}
+ */
+class RenderCoordinatorTests {
+    /**
+     * Resolution of the image
+     */
+    private static final int RESOLUTION = 64;
+
+    /**
+     * Creates a camera of a test scene.
+     *
+     * @param writer the image writer of the camera
+     * @return the camera
+     */
+    private static Camera camera(ImageWriter writer) {
+        Scene scene = new Scene("Distributed").setBackground(new Color(20, 30, 40))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), new Double3(0.1)));
+        scene.geometries.add(new Plane(Point.ZERO, new Vector(0, 1, 0)).setMaterial(new Material().setKD(0.6)),
+                new Sphere(10, new Point(-10, 10, 0)).setEmission(new Color(40, 10, 10))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30).setKR(0.3)),
+                new Triangle(new Point(5, 1, -10), new Point(25, 1, -10), new Point(15, 20, 0))
+                        .setEmission(new Color(10, 40, 10)).setMaterial(new Material().setKD(0.5).setKT(0.4)));
+        scene.lights.add(new PointLight(new Color(400, 400, 400), new Point(-30, 60, 30)));
+        scene.lights.add(new SpotLight(new Color(300, 200, 100), new Point(30, 50, 20), new Vector(-1, -2, -1)));
+        return Camera.getBuilder().setLocation(new Point(0, 60, 100))
+                .setDirection(new Vector(0, -0.5, -1), new Vector(0, 1, -0.5))
+                .setVPDistance(100).setVPSize(80, 80).setTileSize(8).setImageWriter(writer)
+                .setRayTracer(new SimpleRayTracer(scene).setBvh(true)).build();
+    }
+
+    /**
+     * Starts a worker process on the local machine.
+     *
+     * @param port    the port of the coordinator
+     * @param threads the number of tracing threads of the worker
+     * @return the worker process
+     */
+    private static Process startWorker(int port, int threads) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classes = Path.of(RenderWorker.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .toString();
+        return new ProcessBuilder(java, "-cp", classes, RenderWorker.class.getName(),
+                "localhost", String.valueOf(port), String.valueOf(threads)).inheritIO().start();
+    }
+
+    /**
+     * Connects as a worker which takes tiles and disappears without returning them.
+     *
+     * @param port the port of the coordinator
+     */
+    private static void lostWorker(int port) throws IOException, ClassNotFoundException {
+        try (Socket socket = new Socket("localhost", port)) {
+            BufferedInputStream buffer = new BufferedInputStream(socket.getInputStream());
+            DataInputStream data = new DataInputStream(buffer);
+            data.readFully(new byte[data.readInt()]); // the scene
+            data.readFully(new byte[data.readInt()]); // the job
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(3);
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(buffer);
+            for (int i = 0; i < 3; ++i) assertInstanceOf(Tile.class, in.readObject(), "Tile expected");
+        }
+    }
+
+    /**
+     * Connects as a worker which returns a tile with too few pixels.
+     *
+     * @param port the port of the coordinator
+     */
+    private static void malformedWorker(int port) throws IOException, ClassNotFoundException {
+        try (Socket socket = new Socket("localhost", port)) {
+            BufferedInputStream buffer = new BufferedInputStream(socket.getInputStream());
+            DataInputStream data = new DataInputStream(buffer);
+            data.readFully(new byte[data.readInt()]); // the scene
+            data.readFully(new byte[data.readInt()]); // the job
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(1);
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(buffer);
+            Tile tile = (Tile) in.readObject();
+            out.writeObject(new RenderCoordinator.Result(tile, new float[3]));
+            out.flush();
+            // The coordinator drops the connection
+            assertThrows(IOException.class, in::readObject, "Malformed tile accepted");
+        }
+    }
+
+    /**
+     * Test method for {@link RenderCoordinator#render(Camera)}.
+     */
+    @Test
+    void testRender() throws Exception {
+        ImageWriter expected = new ImageWriter("distributedReference", RESOLUTION, RESOLUTION).setHdr(true);
+        camera(expected).renderImage();
+        ImageWriter actual = new ImageWriter("distributed", RESOLUTION, RESOLUTION).setHdr(true);
+        Camera camera = camera(actual);
+
+        List<Process> workers = new ArrayList<>();
+        try (RenderCoordinator coordinator = new RenderCoordinator(0).setRenderTimeout(60_000)) {
+            int port = coordinator.getPort();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread renderer = new Thread(() -> {
+                try {
+                    coordinator.render(camera);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            renderer.start();
+            // The tiles of a worker which disappears or returns a malformed tile go to the other workers
+            lostWorker(port);
+            malformedWorker(port);
+            workers.add(startWorker(port, 2));
+            workers.add(startWorker(port, 1));
+            renderer.join();
+            assertNull(failure.get(), "Render failed");
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: The image rendered by several worker processes is the image rendered locally
+            for (int y = 0; y < RESOLUTION; ++y) {
+                for (int x = 0; x < RESOLUTION; ++x) {
+                    Color e = expected.getPixel(x, y), a = actual.getPixel(x, y);
+                    assertEquals(e.getRed(), a.getRed(), 1e-4, "Wrong pixel at " + x + "," + y);
+                    assertEquals(e.getGreen(), a.getGreen(), 1e-4, "Wrong pixel at " + x + "," + y);
+                    assertEquals(e.getBlue(), a.getBlue(), 1e-4, "Wrong pixel at " + x + "," + y);
+                }
+            }
+            // TC02: The workers are released at the end of the render
+            for (Process worker : workers) assertEquals(0, worker.waitFor(), "Worker failed");
+
+            // =============== Boundary Values Tests ==================
+            // TC10: Missing camera
+            assertThrows(IllegalArgumentException.class, () -> coordinator.render(null), "Null camera accepted");
+            // TC11: Negative worker and render timeouts
+            assertThrows(IllegalArgumentException.class, () -> coordinator.setWorkerTimeout(-1),
+                    "Negative timeout accepted");
+            assertThrows(IllegalArgumentException.class, () -> coordinator.setRenderTimeout(-1),
+                    "Negative render timeout accepted");
+            // TC12: A render without workers ends at the render timeout
+            coordinator.setRenderTimeout(300);
+            assertThrows(IllegalStateException.class, () -> coordinator.render(camera(actual)),
+                    "Render without workers did not time out");
+            // TC13: A ray tracer whose behaviour cannot be sent to the workers
+            Camera custom = Camera.getBuilder().setLocation(Point.ZERO).setDirection(new Vector(0, 0, -1),
+                    new Vector(0, 1, 0)).setVPDistance(1).setVPSize(1, 1).setImageWriter(actual)
+                    .setRayTracer(new SimpleRayTracer(new Scene("Custom")) {
+                    }).build();
+            assertThrows(IllegalArgumentException.class, () -> coordinator.render(custom),
+                    "Custom ray tracer accepted");
+        } finally {
+            for (Process worker : workers) worker.destroyForcibly();
+        }
+        // TC14: Port out of range and worker without threads
+        assertThrows(IllegalArgumentException.class, () -> new RenderCoordinator(70000), "Bad port accepted");
+        assertThrows(IllegalArgumentException.class, () -> RenderWorker.run("localhost", 1, 0),
+                "Worker without threads accepted");
+        // TC15: A worker rejects a job of other classes
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread coordinator = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    byte[] scene = SceneCodec.encode(new Scene("Empty"));
+                    out.writeInt(scene.length);
+                    out.write(scene);
+                    ByteArrayOutputStream job = new ByteArrayOutputStream();
+                    try (ObjectOutputStream objects = new ObjectOutputStream(job)) {
+                        objects.writeObject(new java.util.HashMap<String, String>());
+                    }
+                    out.writeInt(job.size());
+                    job.writeTo(out);
+                    out.flush();
+                    socket.getInputStream().read();
+                } catch (IOException ignored) {
+                    // the worker dropped the connection
+                }
+            });
+            coordinator.start();
+            IOException e = assertThrows(IOException.class,
+                    () -> RenderWorker.run("localhost", server.getLocalPort(), 1), "Job of another class accepted");
+            assertInstanceOf(InvalidClassException.class, e, "Job class not rejected by the filter");
+            coordinator.join();
+        }
+        // TC16: A worker rejects a block of a negative length
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread coordinator = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeInt(-1);
+                    out.flush();
+                    socket.getInputStream().read();
+                } catch (IOException ignored) {
+                    // the worker dropped the connection
+                }
+            });
+            coordinator.start();
+            assertThrows(IOException.class, () -> RenderWorker.run("localhost", server.getLocalPort(), 1),
+                    "Negative block length accepted");
+            coordinator.join();
+        }
+    }
+}
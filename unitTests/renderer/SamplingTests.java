@@ -0,0 +1,66 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Color;
+import primitives.Vector;
+
+/**
+ * Unit tests for {@link Sampling}
+ */
+class SamplingTests {
+    /**
+     * Delta for the comparisons of the tests
+     */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Test method for {@link Sampling#cone(Vector, double, double, double)}.
+     */
+    @Test
+    void testCone() {
+        Vector axis = new Vector(1, 2, 2).normalize();
+        double angle = 0.3;
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A direction inside the cone
+        Vector direction = Sampling.cone(axis, angle, 0.5, 0.3);
+        assertEquals(1, direction.length(), DELTA, "Cone direction not normalized");
+        double cos = direction.dotProduct(axis);
+        assertTrue(cos > Math.cos(angle) && cos < 1, "Cone direction out of the cone");
+        // TC02: Half of the parameter square covers half of the solid angle of the cone
+        assertEquals(1 - 0.5 * (1 - Math.cos(angle)), cos, DELTA, "Cone directions not uniform");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The first parameter 0 is the axis
+        assertEquals(1, Sampling.cone(axis, angle, 0, 0.7).dotProduct(axis), DELTA, "Wrong cone axis");
+        // TC11: The first parameter 1 is on the boundary of the cone
+        assertEquals(Math.cos(angle), Sampling.cone(axis, angle, 1, 0.7).dotProduct(axis), DELTA,
+                "Wrong cone boundary");
+        // TC12: An axis along the x axis
+        Vector x = new Vector(1, 0, 0);
+        assertEquals(Math.cos(angle), Sampling.cone(x, angle, 1, 0.2).dotProduct(x), DELTA,
+                "Wrong cone boundary around the x axis");
+    }
+
+    /**
+     * Test method for {@link Sampling#agree(Color[], int, int)}.
+     */
+    @Test
+    void testAgree() {
+        Color[] colors = { new Color(100, 0, 0), new Color(10, 20, 30), new Color(11, 21, 29), new Color(200, 0, 0) };
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Samples within the tolerance agree
+        assertTrue(Sampling.agree(colors, 1, 2), "Close samples disagree");
+        // TC02: Samples differing in one component disagree
+        assertFalse(Sampling.agree(colors, 0, 2), "Distant samples agree");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: A difference of exactly the tolerance agrees
+        assertTrue(Sampling.agree(new Color[]{ new Color(0, 5, 0), new Color(0, 5 + Sampling.AGREEMENT, 0) }, 0, 2),
+                "Samples at the tolerance disagree");
+        // TC11: Only the given range of samples is checked
+        assertTrue(Sampling.agree(colors, 3, 1), "Single sample disagrees");
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import geometries.*;
 import lighting.AmbientLight;
+import lighting.DiskLight;
 import lighting.SpotLight;
 import primitives.*;
 import scene.Scene;
@@ -108,6 +109,33 @@ public class ShadowTests {
                 new Point(-80, -80, 80));
     }
 
+    /**
+     * Produce the pictures of the sphere-triangle shading sequence (the initial picture, the moved triangle
+     * and the closer spot) as the frames of a single animation, with the sphere prepared once
+     */
+    @Test
+    public void sphereTriangleSequence() {
+        scene.geometries.add(sphere);
+        FrameSequence sequence = new FrameSequence(new SimpleRayTracer(scene));
+        Triangle initial = new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4));
+        Triangle[] triangles = {initial,
+                new Triangle(new Point(-60, -30, 0), new Point(-30, -60, 0), new Point(-58, -58, -4)),
+                new Triangle(new Point(-50, -20, 0), new Point(-20, -50, 0), new Point(-48, -48, -4)),
+                initial, initial};
+        Point[] spots = {new Point(-100, -100, 200), new Point(-100, -100, 200), new Point(-100, -100, 200),
+                new Point(-90, -90, 120), new Point(-80, -80, 80)};
+        for (int i = 0; i < triangles.length; ++i) {
+            FrameSequence.Frame frame = sequence.addFrame(
+                    camera.setImageWriter(new ImageWriter("shadowSphereTriangleFrame" + (i + 1), 400, 400)));
+            if (i == 0 || triangles[i] != triangles[i - 1])
+                frame.setGeometries(triangles[i].setEmission(new Color(BLUE)).setMaterial(trMaterial));
+            if (i == 0 || !spots[i].equals(spots[i - 1]))
+                frame.setLights(new SpotLight(new Color(400, 240, 0), spots[i], new Vector(1, 1, -3))
+                        .setKL(1E-5).setKQ(1.5E-7));
+        }
+        sequence.render();
+    }
+
     /**
      * Produce a picture of a two triangles lighted by a spot light with a Sphere
      * producing a shading
@@ -135,4 +163,31 @@ public class ShadowTests {
                 .writeToImage();
     }
 
+    /**
+     * Produce a picture of a two triangles lighted by a disk light with a Sphere
+     * producing a soft shading
+     */
+    @Test
+    public void trianglesSphereSoft() {
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135),
+                        new Point(75, 75, -150)) //
+                        .setMaterial(new Material().setKS(0.8).setShininess(60)), //
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+                        .setMaterial(new Material().setKS(0.8).setShininess(60)), //
+                new Sphere(30d, new Point(0, 0, -11)) //
+                        .setEmission(new Color(BLUE)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)) //
+        );
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.15)));
+        scene.lights.add(
+                new DiskLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4), 15) //
+                        .setSamples(64).setKL(4E-4).setKQ(2E-5));
+
+        camera.setImageWriter(new ImageWriter("shadowTrianglesSphereSoft", 600, 600))
+                .build()
+                .renderImage()
+                .writeToImage();
+    }
+
 }
@@ -0,0 +1,185 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.MovingGeometry;
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.DirectionalLight;
+import geometries.Triangle;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Unit tests for the tracing options of {@link SimpleRayTracer}
+ */
+class SimpleRayTracerTests {
+    /**
+     * Creates a scene of two facing half-mirrors, glowing red, with nothing else to see between them
+     *
+     * @return the scene
+     */
+    private static Scene mirrorsScene() {
+        Scene scene = new Scene("Facing mirrors");
+        Material mirror = new Material().setKR(0.5);
+        scene.geometries.add(
+                new Plane(new Point(0, 0, 0), new Vector(0, 1, 0)).setEmission(new Color(100, 0, 0)).setMaterial(mirror),
+                new Plane(new Point(0, 10, 0), new Vector(0, -1, 0)).setEmission(new Color(100, 0, 0)).setMaterial(mirror));
+        return scene;
+    }
+
+    /**
+     * Test method for {@link SimpleRayTracer#setRussianRoulette(double)}.
+     */
+    @Test
+    void testRussianRoulette() {
+        Ray ray = new Ray(new Point(0, 5, 0), new Vector(1, 1, 0));
+        // Each bounce adds the emission attenuated by 0.5, summing to 200 for a deep enough recursion
+        SimpleRayTracer exact = new SimpleRayTracer(mirrorsScene()).setMaxLevel(40).setMinK(0);
+        double expected = exact.traceRay(ray).getRed();
+        assertEquals(200, expected, 1e-6, "Wrong deep recursion");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The roulette keeps the expected color
+        SimpleRayTracer roulette = new SimpleRayTracer(mirrorsScene()).setMaxLevel(40).setRussianRoulette(0.3);
+        int samples = 20000;
+        double sum = 0;
+        for (int i = 0; i < samples; ++i) sum += roulette.traceRay(ray).getRed();
+        assertEquals(expected, sum / samples, 0.02 * expected, "Biased Russian roulette");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: The recursion is cut at the maximal level
+        assertEquals(100, new SimpleRayTracer(mirrorsScene()).setMaxLevel(1).traceRay(ray).getRed(), 1e-9,
+                "Recursion beyond the maximal level");
+        // TC11: The recursion is cut by the minimal attenuation - 0.5^k >= 0.1 up to k = 3
+        assertEquals(187.5, new SimpleRayTracer(mirrorsScene()).setMinK(0.1).traceRay(ray).getRed(), 1e-9,
+                "Recursion below the minimal attenuation");
+    }
+
+    /**
+     * Test method for the setters of the recursion limits.
+     */
+    @Test
+    void testRecursionLimits() {
+        SimpleRayTracer tracer = new SimpleRayTracer(mirrorsScene());
+        // =============== Boundary Values Tests ==================
+        // TC10: Zero recursion level
+        assertThrows(IllegalArgumentException.class, () -> tracer.setMaxLevel(0), "Zero level accepted");
+        // TC11: Negative minimal attenuation
+        assertThrows(IllegalArgumentException.class, () -> tracer.setMinK(-0.1), "Negative minimal k accepted");
+        // TC12: Minimal attenuation of 1
+        assertThrows(IllegalArgumentException.class, () -> tracer.setMinK(1), "Minimal k of 1 accepted");
+        // TC13: Roulette threshold above 1
+        assertThrows(IllegalArgumentException.class, () -> tracer.setRussianRoulette(1.5),
+                "Roulette threshold above 1 accepted");
+    }
+
+    /**
+     * Test method for glossy reflection and diffuse transparency ({@link Material#setGlossiness(double)},
+     * {@link Material#setDiffuseness(double)}).
+     */
+    @Test
+    void testConeEffects() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A glossy mirror reflecting a uniform background - the first rays agree on it
+        Scene glossy = new Scene("Glossy").setBackground(new Color(30, 60, 90));
+        glossy.geometries.add(new Plane(Point.ZERO, new Vector(0, 1, 0))
+                .setMaterial(new Material().setKR(0.5).setGlossiness(0.3)));
+        Color reflected = new SimpleRayTracer(glossy).traceRay(new Ray(new Point(0, 10, 0), new Vector(1, -1, 0)));
+        assertEquals(15, reflected.getRed(), 1e-9, "Wrong glossy reflection of a uniform background");
+        assertEquals(45, reflected.getBlue(), 1e-9, "Wrong glossy reflection of a uniform background");
+
+        // TC02: A frosted glass in front of the edge of a red wall blurs the edge
+        Scene frosted = new Scene("Frosted");
+        frosted.geometries.add(
+                new Plane(Point.ZERO, new Vector(0, 0, 1)).setMaterial(new Material().setKT(1).setDiffuseness(0.3)),
+                new Triangle(new Point(0, -1000, -100), new Point(0, 1000, -100), new Point(-1000, 0, -100))
+                        .setEmission(new Color(200, 0, 0)));
+        Ray edge = new Ray(new Point(1, 0, 10), new Vector(0, 0, -1));
+        SimpleRayTracer tracer = new SimpleRayTracer(frosted).setConeSamples(64);
+        double red = 0;
+        for (int i = 0; i < 20; ++i) red += tracer.traceRay(edge).getRed() / 20;
+        assertTrue(red > 60 && red < 140, "Frosted glass does not blur the edge: " + red);
+        // TC03: Clear glass keeps the edge sharp
+        Scene clear = new Scene("Clear");
+        clear.geometries.add(new Plane(Point.ZERO, new Vector(0, 0, 1)).setMaterial(new Material().setKT(1)),
+                frosted.geometries.getGeometries().get(1));
+        assertEquals(0, new SimpleRayTracer(clear).traceRay(edge).getRed(), 1e-9, "Clear glass blurs the edge");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Negative glossiness
+        assertThrows(IllegalArgumentException.class, () -> new Material().setGlossiness(-0.1),
+                "Negative glossiness accepted");
+        // TC11: Diffuseness of a right angle
+        assertThrows(IllegalArgumentException.class, () -> new Material().setDiffuseness(Math.PI / 2),
+                "Right angle diffuseness accepted");
+        // TC12: No cone samples
+        assertThrows(IllegalArgumentException.class, () -> new SimpleRayTracer(frosted).setConeSamples(0),
+                "No cone samples accepted");
+    }
+
+    /**
+     * Test method for {@link SimpleRayTracer#setAmbientOcclusion(double, int)}.
+     */
+    @Test
+    void testAmbientOcclusion() {
+        Scene scene = new Scene("Occlusion").setAmbientLight(new AmbientLight(new Color(100, 100, 100), Double3.ONE));
+        scene.geometries.add(new Plane(Point.ZERO, new Vector(0, 1, 0)),
+                new Sphere(10, new Point(0, 10.5, 0)));
+        SimpleRayTracer tracer = new SimpleRayTracer(scene).setAmbientOcclusion(20, 64);
+        Vector down = new Vector(0, -1, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A point far from the ball is fully open
+        assertEquals(100, tracer.traceRay(new Ray(new Point(50, 30, 0), down)).getRed(), 1e-9,
+                "Open point occluded");
+        // TC02: A point near the contact of the ball is partly occluded
+        // (on average: the first rays of a single estimate may all miss the ball)
+        Ray contact = new Ray(new Point(11, 30, 0), down);
+        double red = 0;
+        for (int i = 0; i < 32; ++i) red += tracer.traceRay(contact).getRed() / 32;
+        assertTrue(red > 10 && red < 95, "Wrong occlusion near the contact: " + red);
+
+        // =============== Boundary Values Tests ==================
+        // TC10: Occluders beyond the occlusion distance do not occlude
+        assertEquals(100, new SimpleRayTracer(scene).setAmbientOcclusion(0.05, 64).traceRay(contact).getRed(), 1e-9,
+                "Occlusion beyond the distance");
+        // TC11: Without ambient occlusion the ambient light is not scaled
+        assertEquals(100, new SimpleRayTracer(scene).traceRay(contact).getRed(), 1e-9, "Ambient light scaled");
+        // TC12: Negative distance
+        assertThrows(IllegalArgumentException.class, () -> tracer.setAmbientOcclusion(-1, 16),
+                "Negative occlusion distance accepted");
+        // TC13: No samples
+        assertThrows(IllegalArgumentException.class, () -> tracer.setAmbientOcclusion(1, 0),
+                "No occlusion samples accepted");
+    }
+
+    /**
+     * Test method for the time of the secondary rays of {@link SimpleRayTracer#traceRay(Ray)}.
+     */
+    @Test
+    void testMovingShadow() {
+        Scene scene = new Scene("Moving shadow");
+        scene.geometries.add(new Plane(Point.ZERO, new Vector(0, 1, 0)).setMaterial(new Material().setKD(1)),
+                new MovingGeometry(new Sphere(1, new Point(0, 5, 0)), new Vector(20, 0, 0)));
+        scene.lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(0, -1, 0)));
+        Point origin = new Point(-10, 10, 0);
+        Vector toShadow = new Vector(1, -1, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The shadow ray of a ray at the shutter opening is blocked by the ball above the point
+        assertEquals(0, new SimpleRayTracer(scene).traceRay(new Ray(origin, toShadow)).getRed(), 1e-9,
+                "Moving ball does not shadow at its place");
+        // TC02: The shadow ray of a later ray sees the ball moved away
+        assertEquals(100, new SimpleRayTracer(scene).traceRay(new Ray(origin, toShadow, 0.5)).getRed(), 1e-9,
+                "Moving ball shadows away from its place");
+        // TC03: The bounding volume hierarchy covers the motion of the ball
+        SimpleRayTracer bvh = new SimpleRayTracer(scene).setBvh(true);
+        bvh.prepare();
+        assertEquals(0, bvh.traceRay(new Ray(new Point(0, 10, 0), toShadow, 0.5)).getRed(), 1e-9,
+                "Moving ball does not shadow at its place in the middle of the motion");
+    }
+}
@@ -0,0 +1,697 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
+import primitives.*;
+import scene.Scene;
+import scene.SceneCodec;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Benchmarks of tracing alternatives on the scenes of the rendering tests.
+ * Each benchmark checks that the alternatives produce the same colors and prints their timings
+ * and their allocation rates (bytes allocated on the heap per primary ray).
+ * The benchmarks take minutes, so they are tagged {@code benchmark} and skipped unless the
+ * {@code renderer.benchmarks} system property is true (e.g. {@code -Drenderer.benchmarks=true}).
+ */
+@Tag("benchmark")
+public class TracingBenchmarkTests {
+    /**
+     * Resolution of the benchmark frames
+     */
+    private static final int RESOLUTION = 300;
+    /**
+     * Number of timed passes over a frame
+     */
+    private static final int PASSES = 3;
+
+    /**
+     * Skips the benchmarks unless they are enabled by the {@code renderer.benchmarks} system property.
+     */
+    @BeforeAll
+    static void enabled() {
+        assumeTrue(Boolean.getBoolean("renderer.benchmarks"), "Benchmarks disabled");
+    }
+
+    /**
+     * A benchmark scene with the camera looking at it
+     *
+     * @param scene  the scene
+     * @param camera the camera builder for the scene (without ray tracer and image writer)
+     */
+    private record BenchmarkScene(Scene scene, Camera.Builder camera) {
+    }
+
+    /**
+     * The scene of {@link ShadowTests#trianglesSphere()}
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene shadowScene() {
+        Scene scene = new Scene("Shadow scene");
+        scene.geometries.add(
+                new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKS(0.8).setShininess(60)),
+                new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150))
+                        .setMaterial(new Material().setKS(0.8).setShininess(60)),
+                new Sphere(30d, new Point(0, 0, -11)).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.15)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point(40, 40, 115), new Vector(-1, -1, -4))
+                .setKL(4E-4).setKQ(2E-5));
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 1000)).setVPDistance(1000).setVPSize(200, 200));
+    }
+
+    /**
+     * The scene of {@link ReflectionRefractionTests#twoSpheresOnMirrors()}
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene mirrorsScene() {
+        Scene scene = new Scene("Mirrors scene");
+        scene.geometries.add(
+                new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100))
+                        .setMaterial(new Material().setKD(0.25).setKS(0.25).setShininess(20)
+                                .setKT(new Double3(0.5, 0, 0))),
+                new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20))
+                        .setMaterial(new Material().setKD(0.25).setKS(0.25).setShininess(20)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500), new Point(670, 670, 3000))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKR(1)),
+                new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+                        new Point(-1500, -1500, -2000))
+                        .setEmission(new Color(20, 20, 20)).setMaterial(new Material().setKR(new Double3(0.5, 0, 0.4))));
+        scene.setAmbientLight(new AmbientLight(new Color(255, 255, 255), new Double3(0.1)));
+        scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4))
+                .setKL(0.00001).setKQ(0.000005));
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 10000)).setVPDistance(10000).setVPSize(2500, 2500));
+    }
+
+    /**
+     * The scene of {@link ReflectionRefractionTests#planeSphereTriangleTest()}
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene planeScene() {
+        Scene scene = new Scene("Plane scene").setBackground(new Color(173, 216, 230));
+        scene.geometries.add(
+                new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(GRAY))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.3).setKT(0.4).setShininess(20)),
+                new Sphere(60, new Point(0, -20, -100)).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.3).setKS(0.5).setKR(0.17).setKT(0.4).setShininess(100)),
+                new Sphere(20, new Point(30, -10, -130)).setEmission(new Color(255, 150, 45))
+                        .setMaterial(new Material().setKD(0.1).setKS(0.1).setKR(0.1).setKT(0.1).setShininess(10)),
+                new Triangle(new Point(-30, -50, -80), new Point(30, -50, -80), new Point(0, 30, -80))
+                        .setEmission(new Color(150, 75, 0))
+                        .setMaterial(new Material().setKD(0.1).setKS(0.5).setKR(0.4).setKT(0.2).setShininess(50)));
+        scene.lights.add(new SpotLight(new Color(500, 300, 300), new Point(50, 50, 50), new Vector(-1, -1, -2))
+                .setKL(0.0001).setKQ(0.000005));
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 200)).setVPDistance(200).setVPSize(200, 200));
+    }
+
+    /**
+     * A scene of pure diffuse materials (without specular parts) and many occluders, lit by seven lights
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene diffuseScene() {
+        Scene scene = new Scene("Diffuse scene");
+        Material diffuse = new Material().setKD(0.7);
+        scene.geometries.add(
+                new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20))
+                        .setMaterial(diffuse),
+                new Sphere(30, new Point(-40, -20, -100)).setEmission(new Color(0, 0, 60)).setMaterial(diffuse),
+                new Sphere(20, new Point(35, -30, -80)).setEmission(new Color(60, 0, 0)).setMaterial(diffuse),
+                new Triangle(new Point(-100, -50, -200), new Point(100, -50, -200), new Point(0, 80, -200))
+                        .setEmission(new Color(20, 40, 20)).setMaterial(diffuse));
+        // A ring of small spheres, making shadow rays expensive
+        for (int i = 0; i < 40; ++i) {
+            double angle = i * Math.PI / 20;
+            scene.geometries.add(new Sphere(4, new Point(90 * Math.cos(angle), -40, -140 + 60 * Math.sin(angle)))
+                    .setEmission(new Color(30, 30, 0)).setMaterial(diffuse));
+        }
+        scene.setAmbientLight(new AmbientLight(new Color(WHITE), new Double3(0.1)));
+        scene.lights.add(new SpotLight(new Color(600, 400, 300), new Point(60, 80, 20), new Vector(-1, -2, -2))
+                .setKL(0.0001).setKQ(0.00005));
+        for (int i = 0; i < 6; ++i) {
+            scene.lights.add(new PointLight(new Color(60, 60, 90), new Point(-150 + 60 * i, 60, -20 - 20 * i))
+                    .setKL(0.001));
+        }
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 200)).setVPDistance(200).setVPSize(200, 200));
+    }
+
+    /**
+     * A night scene of a street of lamp posts over a plane, lit by a hundred weak attenuated lights
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene nightScene() {
+        Scene scene = new Scene("Night scene");
+        Material diffuse = new Material().setKD(0.6).setKS(0.2).setShininess(20);
+        scene.geometries.add(new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(5, 5, 10))
+                .setMaterial(diffuse));
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                Point lamp = new Point(-270 + 60 * i, -30, -60 * j);
+                scene.lights.add(new PointLight(new Color(300, 260, 160), lamp).setKL(0.01).setKQ(0.05));
+                if ((i + j) % 3 == 0)
+                    scene.geometries.add(new Sphere(6, new Point(lamp.getX() + 15, -44, lamp.getZ() - 15))
+                            .setEmission(new Color(20, 20, 30)).setMaterial(diffuse));
+            }
+        }
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, -1, -2), new Vector(0, 2, -1))
+                .setLocation(new Point(0, 250, 200)).setVPDistance(300).setVPSize(400, 400));
+    }
+
+    /**
+     * The scene of {@link #planeScene()} with a glossy floor, a frosted glass ball and a blurry mirror triangle
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene glossyScene() {
+        Scene scene = new Scene("Glossy scene").setBackground(new Color(173, 216, 230));
+        scene.geometries.add(
+                new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(GRAY))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.3).setKR(0.3).setShininess(20)
+                                .setGlossiness(0.1)),
+                new Sphere(60, new Point(0, -20, -100)).setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.3).setKS(0.5).setKT(0.6).setShininess(100)
+                                .setDiffuseness(0.15)),
+                new Sphere(20, new Point(30, -10, -130)).setEmission(new Color(255, 150, 45))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.3).setShininess(10)),
+                new Triangle(new Point(-30, -50, -80), new Point(30, -50, -80), new Point(0, 30, -80))
+                        .setEmission(new Color(150, 75, 0))
+                        .setMaterial(new Material().setKD(0.1).setKS(0.5).setKR(0.4).setShininess(50)
+                                .setGlossiness(0.05)));
+        scene.lights.add(new SpotLight(new Color(500, 300, 300), new Point(50, 50, 50), new Vector(-1, -1, -2))
+                .setKL(0.0001).setKQ(0.000005));
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 200)).setVPDistance(200).setVPSize(200, 200));
+    }
+
+    /**
+     * A floor with a still ball and two balls moving during the shutter interval, one across the frame
+     * and one bouncing up
+     *
+     * @return the benchmark scene
+     */
+    private static BenchmarkScene motionScene() {
+        Scene scene = new Scene("Motion scene").setBackground(new Color(40, 40, 60));
+        Material diffuse = new Material().setKD(0.6).setKS(0.3).setShininess(30);
+        scene.geometries.add(
+                new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(GRAY)).setMaterial(diffuse),
+                new Sphere(20, new Point(-60, -30, -100)).setEmission(new Color(BLUE)).setMaterial(diffuse),
+                new MovingGeometry(new Sphere(15, new Point(-20, -35, -60)).setEmission(new Color(RED))
+                        .setMaterial(diffuse), new Vector(50, 0, 0)),
+                new MovingGeometry(new Sphere(10, new Point(50, -40, -80)).setEmission(new Color(GREEN))
+                        .setMaterial(diffuse), new Vector(0, 40, 0)));
+        scene.lights.add(new SpotLight(new Color(500, 300, 300), new Point(50, 50, 50), new Vector(-1, -1, -2))
+                .setKL(0.0001).setKQ(0.000005));
+        return new BenchmarkScene(scene, Camera.getBuilder()
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setLocation(new Point(0, 0, 200)).setVPDistance(200).setVPSize(200, 200));
+    }
+
+    /**
+     * Constructs the primary rays of a frame of a benchmark scene, row by row.
+     *
+     * @param benchmark the benchmark scene
+     * @return the primary rays
+     */
+    private static Ray[] primaryRays(BenchmarkScene benchmark) {
+        Camera camera = benchmark.camera()
+                .setImageWriter(new ImageWriter("benchmark", RESOLUTION, RESOLUTION))
+                .setRayTracer(new SimpleRayTracer(benchmark.scene()))
+                .build();
+        Ray[] rays = new Ray[RESOLUTION * RESOLUTION];
+        for (int i = 0; i < RESOLUTION; ++i)
+            for (int j = 0; j < RESOLUTION; ++j)
+                rays[i * RESOLUTION + j] = camera.constructRay(RESOLUTION, RESOLUTION, j, i);
+        return rays;
+    }
+
+    /**
+     * Traces a frame in tile-sized batches, as the camera does.
+     *
+     * @param tracer the prepared ray tracer
+     * @param rays   the primary rays of the frame
+     * @return the colors of the rays
+     */
+    private static Color[] trace(RayTracerBase tracer, Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        Ray[] batch = new Ray[RESOLUTION];
+        Color[] batchColors = new Color[RESOLUTION];
+        for (int start = 0; start < rays.length; start += RESOLUTION) {
+            System.arraycopy(rays, start, batch, 0, RESOLUTION);
+            tracer.traceRays(batch, RESOLUTION, batchColors);
+            System.arraycopy(batchColors, 0, colors, start, RESOLUTION);
+        }
+        return colors;
+    }
+
+    /**
+     * Times tracing a frame (after a warm-up pass).
+     *
+     * @param tracer the prepared ray tracer
+     * @param rays   the primary rays of the frame
+     * @return average time of a pass in milliseconds
+     */
+    private static double time(RayTracerBase tracer, Ray[] rays) {
+        trace(tracer, rays);
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASSES; ++pass) trace(tracer, rays);
+        return (System.nanoTime() - start) / 1e6 / PASSES;
+    }
+
+    /**
+     * Measures the heap allocation of tracing a frame (after a warm-up pass) on the current thread.
+     *
+     * @param tracer the prepared ray tracer
+     * @param rays   the primary rays of the frame
+     * @return the allocated bytes per primary ray, or NaN if the JVM does not report thread allocation
+     */
+    private static double allocationPerRay(RayTracerBase tracer, Ray[] rays) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported())
+            return Double.NaN;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        trace(tracer, rays);
+        long thread = Thread.currentThread().threadId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        trace(tracer, rays);
+        return (threads.getThreadAllocatedBytes(thread) - start) / (double) rays.length;
+    }
+
+    /**
+     * Asserts that two frames have the same colors.
+     *
+     * @param expected the reference colors
+     * @param actual   the tested colors
+     * @param message  the failure message
+     */
+    private static void assertSameColors(Color[] expected, Color[] actual, String message) {
+        for (int i = 0; i < expected.length; ++i) {
+            assertEquals(expected[i].getRed(), actual[i].getRed(), 1e-9, message + " at ray " + i);
+            assertEquals(expected[i].getGreen(), actual[i].getGreen(), 1e-9, message + " at ray " + i);
+            assertEquals(expected[i].getBlue(), actual[i].getBlue(), 1e-9, message + " at ray " + i);
+        }
+    }
+
+    /**
+     * Measures the deviation of a frame from a reference frame, as the sum of the absolute differences
+     * of the color components of a ray.
+     *
+     * @param expected the reference colors
+     * @param actual   the tested colors
+     * @return the mean and the maximal deviation of a ray
+     */
+    private static double[] deviation(Color[] expected, Color[] actual) {
+        double total = 0, max = 0;
+        for (int i = 0; i < expected.length; ++i) {
+            double difference = Math.abs(expected[i].getRed() - actual[i].getRed())
+                    + Math.abs(expected[i].getGreen() - actual[i].getGreen())
+                    + Math.abs(expected[i].getBlue() - actual[i].getBlue());
+            total += difference;
+            max = Math.max(max, difference);
+        }
+        return new double[]{total / expected.length, max};
+    }
+
+    /**
+     * Compares a tracing alternative against the plain single-ray tracer on all the benchmark scenes.
+     *
+     * @param name        the name of the alternative
+     * @param alternative creates the alternative tracer of a scene
+     */
+    private static void compare(String name, Function<Scene, RayTracerBase> alternative) {
+        for (BenchmarkScene benchmark : new BenchmarkScene[]{shadowScene(), mirrorsScene(), planeScene()}) {
+            Ray[] rays = primaryRays(benchmark);
+            RayTracerBase reference = new SimpleRayTracer(benchmark.scene());
+            RayTracerBase tested = alternative.apply(benchmark.scene());
+            reference.prepare();
+            tested.prepare();
+
+            assertSameColors(trace(reference, rays), trace(tested, rays), name + " differs in " + benchmark.scene().name);
+            System.out.printf("%-20s %-14s single ray: %8.1f ms %7.0f B/ray, %s: %8.1f ms %7.0f B/ray%n",
+                    name, benchmark.scene().name,
+                    time(reference, rays), allocationPerRay(reference, rays),
+                    name, time(tested, rays), allocationPerRay(tested, rays));
+        }
+    }
+
+    /**
+     * Packet tracing through a bounding volume hierarchy against single-ray traversal
+     */
+    @Test
+    public void packetTracing() {
+        compare("bvh", scene -> new SimpleRayTracer(scene).setBvh(true));
+        compare("bvh+packets", scene -> new SimpleRayTracer(scene).setBvh(true).setPacketSize(64));
+    }
+
+    /**
+     * Iterative traversal of the ray trees with an explicit stack against the recursive tracer
+     */
+    @Test
+    public void iterativeTracing() {
+        compare("iterative", IterativeRayTracer::new);
+        compare("iterative+bvh", scene -> new IterativeRayTracer(scene).setBvh(true));
+    }
+
+    /**
+     * Reports the time and the allocation rate of the plain single-ray tracer on all the benchmark scenes
+     */
+    @Test
+    public void allocationRate() {
+        for (BenchmarkScene benchmark : new BenchmarkScene[]{shadowScene(), mirrorsScene(), planeScene()}) {
+            Ray[] rays = primaryRays(benchmark);
+            RayTracerBase tracer = new SimpleRayTracer(benchmark.scene());
+            tracer.prepare();
+            System.out.printf("%-20s %-14s %8.1f ms %7.0f B/ray%n", "allocation", benchmark.scene().name,
+                    time(tracer, rays), allocationPerRay(tracer, rays));
+        }
+    }
+
+    /**
+     * Light culling by the radius of influence of the lights against evaluating all the lights at each hit,
+     * reporting the deviation of the colors for several cutoff intensities
+     */
+    @Test
+    public void lightCulling() {
+        BenchmarkScene benchmark = nightScene();
+        Ray[] rays = primaryRays(benchmark);
+        RayTracerBase reference = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+        reference.prepare();
+        Color[] expected = trace(reference, rays);
+        System.out.printf("%-20s %-14s all lights: %8.1f ms%n", "light culling", benchmark.scene().name,
+                time(reference, rays));
+        for (double cutoff : new double[]{0.1, 0.5, 2}) {
+            RayTracerBase culled = new SimpleRayTracer(benchmark.scene()).setBvh(true).setLightCutoff(cutoff);
+            culled.prepare();
+            double[] deviation = deviation(expected, trace(culled, rays));
+            System.out.printf("%-20s cutoff %-7.1f culled: %8.1f ms, mean difference %6.2f, max difference %6.1f%n",
+                    "light culling", cutoff, time(culled, rays), deviation[0], deviation[1]);
+        }
+    }
+
+    /**
+     * Stochastic selection of the lights of a hit by importance against evaluating all the lights reaching it,
+     * reporting the deviation (noise) of the colors for several budgets of lights per hit
+     */
+    @Test
+    public void lightSampling() {
+        BenchmarkScene benchmark = nightScene();
+        Ray[] rays = primaryRays(benchmark);
+        RayTracerBase reference = new SimpleRayTracer(benchmark.scene()).setBvh(true).setLightCutoff(0.1);
+        reference.prepare();
+        Color[] expected = trace(reference, rays);
+        System.out.printf("%-20s %-14s all lights: %8.1f ms%n", "light sampling", benchmark.scene().name,
+                time(reference, rays));
+        for (int budget : new int[]{16, 4, 1}) {
+            RayTracerBase sampled = new SimpleRayTracer(benchmark.scene()).setBvh(true).setLightCutoff(0.1)
+                    .setLightSamples(budget);
+            sampled.prepare();
+            double[] deviation = deviation(expected, trace(sampled, rays));
+            System.out.printf("%-20s budget %-7d sampled: %8.1f ms, mean difference %6.2f, max difference %6.1f%n",
+                    "light sampling", budget, time(sampled, rays), deviation[0], deviation[1]);
+        }
+    }
+
+    /**
+     * Per-thread cache of the last occluder of each light against traversing the scene for every shadow ray,
+     * reporting the shadow ray traversals of a frame with and without the cache
+     */
+    @Test
+    public void occluderCache() {
+        for (BenchmarkScene benchmark : new BenchmarkScene[]{shadowScene(), diffuseScene(), nightScene()}) {
+            Ray[] rays = primaryRays(benchmark);
+            SimpleRayTracer reference = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+            SimpleRayTracer cached = new SimpleRayTracer(benchmark.scene()).setBvh(true).setOccluderCache(true);
+            reference.prepare();
+            cached.prepare();
+
+            assertSameColors(trace(reference, rays), trace(cached, rays),
+                    "occluder cache differs in " + benchmark.scene().name);
+            System.out.printf("%-20s %-14s traversals: %9d, cached: %9d traversals + %9d cache hits, "
+                            + "%9d cache misses%n", "occluder cache", benchmark.scene().name,
+                    reference.getShadowTraversals(), cached.getShadowTraversals(), cached.getOccluderCacheHits(),
+                    cached.getOccluderCacheMisses());
+            System.out.printf("%-20s %-14s single ray: %8.1f ms, cached: %8.1f ms%n", "occluder cache",
+                    benchmark.scene().name, time(reference, rays), time(cached, rays));
+        }
+    }
+
+    /**
+     * Russian roulette termination of the secondary rays against cutting them off by the minimal attenuation,
+     * reporting the deviation (noise) of the colors for several roulette thresholds
+     */
+    @Test
+    public void russianRoulette() {
+        for (BenchmarkScene benchmark : new BenchmarkScene[]{mirrorsScene(), planeScene()}) {
+            Ray[] rays = primaryRays(benchmark);
+            RayTracerBase reference = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+            reference.prepare();
+            Color[] expected = trace(reference, rays);
+            System.out.printf("%-20s %-14s cut off: %8.1f ms%n", "russian roulette", benchmark.scene().name,
+                    time(reference, rays));
+            for (double threshold : new double[]{0.1, 0.3}) {
+                RayTracerBase roulette = new SimpleRayTracer(benchmark.scene()).setBvh(true)
+                        .setRussianRoulette(threshold);
+                roulette.prepare();
+                double[] deviation = deviation(expected, trace(roulette, rays));
+                System.out.printf("%-20s threshold %-4.1f roulette: %8.1f ms, mean difference %6.2f, max difference %6.1f%n",
+                        "russian roulette", threshold, time(roulette, rays), deviation[0], deviation[1]);
+            }
+        }
+    }
+
+    /**
+     * Glossy reflection and diffuse transparency for several budgets of rays at the first bounce,
+     * reporting the deviation (noise) of the colors from a frame with a large budget
+     */
+    @Test
+    public void coneEffects() {
+        BenchmarkScene benchmark = glossyScene();
+        Ray[] rays = primaryRays(benchmark);
+        RayTracerBase reference = new SimpleRayTracer(benchmark.scene()).setBvh(true).setConeSamples(64);
+        reference.prepare();
+        Color[] expected = trace(reference, rays);
+        System.out.printf("%-20s %-14s 64 rays: %8.1f ms%n", "cone effects", benchmark.scene().name,
+                time(reference, rays));
+        for (int samples : new int[]{16, 4}) {
+            RayTracerBase sampled = new SimpleRayTracer(benchmark.scene()).setBvh(true).setConeSamples(samples);
+            sampled.prepare();
+            double[] deviation = deviation(expected, trace(sampled, rays));
+            System.out.printf("%-20s rays %-9d sampled: %8.1f ms, mean difference %6.2f, max difference %6.1f%n",
+                    "cone effects", samples, time(sampled, rays), deviation[0], deviation[1]);
+        }
+    }
+
+    /**
+     * Ambient occlusion with occlusion rays of several reaches, against the plain ambient light
+     */
+    @Test
+    public void ambientOcclusion() {
+        BenchmarkScene benchmark = diffuseScene();
+        Ray[] rays = primaryRays(benchmark);
+        RayTracerBase reference = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+        reference.prepare();
+        Color[] expected = trace(reference, rays);
+        System.out.printf("%-20s %-14s no occlusion: %8.1f ms%n", "ambient occlusion", benchmark.scene().name,
+                time(reference, rays));
+        for (double distance : new double[]{10, 40, Double.POSITIVE_INFINITY}) {
+            RayTracerBase occluded = new SimpleRayTracer(benchmark.scene()).setBvh(true)
+                    .setAmbientOcclusion(distance, 16);
+            occluded.prepare();
+            double[] deviation = deviation(expected, trace(occluded, rays));
+            System.out.printf("%-20s distance %-8.0f occluded: %8.1f ms, mean darkening %6.2f, max darkening %6.1f%n",
+                    "ambient occlusion", distance, time(occluded, rays), deviation[0], deviation[1]);
+        }
+    }
+
+    /**
+     * Depth of field with adaptive lens sampling against the full budget of lens rays for every pixel
+     */
+    @Test
+    public void depthOfField() {
+        BenchmarkScene benchmark = shadowScene();
+        AtomicLong traced = new AtomicLong();
+        RayTracerBase tracer = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+        RayTracerBase counting = new RayTracerBase(benchmark.scene()) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return tracer.traceRay(ray);
+            }
+
+            @Override
+            public void prepare() {
+                tracer.prepare();
+            }
+        };
+        benchmark.camera().setRayTracer(counting).setFocalDistance(981).setApertureSamples(16);
+        for (double aperture : new double[]{0, 5, 20}) {
+            Camera camera = benchmark.camera().setAperture(aperture, Camera.ApertureShape.CIRCLE)
+                    .setImageWriter(new ImageWriter("benchmark", RESOLUTION, RESOLUTION)).build();
+            camera.renderImage();
+            traced.set(0);
+            long start = System.nanoTime();
+            camera.renderImage();
+            System.out.printf("%-20s aperture %-8.0f %8.1f ms, %5.2f rays/pixel (full budget %d)%n",
+                    "depth of field", aperture, (System.nanoTime() - start) / 1e6,
+                    traced.get() / (double) (RESOLUTION * RESOLUTION), aperture == 0 ? 1 : 4 + 16);
+        }
+    }
+
+    /**
+     * Motion blur in a single pass with time-sampled rays against averaging full frames at several times
+     */
+    @Test
+    public void motionBlur() {
+        BenchmarkScene benchmark = motionScene();
+        int frames = 4 + 16;
+        SimpleRayTracer tracer = new SimpleRayTracer(benchmark.scene()).setBvh(true);
+        tracer.prepare();
+        Ray[] still = primaryRays(benchmark);
+        Ray[] rays = new Ray[still.length];
+        trace(tracer, still);
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; ++frame) {
+            for (int i = 0; i < rays.length; ++i)
+                rays[i] = new Ray(still[i].getP0(), still[i].getDir(), (frame + 0.5) / frames);
+            trace(tracer, rays);
+        }
+        System.out.printf("%-20s %-14s %d averaged frames: %8.1f ms%n", "motion blur", benchmark.scene().name,
+                frames, (System.nanoTime() - start) / 1e6);
+
+        AtomicLong traced = new AtomicLong();
+        RayTracerBase counting = new RayTracerBase(benchmark.scene()) {
+            @Override
+            public Color traceRay(Ray ray) {
+                traced.incrementAndGet();
+                return tracer.traceRay(ray);
+            }
+        };
+        Camera camera = benchmark.camera().setRayTracer(counting).setMotionBlur(16)
+                .setImageWriter(new ImageWriter("benchmark", RESOLUTION, RESOLUTION)).build();
+        camera.renderImage();
+        traced.set(0);
+        start = System.nanoTime();
+        camera.renderImage();
+        System.out.printf("%-20s %-14s single pass:      %8.1f ms, %5.2f rays/pixel%n", "motion blur",
+                benchmark.scene().name, (System.nanoTime() - start) / 1e6,
+                traced.get() / (double) (RESOLUTION * RESOLUTION));
+    }
+
+    /**
+     * An animation rendered as a frame sequence against rendering and writing each frame by itself
+     */
+    @Test
+    public void frameSequence() throws IOException {
+        BenchmarkScene benchmark = nightScene();
+        int frames = 6;
+        Geometries still = benchmark.scene().geometries;
+        Function<Integer, Intersectable> ball = frame -> new Sphere(10, new Point(-100 + 40 * frame, -40, -200))
+                .setEmission(new Color(RED)).setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(20));
+        Function<Integer, Camera.Builder> camera = frame -> benchmark.camera()
+                .setLocation(new Point(10 * frame, 250, 200))
+                .setImageWriter(new ImageWriter("benchmarkFrame" + frame, RESOLUTION, RESOLUTION));
+
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; ++frame) {
+            Scene scene = new Scene("Frame").setBackground(benchmark.scene().background);
+            scene.geometries.add(still, ball.apply(frame));
+            scene.setLights(benchmark.scene().lights);
+            camera.apply(frame).setRayTracer(new SimpleRayTracer(scene).setBvh(true).setLightCutoff(0.5)).build()
+                    .renderImage().writeToImage();
+        }
+        double separate = (System.nanoTime() - start) / 1e6;
+
+        start = System.nanoTime();
+        FrameSequence sequence =
+                new FrameSequence(new SimpleRayTracer(benchmark.scene()).setBvh(true).setLightCutoff(0.5));
+        for (int frame = 0; frame < frames; ++frame)
+            sequence.addFrame(camera.apply(frame)).setGeometries(ball.apply(frame));
+        sequence.render();
+        double sequenced = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-20s %-14s %d separate frames: %8.1f ms, frame sequence: %8.1f ms%n", "frame sequence",
+                benchmark.scene().name, frames, separate, sequenced);
+        for (int frame = 0; frame < frames; ++frame)
+            Files.deleteIfExists(Path.of(System.getProperty("user.dir"), "images", "benchmarkFrame" + frame + ".png"));
+    }
+
+    /**
+     * Shipping a large scene in the binary scene format, in memory and through a memory-mapped file
+     */
+    @Test
+    public void sceneEncoding() throws IOException {
+        // A height field of 2 * 100 * 100 triangles and a grid of spheres, sharing a few materials
+        Scene scene = new Scene("Height field");
+        Material[] materials = {new Material().setKD(0.5), new Material().setKD(0.3).setKS(0.6).setShininess(40)};
+        int side = 100;
+        Function<Integer, Point> vertex = k -> new Point(k % (side + 1), Math.sin(k * 0.37) * 2, k / (side + 1));
+        for (int i = 0; i < side; ++i) {
+            for (int j = 0; j < side; ++j) {
+                int k = i * (side + 1) + j;
+                scene.geometries.add(new Triangle(vertex.apply(k), vertex.apply(k + 1), vertex.apply(k + side + 1))
+                                .setMaterial(materials[0]),
+                        new Triangle(vertex.apply(k + 1), vertex.apply(k + side + 2), vertex.apply(k + side + 1))
+                                .setMaterial(materials[0]));
+                if (i % 4 == 0 && j % 4 == 0)
+                    scene.geometries.add(new Sphere(0.5, new Point(j, 5, i)).setMaterial(materials[1]));
+            }
+        }
+        scene.lights.add(new PointLight(new Color(WHITE), new Point(50, 50, 50)));
+        int count = scene.geometries.getGeometries().size();
+
+        byte[] bytes = SceneCodec.encode(scene);
+        double encode = Double.POSITIVE_INFINITY, decode = Double.POSITIVE_INFINITY, read = Double.POSITIVE_INFINITY;
+        Path file = Files.createTempFile("benchmarkScene", ".bin");
+        try {
+            for (int pass = 0; pass < PASSES; ++pass) {
+                long start = System.nanoTime();
+                bytes = SceneCodec.encode(scene);
+                encode = Math.min(encode, (System.nanoTime() - start) / 1e6);
+                start = System.nanoTime();
+                Scene decoded = SceneCodec.decode(ByteBuffer.wrap(bytes));
+                decode = Math.min(decode, (System.nanoTime() - start) / 1e6);
+                assertEquals(count, decoded.geometries.getGeometries().size(), "Scene format lost geometries");
+
+                SceneCodec.write(scene, file);
+                start = System.nanoTime();
+                Scene mapped = SceneCodec.read(file);
+                read = Math.min(read, (System.nanoTime() - start) / 1e6);
+                assertEquals(count, mapped.geometries.getGeometries().size(), "Mapped scene lost geometries");
+            }
+        } finally {
+            Files.delete(file);
+        }
+        System.out.printf("%-20s %-14s %d geometries, %8d bytes, encode: %6.1f ms, decode: %6.1f ms, "
+                + "mapped read: %6.1f ms%n", "scene encoding", scene.name, count, bytes.length, encode, decode, read);
+    }
+}
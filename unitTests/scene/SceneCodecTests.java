@@ -0,0 +1,293 @@
+package scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Unit tests for {@link SceneCodec}
+ */
+class SceneCodecTests {
+    /**
+     * Accuracy of the decoded values
+     */
+    private static final double DELTA = 1e-12;
+
+    /**
+     * Encodes a scene holding a geometry and decodes it back.
+     *
+     * @param geometry the geometry
+     * @return the decoded geometry
+     */
+    private static Intersectable roundTrip(Intersectable geometry) {
+        Scene scene = new Scene("Geometry");
+        scene.geometries.add(geometry);
+        List<Intersectable> geometries = SceneCodec.decode(ByteBuffer.wrap(SceneCodec.encode(scene)))
+                .geometries.getGeometries();
+        assertEquals(1, geometries.size(), "Wrong number of geometries");
+        assertEquals(geometry.getClass(), geometries.get(0).getClass(), "Wrong geometry type");
+        return geometries.get(0);
+    }
+
+    /**
+     * Checks that two points are equal.
+     *
+     * @param expected the expected point
+     * @param actual   the actual point
+     */
+    private static void assertPoint(Point expected, Point actual) {
+        assertEquals(expected.getX(), actual.getX(), DELTA, "Wrong x");
+        assertEquals(expected.getY(), actual.getY(), DELTA, "Wrong y");
+        assertEquals(expected.getZ(), actual.getZ(), DELTA, "Wrong z");
+    }
+
+    /**
+     * Checks that two colors are equal.
+     *
+     * @param expected the expected color
+     * @param actual   the actual color
+     */
+    private static void assertColor(Color expected, Color actual) {
+        assertEquals(expected.getRed(), actual.getRed(), DELTA, "Wrong red");
+        assertEquals(expected.getGreen(), actual.getGreen(), DELTA, "Wrong green");
+        assertEquals(expected.getBlue(), actual.getBlue(), DELTA, "Wrong blue");
+    }
+
+    /**
+     * Checks that two geometries have the same material and emission.
+     *
+     * @param expected the expected geometry
+     * @param actual   the actual geometry
+     */
+    private static void assertSurface(Geometry expected, Geometry actual) {
+        Material e = expected.getMaterial(), a = actual.getMaterial();
+        assertEquals(e.kD, a.kD, "Wrong kD");
+        assertEquals(e.kS, a.kS, "Wrong kS");
+        assertEquals(e.kT, a.kT, "Wrong kT");
+        assertEquals(e.kR, a.kR, "Wrong kR");
+        assertEquals(e.Shininess, a.Shininess, "Wrong shininess");
+        assertEquals(e.glossiness, a.glossiness, DELTA, "Wrong glossiness");
+        assertEquals(e.diffuseness, a.diffuseness, DELTA, "Wrong diffuseness");
+        assertColor(expected.getEmission(), actual.getEmission());
+    }
+
+    /**
+     * Test method for the round trip of each geometry type.
+     */
+    @Test
+    void testGeometries() {
+        Material material = new Material().setKD(new Double3(0.1, 0.2, 0.3)).setKS(0.4).setKT(0.2).setKR(0.1)
+                .setShininess(42).setGlossiness(0.05).setDiffuseness(0.1);
+        Color emission = new Color(10, 20, 30);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Plane
+        Plane plane = (Plane) new Plane(new Point(1, 2, 3), new Vector(0, 1, 1)).setMaterial(material)
+                .setEmission(emission);
+        Plane plane2 = (Plane) roundTrip(plane);
+        assertSurface(plane, plane2);
+        assertPoint(plane.getPoint(), plane2.getPoint());
+        assertPoint(plane.getNormal(), plane2.getNormal());
+
+        // TC02: Sphere
+        Sphere sphere = (Sphere) new Sphere(2.5, new Point(-1, 0, 4)).setMaterial(material).setEmission(emission);
+        Sphere sphere2 = (Sphere) roundTrip(sphere);
+        assertSurface(sphere, sphere2);
+        assertPoint(sphere.getCenter(), sphere2.getCenter());
+        assertEquals(sphere.getRadius(), sphere2.getRadius(), DELTA, "Wrong sphere radius");
+
+        // TC03: Triangle
+        Triangle triangle = (Triangle) new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(0, 1, 0))
+                .setMaterial(material).setEmission(emission);
+        Triangle triangle2 = (Triangle) roundTrip(triangle);
+        assertSurface(triangle, triangle2);
+        for (int i = 0; i < 3; ++i) assertPoint(triangle.getVertices().get(i), triangle2.getVertices().get(i));
+
+        // TC04: Polygon
+        Polygon polygon = (Polygon) new Polygon(new Point(0, 0, 1), new Point(1, 0, 1), new Point(1, 1, 1),
+                new Point(0.5, 1.5, 1), new Point(0, 1, 1)).setMaterial(material).setEmission(emission);
+        Polygon polygon2 = (Polygon) roundTrip(polygon);
+        assertSurface(polygon, polygon2);
+        assertEquals(5, polygon2.getVertices().size(), "Wrong number of vertices");
+        for (int i = 0; i < 5; ++i) assertPoint(polygon.getVertices().get(i), polygon2.getVertices().get(i));
+
+        // TC05: Tube
+        Tube tube = (Tube) new Tube(1.5, new Ray(new Point(1, 1, 1), new Vector(0, 0, 1))).setMaterial(material)
+                .setEmission(emission);
+        Tube tube2 = (Tube) roundTrip(tube);
+        assertSurface(tube, tube2);
+        assertEquals(tube.getRadius(), tube2.getRadius(), DELTA, "Wrong tube radius");
+        assertEquals(tube.getAxisRay(), tube2.getAxisRay(), "Wrong tube axis");
+
+        // TC06: Cylinder
+        Cylinder cylinder = (Cylinder) new Cylinder(0.5, new Ray(new Point(2, 0, 0), new Vector(1, 1, 0)), 3)
+                .setMaterial(material).setEmission(emission);
+        Cylinder cylinder2 = (Cylinder) roundTrip(cylinder);
+        assertSurface(cylinder, cylinder2);
+        assertEquals(cylinder.getRadius(), cylinder2.getRadius(), DELTA, "Wrong cylinder radius");
+        assertEquals(cylinder.getAxisRay(), cylinder2.getAxisRay(), "Wrong cylinder axis");
+        assertEquals(cylinder.getHeight(), cylinder2.getHeight(), DELTA, "Wrong cylinder height");
+
+        // TC07: Nested collection of geometries
+        Geometries nested = new Geometries(sphere, new Geometries(triangle, plane));
+        Geometries nested2 = (Geometries) roundTrip(nested);
+        assertEquals(2, nested2.getGeometries().size(), "Wrong collection size");
+        assertInstanceOf(Sphere.class, nested2.getGeometries().get(0), "Wrong first member");
+        Geometries inner = assertInstanceOf(Geometries.class, nested2.getGeometries().get(1), "Wrong second member");
+        assertInstanceOf(Triangle.class, inner.getGeometries().get(0), "Wrong inner member");
+        assertInstanceOf(Plane.class, inner.getGeometries().get(1), "Wrong inner member");
+        // TC08: A material shared by geometries stays shared
+        assertSame(((Geometry) nested2.getGeometries().get(0)).getMaterial(),
+                ((Geometry) inner.getGeometries().get(0)).getMaterial(), "Material not shared");
+
+        // TC09: Moving geometry
+        MovingGeometry moving = new MovingGeometry(sphere, new Vector(1, 2, 3));
+        MovingGeometry moving2 = (MovingGeometry) roundTrip(moving);
+        assertPoint(moving.getTranslation(), moving2.getTranslation());
+        assertPoint(sphere.getCenter(), ((Sphere) moving2.getGeometry()).getCenter());
+
+        // TC10: The decoded geometries are intersected as the originals
+        Ray ray = new Ray(new Point(-1, 0, 10), new Vector(0.01, 0.02, -1));
+        for (Intersectable geometry : List.of(plane, sphere, nested)) {
+            List<Point> expected = geometry.findIntersections(ray);
+            List<Point> actual = roundTrip(geometry).findIntersections(ray);
+            assertEquals(expected.size(), actual.size(), "Wrong number of intersections");
+            for (int i = 0; i < expected.size(); ++i) assertPoint(expected.get(i), actual.get(i));
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Geometry with the default material and no emission
+        Sphere plain = new Sphere(1, Point.ZERO);
+        assertSurface(plain, (Sphere) roundTrip(plain));
+        // TC12: Empty collection
+        assertTrue(((Geometries) roundTrip(new Geometries())).getGeometries().isEmpty(), "Empty collection");
+    }
+
+    /**
+     * Test method for the round trip of the lights and the scene properties, through a memory-mapped file.
+     */
+    @Test
+    void testScene() throws IOException {
+        Scene scene = new Scene("Lights ☀").setBackground(new Color(1, 2, 3))
+                .setAmbientLight(new AmbientLight(new Color(100, 50, 25), new Double3(0.1)));
+        scene.lights.add(new DirectionalLight(new Color(10, 20, 30), new Vector(1, -1, 0)));
+        scene.lights.add(new PointLight(new Color(40, 50, 60), new Point(1, 2, 3)).setKL(0.01).setKQ(0.002));
+        scene.lights.add(new SpotLight(new Color(70, 80, 90), new Point(4, 5, 6), new Vector(0, 0, -1)).setKC(2));
+        scene.lights.add(new RectangleLight(new Color(5, 5, 5), new Point(0, 10, 0), new Vector(2, 0, 0),
+                new Vector(0, 0, 3)).setSamples(25).setKQ(0.1));
+        scene.lights.add(new DiskLight(new Color(6, 6, 6), new Point(0, 10, 5), new Vector(0, -1, 0), 1.5)
+                .setSamples(9));
+        scene.geometries.add(new Sphere(1, Point.ZERO));
+
+        Path file = Files.createTempFile("scene", ".bin");
+        try {
+            SceneCodec.write(scene, file);
+            Scene decoded = SceneCodec.read(file);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: Name, background and ambient light
+            assertEquals(scene.name, decoded.name, "Wrong name");
+            assertColor(scene.background, decoded.background);
+            assertColor(scene.ambientLight.getIntensity(), decoded.ambientLight.getIntensity());
+            assertEquals(1, decoded.geometries.getGeometries().size(), "Wrong geometries");
+
+            // TC02: Each light type
+            assertEquals(5, decoded.lights.size(), "Wrong number of lights");
+            for (int i = 0; i < 5; ++i) {
+                LightSource expected = scene.lights.get(i), actual = decoded.lights.get(i);
+                assertEquals(expected.getClass(), actual.getClass(), "Wrong light type");
+                // The lights illuminate any point as the originals
+                for (Point p : List.of(new Point(0, 0, 0), new Point(3, -2, 7))) {
+                    assertColor(expected.getIntensity(p), actual.getIntensity(p));
+                    assertPoint(expected.getL(p), actual.getL(p));
+                }
+            }
+            PointLight point = (PointLight) decoded.lights.get(1);
+            assertEquals(0.01, point.getKL(), DELTA, "Wrong kL");
+            assertEquals(0.002, point.getKQ(), DELTA, "Wrong kQ");
+            RectangleLight rectangle = (RectangleLight) decoded.lights.get(3);
+            assertEquals(5, rectangle.getSampleGrid(), "Wrong sample grid");
+            assertPoint(new Vector(0, 0, 3), rectangle.getEdge2());
+            DiskLight disk = (DiskLight) decoded.lights.get(4);
+            assertEquals(3, disk.getSampleGrid(), "Wrong sample grid");
+            assertEquals(1.5, disk.getRadius(), DELTA, "Wrong disk radius");
+            assertPoint(new Vector(0, -1, 0), disk.getNormal());
+        } finally {
+            Files.delete(file);
+        }
+
+        // =============== Boundary Values Tests ==================
+        byte[] bytes = SceneCodec.encode(scene);
+        // TC10: A scene after other data in a buffer is decoded from the buffer's position
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 7).position(7).put(bytes).position(7);
+        assertEquals(scene.name, SceneCodec.decode(buffer).name, "Scene not decoded at the position");
+        assertEquals(buffer.limit(), buffer.position(), "Buffer not advanced past the scene");
+        // TC11: Scene without a name
+        assertNull(SceneCodec.decode(ByteBuffer.wrap(SceneCodec.encode(new Scene(null)))).name, "Name not null");
+        // TC12: Other version, truncated or corrupt data
+        byte[] version = bytes.clone();
+        version[7] = 2;
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.decode(ByteBuffer.wrap(version)),
+                "Other version accepted");
+        assertThrows(IllegalArgumentException.class,
+                () -> SceneCodec.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 1)), "Truncated data accepted");
+        byte[] corrupt = bytes.clone();
+        corrupt[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.decode(ByteBuffer.wrap(corrupt)),
+                "Corrupt data accepted");
+        for (int nameLength : new int[]{-2, Integer.MAX_VALUE}) {
+            byte[] name = bytes.clone();
+            ByteBuffer.wrap(name).putInt(12, nameLength);
+            assertThrows(IllegalArgumentException.class, () -> SceneCodec.decode(ByteBuffer.wrap(name)),
+                    "Corrupt name length " + nameLength + " accepted");
+        }
+        // TC13: Missing scene and unsupported geometry
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.encode(null), "Null scene accepted");
+        Scene unsupported = new Scene("Unsupported");
+        unsupported.geometries.add(new Intersectable() {
+            @Override
+            protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+                return null;
+            }
+        });
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.encode(unsupported),
+                "Unsupported geometry accepted");
+        // TC14: Subclasses of the supported types, which may override their behaviour
+        Scene subclassed = new Scene("Subclassed");
+        subclassed.geometries.add(new Sphere(1, Point.ZERO) {
+        });
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.encode(subclassed),
+                "Subclass of a geometry accepted");
+        Scene subclassedLight = new Scene("Subclassed light");
+        subclassedLight.lights.add(new PointLight(new Color(1, 1, 1), Point.ZERO) {
+        });
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.encode(subclassedLight),
+                "Subclass of a light accepted");
+        // TC15: Collections nested too deep are rejected when written, and when read from crafted data
+        Scene deep = new Scene("Deep");
+        Geometries inner = deep.geometries;
+        for (int i = 0; i < SceneCodec.MAX_DEPTH; ++i) {
+            Geometries nested = new Geometries();
+            inner.add(nested);
+            inner = nested;
+        }
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.encode(deep), "Deep nesting accepted");
+        ByteBuffer crafted = ByteBuffer.allocate(1 << 20);
+        crafted.putInt(0x5254534E).putInt(SceneCodec.VERSION).putInt(0).putInt(-1);
+        for (int i = 0; i < 6; ++i) crafted.putDouble(0);
+        crafted.putInt(0).putInt(0); // no materials and no lights
+        while (crafted.remaining() >= 9) crafted.put((byte) 1).putInt(0).putInt(1); // a collection of one member
+        assertThrows(IllegalArgumentException.class, () -> SceneCodec.decode(crafted.flip()),
+                "Deeply nested records accepted");
+    }
+}